@@ -0,0 +1,156 @@
+package com.cliffc.aa;
+
+import com.cliffc.aa.HM.HM;
+import com.cliffc.aa.node.Node;
+import com.cliffc.aa.util.SB;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.*;
+
+// Compile-time scaling harness.  Compiles ProgGen programs of growing size N
+// and reports, per N: the wall time of each Exec phase (parse, each GVN iter,
+// each Combo, GCM, error gathering) and of the HM prototype on the same
+// shapes; Node uids, GVN iterations and Combo pops against their asserted
+// budgets; and peak heap.  Each (N,seed) runs in a fresh JVM, as compiler
+// state is static, and the budget asserts are off (-da) so the counts are
+// seen past them.  The graph walks recurse, so the child stack is large.
+// The last columns give the growth exponent of total time and Node count
+// from the prior N; above 1 is superlinear.  By default the functions do not
+// call each other, so every phase runs; -calls uses the cross-calling shapes,
+// which stop in the first Combo pass in this compiler.
+//
+//   make scale                      # N = 25 50 100 200 400
+//   make scale SCALE="10 100 1000"
+//   make scale SCALE="-calls 10 20 40"
+public abstract class CompileScale {
+  // Asserted internal budgets
+  static final int UID_BUDGET=100000, ITER_BUDGET=35000, COMBO_BUDGET=100000, HM_BUDGET=10000;
+
+  // Output columns; phase times are named after the Exec phases
+  static final String[] COLS = {"chars","Parse_ms","Iter_PesiNoCG_ms","Combo_1_ms","Iter_PesiCG_1_ms","Combo_2_ms","Iter_PesiCG_2_ms","GCM_ms","Errors_ms",
+                                "errs","uids","uid%","iters","iter%","combo","combo%","heap_mb","HM_ms","HM_iters","HM%"};
+
+  public static void main( String[] args ) throws Exception {
+    if( args.length==4 && args[0].equals("-one") ) { one(Integer.parseInt(args[1]),Long.parseLong(args[2]),Boolean.parseBoolean(args[3])); return; }
+    boolean calls = args.length>0 && args[0].equals("-calls");
+    if( calls ) args = Arrays.copyOfRange(args,1,args.length);
+    int[] ns = args.length==0 ? new int[]{25,50,100,200,400} : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+    SB sb = new SB().p(String.format("%6s","N"));
+    for( String c : COLS ) sb.p(String.format(" %*s".replace("*",""+Math.max(6,c.length())),c));
+    System.out.println(sb.p(String.format(" %7s %7s","exp_ms","exp_uid")));
+    long[] prior = null;  int priorN=0;
+    for( int n : ns ) {
+      HashMap<String,String> kv = new HashMap<>();
+      String line = fork(n,12345L,calls);
+      if( line!=null )
+        for( String s : line.split("\t") )
+          kv.put(s.substring(0,s.indexOf('=')),s.substring(s.indexOf('=')+1));
+      sb = new SB().p(String.format("%6d",n));
+      long total=0;
+      for( String c : COLS ) {
+        String v = kv.getOrDefault(c,"-");
+        sb.p(String.format(" %*s".replace("*",""+Math.max(6,c.length())),v));
+        if( c.endsWith("_ms") && !c.startsWith("HM") && !v.equals("-") ) total += Long.parseLong(v);
+      }
+      long uids = Long.parseLong(kv.getOrDefault("uids","0"));
+      if( prior!=null && !kv.containsKey("fail") )
+        sb.p(String.format(" %7.2f %7.2f",exp(prior[0],total,priorN,n),exp(prior[1],uids,priorN,n)));
+      if( kv.containsKey("fail") ) sb.p("  failed: ").p(kv.get("fail"));
+      else { prior = new long[]{total,uids};  priorN = n; }
+      System.out.println(sb);
+    }
+  }
+
+  // Growth exponent k, in y ~ N^k
+  private static double exp( long y0, long y1, int n0, int n1 ) {
+    return Math.log(Math.max(y1,1)/(double)Math.max(y0,1))/Math.log(n1/(double)n0);
+  }
+
+  // Run one size in a child JVM; return its stats line
+  private static String fork( int n, long seed, boolean calls ) throws Exception {
+    String java = ProcessHandle.current().info().command().orElse("java");
+    ProcessBuilder pb = new ProcessBuilder(java,"-da","-Xss1g","-cp",System.getProperty("java.class.path"),
+                                           CompileScale.class.getName(),"-one",""+n,""+seed,""+calls);
+    pb.redirectErrorStream(true);
+    Process p = pb.start();
+    String stats=null, s;
+    try( BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream())) ) {
+      while( (s=r.readLine()) != null )
+        if( s.startsWith("STATS\t") ) stats = s.substring(6);
+        else System.err.println("  N="+n+": "+s); // Pass along child noise
+    }
+    p.waitFor();
+    return stats;
+  }
+
+  // Compile one program and print a tab-separated key=value stats line.  A
+  // crash still reports the phases before it, and the failing phase.
+  private static void one( int n, long seed, boolean calls ) {
+    String prog = calls ? ProgGen.make(seed,n) : ProgGen.make_local(seed,n);
+    resetPeak();
+    TypeEnv te = null;
+    String fail = null;
+    try { te = Exec.file("scale",prog); }
+    catch( Throwable e ) {
+      String[] done = Exec.PHASES.keySet().toArray(new String[0]);
+      fail = e.getClass().getSimpleName()+" after "+(done.length==0 ? "start" : done[done.length-1]);
+    }
+    long heap = peakHeap();
+    // A clean exit resets the counters, so take them from the phases too
+    long uids=Node.uid_cnt();  int iters=GVNGCM.ITER_CNT, combo=Combo.CNT;
+    SB sb = new SB().p("STATS\tchars=").p(prog.length());
+    for( Map.Entry<String,long[]> e : Exec.PHASES.entrySet() ) {
+      long[] st = e.getValue();
+      sb.p("\t").p(e.getKey().replace(' ','_')).p("_ms=").p(st[0]/1000000);
+      uids = Math.max(uids,st[1]);
+      if( e.getKey().startsWith("Iter" ) ) iters = Math.max(iters,(int)st[2]);
+      if( e.getKey().startsWith("Combo") ) combo = Math.max(combo,(int)st[2]);
+    }
+    if( te!=null ) sb.p("\terrs=").p(te._errs==null ? 0 : te._errs.size());
+    sb.p("\tuids=").p(uids).p("\tuid%=").p(uids*100/UID_BUDGET);
+    sb.p("\titers=").p(iters).p("\titer%=").p(iters*100L/ITER_BUDGET);
+    sb.p("\tcombo=").p(combo).p("\tcombo%=").p(combo*100L/COMBO_BUDGET);
+    sb.p("\theap_mb=").p(heap>>20);
+    hm(sb,ProgGen.make_hm(seed,n));
+    if( fail!=null ) sb.p("\tfail=").p(fail);
+    System.out.println(sb);
+  }
+
+  // Time the HM prototype, and pick its worklist count out of its profiling
+  // print.  That is the total over all passes, so bounds each pass's count.
+  // Worklist seed 0 never advances the count, so run with seed 1.
+  private static void hm( SB sb, String prog ) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    long t0 = System.nanoTime(), cnt=-1;
+    try {
+      System.setOut(new PrintStream(buf));
+      HM.reset();
+      HM.hm(prog,1,true,true);
+    } catch( RuntimeException | AssertionError e ) {
+      cnt = -2;                 // Failed
+    } finally {
+      System.setOut(out);
+    }
+    long ms = (System.nanoTime()-t0)/1000000;
+    String s = buf.toString();
+    int x = s.indexOf("worklist iters: ");
+    if( x>=0 && cnt==-1 ) cnt = Long.parseLong(s.substring(x+16,s.indexOf(',',x)));
+    sb.p("\tHM_ms=").p(ms).p("\tHM_iters=").p(cnt).p("\tHM%=").p(cnt*100/HM_BUDGET);
+  }
+
+  private static void resetPeak() {
+    System.gc();
+    for( MemoryPoolMXBean mp : ManagementFactory.getMemoryPoolMXBeans() )
+      if( mp.getType()==MemoryType.HEAP ) mp.resetPeakUsage();
+  }
+  private static long peakHeap() {
+    long sum=0;
+    for( MemoryPoolMXBean mp : ManagementFactory.getMemoryPoolMXBeans() )
+      if( mp.getType()==MemoryType.HEAP ) sum += mp.getPeakUsage().getUsed();
+    return sum;
+  }
+}
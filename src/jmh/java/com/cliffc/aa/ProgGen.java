@@ -0,0 +1,63 @@
+package com.cliffc.aa;
+
+import com.cliffc.aa.util.SB;
+
+import java.util.Random;
+
+// Seeded generator of valid aa programs, for compile-time scaling.  Makes N
+// top-level functions, each a mix of arithmetic, structs, recursion, closures
+// and overloaded operators over earlier functions, then an expression calling
+// them all.  Calls from one function into another (or into a closure),
+// structs and mixed int and flt arguments reach unimplemented paths in the
+// first Combo pass, so the local shapes hold no structs, call only themselves
+// with int arguments, and compile through every phase.  Also makes the same
+// shapes in the HM test dialect.  The same (seed,N) always makes the same
+// program.
+public abstract class ProgGen {
+
+  // Function shapes; f%1$d is the function being made, f%2$d an earlier one,
+  // and %3$d a small constant.
+  private static final String[] AA_FUNS = {
+    "f%1$d = { x -> x*%3$d + f%2$d(x) };",                                  // Arithmetic
+    "f%1$d = { x -> p = @{a=x; b=f%2$d(x)*%3$d}; p.a + p.b };",               // Struct
+    "f%1$d = { x -> p = @{n:=x}; p.n := p.n + f%2$d(x); p.n };",             // Mutable struct
+    "f%1$d = { x -> x <= 1 ? %3$d : x*f%1$d(x-1) + f%2$d(x) };",             // Recursion
+    "f%1$d = { x -> g = { y -> y*x + %3$d }; g(f%2$d(x)) };",                // Closure
+    "f%1$d = { x -> f%2$d(x) + f%2$d(x*%3$d.5) };",                          // Overloaded int and flt
+  };
+  private static final String[] AA_LOCAL = {
+    "f%1$d = { x -> x*%3$d + x };",                                          // Arithmetic
+    "f%1$d = { x -> x > %3$d ? x - %3$d : x*%3$d };",                         // Branch
+    "f%1$d = { x -> x <= 1 ? %3$d : x*f%1$d(x-1) + x };",                    // Recursion
+  };
+  private static final String[] HM_FUNS = {
+    "f%1$d = { x -> (+ (* x %3$d) (f%2$d x)) };",
+    "f%1$d = { x -> p = @{ a=x, b=(* (f%2$d x) %3$d) }; (+ p.a p.b) };",
+    "f%1$d = { x -> (if (eq0 x) %3$d (* x (f%1$d (dec x)))) };",
+    "f%1$d = { x -> g = { y -> (+ (* y x) %3$d) }; (g (f%2$d x)) };",
+    "f%1$d = { x -> (pair (f%2$d x) (f%2$d (dec x))).0 };",
+  };
+
+  public static String make      ( long seed, int nfuns ) { return make(seed,nfuns,AA_FUNS ,false,true ); }
+  public static String make_local( long seed, int nfuns ) { return make(seed,nfuns,AA_LOCAL,false,false); }
+  public static String make_hm   ( long seed, int nfuns ) { return make(seed,nfuns,HM_FUNS ,true ,false); }
+
+  private static String make( long seed, int nfuns, String[] shapes, boolean hm, boolean flt ) {
+    Random R = new Random(seed);
+    SB sb = new SB();
+    sb.p(hm ? "f0 = { x -> (* x 2) };" : "f0 = { x -> x*2 };").nl();
+    for( int i=1; i<nfuns; i++ )
+      sb.p(String.format(shapes[R.nextInt(shapes.length)],i,R.nextInt(i),R.nextInt(9)+1)).nl();
+    // Call them all; in aa alternate int and flt arguments, or use only ints
+    // above the recursion base case (a recursion folded to its base case
+    // leaves a dead memory cycle whose liveness does not settle).
+    if( hm ) {
+      sb.p("(triple");
+      for( int i=0; i<3; i++ ) sb.p(" (f").p(R.nextInt(nfuns)).p(" ").p(i+3).p(")");
+      return sb.p(")").nl().toString();
+    }
+    for( int i=0; i<nfuns; i++ )
+      sb.p(i==0 ? "" : " + ").p("f").p(i).p(!flt ? "(" + (i%7+2) + ")" : (i&1)==0 ? "(" + (i%7+1) + ")" : "(" + (i%7+1) + ".5)");
+    return sb.nl().toString();
+  }
+}
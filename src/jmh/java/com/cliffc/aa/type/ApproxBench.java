@@ -0,0 +1,48 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.util.Ary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// TypeStruct.approx2 on every corpus struct reached from a pointer, at that
+// pointer's aliases.  The "hit" variant cycles over a few keys, and hits the
+// ApproxCache.  The "miss" variant runs with the smallest ApproxCache and
+// cycles over all the keys.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class ApproxBench {
+  private static final int HOT = 1<<3;
+  @Param({"1","3"}) int _cutoff;
+  private TypeStruct[] _ts;
+  private BitsAlias[] _as;
+  private int _i;
+
+  @Setup public void setup() {
+    Ary<TypeStruct> ts = new Ary<>(TypeStruct.class);
+    Ary<BitsAlias> as = new Ary<>(BitsAlias.class);
+    for( TypeMemPtr ptr : Corpus.PTRS ) {
+      TypeStruct t = (TypeStruct)ptr._obj;
+      BitsAlias aliases = ptr._aliases.strip_nil();
+      try { t.approx2(_cutoff,aliases); }
+      catch( Throwable e ) { Type.rmeet_reset(); continue; }
+      ts.push(t);  as.push(aliases);
+    }
+    _ts = ts.asAry();  _as = as.asAry();
+  }
+
+  @Benchmark public TypeStruct approx_hit() {
+    int i = (_i++ & (HOT-1)) % _ts.length;
+    return _ts[i].approx2(_cutoff,_as[i]);
+  }
+
+  @Benchmark @Fork(value=1, jvmArgsAppend="-Daa.approx_cache=8")
+  public TypeStruct approx_miss() {
+    int i = _i++ % _ts.length;
+    return _ts[i].approx2(_cutoff,_as[i]);
+  }
+}
@@ -0,0 +1,53 @@
+package com.cliffc.aa.type;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// BitsAlias meet over sparse and dense sets.  Splits 256 fresh aliases off of
+// the record alias.  Sparse sets hold a few aliases scattered across them;
+// dense sets hold a run of half of them.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class BitsBench {
+  private static final int NALIAS = 256;
+  private static final int NSETS  = 1<<8;
+  private BitsAlias[] _sparse, _dense;
+  private int _i;
+
+  @Setup public void setup() {
+    Object dummy = Corpus.TYPES; // Build the alias tree
+    int[] aliases = new int[NALIAS];
+    for( int i=0; i<NALIAS; i++ ) aliases[i] = BitsAlias.new_alias(BitsAlias.REC);
+    Random r = Corpus.rand();
+    _sparse = new BitsAlias[NSETS];
+    _dense  = new BitsAlias[NSETS];
+    for( int i=0; i<NSETS; i++ ) {
+      int[] bs = new int[2+r.nextInt(3)];
+      for( int j=0; j<bs.length; j++ ) bs[j] = aliases[r.nextInt(NALIAS)];
+      _sparse[i] = BitsAlias.NZERO.make(bs);
+      int lo = r.nextInt(NALIAS/2);
+      int[] ds = new int[NALIAS/2];
+      for( int j=0; j<ds.length; j++ ) ds[j] = aliases[lo+j];
+      _dense[i] = BitsAlias.NZERO.make(ds);
+    }
+  }
+
+  @Benchmark public BitsAlias meet_sparse() {
+    int i = _i++;
+    return _sparse[i & (NSETS-1)].meet(_sparse[(i>>8) & (NSETS-1)]);
+  }
+  @Benchmark public BitsAlias meet_dense() {
+    int i = _i++;
+    return _dense[i & (NSETS-1)].meet(_dense[(i>>8) & (NSETS-1)]);
+  }
+  @Benchmark public BitsAlias meet_mixed() {
+    int i = _i++;
+    return _sparse[i & (NSETS-1)].meet(_dense[(i>>8) & (NSETS-1)]);
+  }
+}
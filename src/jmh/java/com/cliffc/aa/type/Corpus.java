@@ -0,0 +1,68 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.HM.HM;
+import com.cliffc.aa.util.Ary;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Shared benchmark corpus: the types a real compile makes.  Runs a recursive
+// list and tree program through HM and GCP, then snapshots the intern table.
+// Built once per benchmark JVM; every benchmark draws from the same seeded
+// corpus so runs are comparable.
+final class Corpus {
+  // Recursive map over lists and trees, with int, string and float
+  // functions; GCP approximates the recursive results with cyclic structs.
+  static final String PROG = """
+map = { fcn lst -> (if lst @{ n1=(map fcn lst.n0), v1=(fcn lst.v0) } 0) };
+tmap = { fcn t -> (if t @{ l=(tmap fcn t.l), r=(tmap fcn t.r), v=(fcn t.v) } 0) };
+l2 = @{ n0=@{ n0=0, v0=3 }, v0=5 };
+t2 = @{ l=@{ l=0, r=0, v=1 }, r=0, v=2 };
+(triple (map dec l2) (map str l2) (tmap factor t2))
+""";
+
+  static final Type[] TYPES;            // Every interned type, in uid order
+  static final TypeStruct[] STRUCTS;    // Every struct
+  static final TypeMemPtr[] PTRS;       // Every pointer to a struct
+  static final TypeMem[] MEMS;          // Every memory with some struct alias
+
+  static {
+    Object dummy = TypeStruct.TYPES;    // <clinit> the primitives
+    HM.reset();
+    HM.hm(PROG,0,true,true);
+    Type[] ts = Type.intern_all();
+    Arrays.sort(ts,(a,b) -> Integer.compare(a._uid,b._uid));
+    TYPES = ts;
+    Ary<TypeStruct> structs = new Ary<>(TypeStruct.class);
+    Ary<TypeMemPtr> ptrs = new Ary<>(TypeMemPtr.class);
+    Ary<TypeMem> mems = new Ary<>(TypeMem.class);
+    for( Type t : ts ) {
+      if( t instanceof TypeStruct ) structs.push((TypeStruct)t);
+      if( t instanceof TypeMemPtr && ((TypeMemPtr)t)._obj instanceof TypeStruct ) ptrs.push((TypeMemPtr)t);
+      if( t instanceof TypeMem && ((TypeMem)t).len() > BitsAlias.REC+1 ) mems.push((TypeMem)t);
+    }
+    STRUCTS = structs.asAry();
+    PTRS    = ptrs   .asAry();
+    MEMS    = mems   .asAry();
+  }
+
+  static Random rand() { return new Random(0x5eedL); }
+  static <T> T pick( Random r, T[] ts ) { return ts[r.nextInt(ts.length)]; }
+
+  // Random pairs from the corpus whose meet succeeds; a few corners of the
+  // lattice are still unimplemented.
+  static Type[][] pairs( Random r, int n ) {
+    Type[] as = new Type[n], bs = new Type[n];
+    for( int i=0; i<n; ) {
+      Type a = pick(r,TYPES), b = pick(r,TYPES);
+      try { a.meet(b); a.dual().meet(b.dual()); }
+      catch( Throwable e ) { Type.rmeet_reset(); continue; }
+      as[i] = a;  bs[i++] = b;
+    }
+    return new Type[][]{as,bs};
+  }
+
+  static String str() {
+    return "corpus: "+TYPES.length+" types, "+STRUCTS.length+" structs, "+PTRS.length+" ptrs, "+MEMS.length+" mems";
+  }
+}
@@ -0,0 +1,45 @@
+package com.cliffc.aa.type;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cyclic.install on a recursive list struct, C:@{v:t; n:*[a]C?}.  The "hit"
+// variant rebuilds the same cycle, so the install minimizes and then finds the
+// prior interned copy.  The "new" variant changes the element type each call,
+// so every install duals and interns a new cycle.
+//
+// Struct hashes leave out the field types (because recursion), so all these
+// lists share a hash and the intern lookup probes past every live one.  The
+// cycles are only weakly interned; a GC between iterations drops them, but
+// within an iteration "new" slows as they pile up.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class CyclicBench {
+  private BitsAlias _aliases;
+  private int _cnt;
+
+  @Setup public void setup() {
+    Object dummy = Corpus.TYPES; // Build the alias tree
+    _aliases = BitsAlias.make0(BitsAlias.new_alias(BitsAlias.REC)).meet_nil();
+  }
+
+  @Setup(Level.Iteration) public void gc() { System.gc(); }
+
+  private TypeStruct list( Type elem ) {
+    TypeFld v = TypeFld.make("v",elem);
+    Type.rmeet_inc();           // Nothing interns until the cycle closes
+    TypeFld n = TypeFld.malloc("n");
+    TypeStruct ts = TypeStruct.malloc("",false,false,n,v);
+    n.setX(TypeMemPtr.make(_aliases,ts));
+    Type.rmeet_dec();
+    return ts.install();
+  }
+
+  @Benchmark public TypeStruct install_hit() { return list(TypeInt.INT64); }
+  @Benchmark public TypeStruct install_new() { return list(TypeInt.con(_cnt++)); }
+}
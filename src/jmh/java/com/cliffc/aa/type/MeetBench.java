@@ -0,0 +1,53 @@
+package com.cliffc.aa.type;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Meet, dual and isa over random corpus pairs.  The "hit" variants cycle over
+// a few pairs, so every call after the first lap is a MeetCache hit.  The
+// "miss" variants run with a tiny cache and cycle over many pairs, so every
+// call computes the meet.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class MeetBench {
+  private static final int HOT  = 1<< 6; // Pairs in the hit set
+  private static final int COLD = 1<<12; // Pairs in the miss set
+  private Type[] _as, _bs;
+  private int _i;
+
+  @Setup public void setup() {
+    Type[][] ps = Corpus.pairs(Corpus.rand(),COLD);
+    _as = ps[0];  _bs = ps[1];
+  }
+
+  @Benchmark public Type meet_hit() {
+    int i = _i++ & (HOT-1);
+    return _as[i].meet(_bs[i]);
+  }
+
+  @Benchmark @Fork(value=1, jvmArgsAppend="-Daa.meet_cache=16")
+  public Type meet_miss() {
+    int i = _i++ & (COLD-1);
+    return _as[i].meet(_bs[i]);
+  }
+
+  @Benchmark public Type dual() {
+    return _as[_i++ & (COLD-1)].dual();
+  }
+
+  @Benchmark public boolean isa_hit() {
+    int i = _i++ & (HOT-1);
+    return _as[i].isa(_bs[i]);
+  }
+
+  @Benchmark @Fork(value=1, jvmArgsAppend={"-Daa.meet_cache=16","-Daa.isa_cache=16"})
+  public boolean isa_miss() {
+    int i = _i++ & (COLD-1);
+    return _as[i].isa(_bs[i]);
+  }
+}
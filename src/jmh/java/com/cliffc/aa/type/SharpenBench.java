@@ -0,0 +1,51 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.util.Ary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// TypeMem.sharpen of corpus pointers against corpus memories.  The "hit"
+// variant cycles over a few pairs, and hits the SharpCache.  The "miss" variant
+// runs with a tiny SharpCache and cycles over many pairs.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class SharpenBench {
+  private static final int HOT  = 1<< 4;
+  private static final int COLD = 1<<10;
+  private TypeMem[] _mems;
+  private TypeMemPtr[] _dulls;
+  private int _i;
+
+  @Setup public void setup() {
+    Random r = Corpus.rand();
+    Ary<TypeMem> mems = new Ary<>(TypeMem.class);
+    Ary<TypeMemPtr> dulls = new Ary<>(TypeMemPtr.class);
+    for( int i=0; i<COLD*16 && mems.len()<COLD; i++ ) {
+      TypeMem mem = Corpus.pick(r,Corpus.MEMS);
+      TypeMemPtr dull = Corpus.pick(r,Corpus.PTRS).simple_ptr();
+      try { mem.sharpen(dull); }
+      catch( Throwable e ) { Type.rmeet_reset(); continue; }
+      mems.push(mem);  dulls.push(dull);
+    }
+    // Fill out the cold set by repeating, if the corpus is small
+    for( int i=0; mems.len()<COLD; i++ ) { mems.push(mems.at(i));  dulls.push(dulls.at(i)); }
+    _mems = mems.asAry();  _dulls = dulls.asAry();
+  }
+
+  @Benchmark public TypeMemPtr sharpen_hit() {
+    int i = _i++ & (HOT-1);
+    return _mems[i].sharpen(_dulls[i]);
+  }
+
+  @Benchmark @Fork(value=1, jvmArgsAppend="-Daa.sharp_cache=8")
+  public TypeMemPtr sharpen_miss() {
+    int i = _i++ & (COLD-1);
+    return _mems[i].sharpen(_dulls[i]);
+  }
+}
@@ -0,0 +1,49 @@
+package com.cliffc.aa.type;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Types.hash_cons of small Type arrays, as made by tuples and function
+// signatures.  The "hit" variant re-interns arrays of corpus types that are
+// already interned, and the duplicate goes back to the free pool.  The "miss"
+// variant puts a fresh integer constant in each array; "int_con" times just
+// making that constant, to subtract out.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypesBench {
+  private static final int NARYS = 1<<8;
+  private Type[][] _tss;
+  private int _i, _cnt;
+
+  @Setup public void setup() {
+    Random r = Corpus.rand();
+    _tss = new Type[NARYS][];
+    for( int i=0; i<NARYS; i++ ) {
+      Type[] ts = Types.get(2+r.nextInt(4));
+      for( int j=0; j<ts.length; j++ ) ts[j] = Corpus.pick(r,Corpus.TYPES);
+      _tss[i] = Types.hash_cons(ts);
+    }
+  }
+
+  private Type[] copy( Type[] src ) {
+    Type[] ts = Types.get(src.length);
+    System.arraycopy(src,0,ts,0,src.length);
+    return ts;
+  }
+
+  @Benchmark public Type[] hash_cons_hit() {
+    return Types.hash_cons(copy(_tss[_i++ & (NARYS-1)]));
+  }
+  @Benchmark public Type[] hash_cons_miss() {
+    Type[] ts = copy(_tss[_i++ & (NARYS-1)]);
+    ts[0] = TypeInt.con(_cnt++);
+    return Types.hash_cons(ts);
+  }
+  @Benchmark public Type int_con() { return TypeInt.con(_cnt++); }
+}
@@ -1,8 +1,10 @@
 package com.cliffc.aa;
 
 import com.cliffc.aa.node.*;
+import com.cliffc.aa.type.BitsFun;
 import com.cliffc.aa.util.Ary;
 import com.cliffc.aa.util.VBitSet;
+import com.cliffc.aa.util.Work;
 
 import static com.cliffc.aa.AA.unimpl;
 
@@ -150,11 +152,40 @@ public abstract class Combo {
   // can lift the address - I just want to be able to prove it from Combo.
   public static boolean CHECK_FOR_NOT_NIL = false;
 
-  public static void opto() {
+  // Worklist pops in the last opto, for comparing worklist orders; and the
+  // transfer-function calls per analysis.
+  public static int CNT, VALUE_CNT, LIVE_CNT, UNIFY_CNT, RESOLVE_CNT;
+
+  public static void opto() { opto(false); }
+
+  // Incremental Combo, e.g. for the REPL after each new line.  Nodes settled
+  // by a prior Combo keep their types and type-vars as the starting point;
+  // only Nodes made since, their neighbors and the top-level escapes start on
+  // the worklist.  A session with many settled definitions does not redo them.
+  public static void opto_incremental() { opto(true); }
+
+  private static void opto( boolean incremental ) {
     Env.GVN._opt_mode = GVNGCM.Mode.Opto;
 
-    // General worklist algorithm
-    WorkNode work = new WorkNode("Combo",false) { @Override public Node apply(Node n) { throw unimpl(); } };
+    // General worklist algorithm, tracking which analyses each queued Node
+    // must redo.  Nodes added to 'work' redo all analyses.  Nodes added to
+    // 'hm' had an H-M change nearby, and redo unification and their value
+    // (for the HM->GCP lifts); they share the 'work' queue and order, marked
+    // in 'hmonly' until a plain add clears the mark.  Nodes on 'live' had a
+    // use change liveness, and redo only liveness, plus their value if it
+    // reads more than its inputs (Node.value_on_live).  A Node on both queues
+    // redoes the union.  Progress in one analysis dirties the others on the
+    // same Node.  With GVNGCM.DO_RPO, 'work' pops in reverse postorder, and
+    // 'live' in postorder after it.
+    Work.Policy policy = GVNGCM.DO_RPO ? Work.Policy.RPO : Work.Policy.FIFO;
+    VBitSet hmonly = new VBitSet();
+    WorkNode work = new WorkNode("Combo",false,policy,WorkNode.RPO) {
+        @Override public Node add(Node n) { if( n!=null ) hmonly.clear(n._uid); return super.add(n); }
+        @Override public Node apply(Node n) { throw unimpl(); } };
+    WorkNode hm   = new WorkNode("HM"   ,false) {
+        @Override public Node add(Node n) { if( n!=null && !work.on(n) ) { work.add(n); hmonly.set(n._uid); } return n; }
+        @Override public Node apply(Node n) { throw unimpl(); } };
+    WorkNode live = new WorkNode("Live" ,false,policy,WorkNode.PO ) { @Override public Node apply(Node n) { throw unimpl(); } };
     // Collect unresolved calls, and verify they get resolved.
     WorkNode ambi = new WorkNode("Ambi" ,false) { @Override public Node apply(Node n) { throw unimpl(); } };
     // Collect old fdx of resolved calls; during resolution they go unused
@@ -164,37 +195,66 @@ public abstract class Combo {
 
     // Set all values to ANY and lives to DEAD, their most optimistic types.
     // Set all type-vars to Leafs.
-    Env.START.walk_initype(work);
+    if( incremental ) {
+      // Only new Nodes are reset; settled functions keep their non-gen sets
+      Node.RESET_VISIT.clear();
+      Env.START.walk_initype_new(work);
+      seed_escapes(work);
+    } else {
+      Env.START.walk_initype(work);
+      for( FunNode fun : FunNode.FUNS ) if( fun!=null ) fun._nongen=null; // Clear old stuff
+    }
     // Make the non-gen set in a pre-pass
-    for( FunNode fun : FunNode.FUNS ) if( fun!=null ) fun._nongen=null; // Clear old stuff
-    for( FunNode fun : FunNode.FUNS ) if( fun!=null && !fun.is_dead() ) fun.prep_nongen();// Make new
+    for( FunNode fun : FunNode.FUNS ) if( fun!=null && !fun.is_dead() && fun._nongen==null ) fun.prep_nongen();// Make new
     assert Env.START.more_flow(work,false)==0; // Initial conditions are correct
-    HM_IS_HIGH=true;
+    // The settled graph is past phase 2, so an incremental pass starts there
+    HM_IS_HIGH=!incremental;
 
     // Repeat; if we remove some ambiguous choices, and keep falling until the
     // graph stabilizes without ambiguity.
-    int cnt=0;                  // Debug counter
-    while( !work.isEmpty() || HM_IS_HIGH ) {
+    CNT=VALUE_CNT=LIVE_CNT=UNIFY_CNT=RESOLVE_CNT=0; // Debug counters
+    while( !work.isEmpty() || !live.isEmpty() || HM_IS_HIGH ) {
+      if( GVNGCM.DO_RPO ) {     // Call graph may have been rewired
+        Node.number_rpo(Env.START);
+        work.reorder();  live.reorder();
+      }
 
       // Analysis phase.
       // Work down list until all reachable nodes types quit falling
-      Node n;
-      while( (n=work.pop()) != null ) {
-        cnt++; assert cnt < 100000; // Infinite loop check
+      Node n;  WorkNode w;
+      while( (n=(w=work).pop()) != null || (n=(w=live).pop()) != null ) {
+        CNT++; assert CNT < 100000; // Infinite loop check
+        // Dirty analyses are the union over the queues holding n
+        boolean dhm = w==work, dres = dhm && !hmonly.get(n._uid);
+        boolean dliv = dres || w==live || live.del(n);
+        hmonly.clear(n._uid);
         if( n.is_dead() ) continue; // Can be dead functions after removing ambiguous calls
 
-        // Forwards flow
-        n.combo_forwards(work);
+        // Forwards flow.  A new value can change this Node's liveness
+        // (constants need no inputs), unification (no HM on untyped code) and
+        // resolution.
+        if( dhm || n.value_on_live() ) {
+          VALUE_CNT++;
+          if( n.combo_forwards(work) ) dliv = dhm = dres = true;
+        }
 
-        // Backwards flow
-        n.combo_backwards(work);
+        // Backwards flow.  Coming alive allows unification and resolution.
+        if( dliv ) {
+          LIVE_CNT++;
+          if( n.combo_backwards(live,work) ) dhm = dres = true;
+        }
 
         // H-M unification
-        if( DO_HM )
-          n.combo_unify(work);
+        if( DO_HM && dhm ) {
+          UNIFY_CNT++;
+          n.combo_unify(hm);
+        }
 
         // Check for resolving an unresolved call
-        n.combo_resolve(ambi);
+        if( dres ) {
+          RESOLVE_CNT++;
+          n.combo_resolve(ambi);
+        }
 
         // Very expensive assert: everything that can make progress is on worklist
         //assert Env.START.more_flow(work,false)==0;
@@ -225,10 +285,9 @@ public abstract class Combo {
       // is in error.  Force them to act as-if called by all choices and finish
       // off the combined algorithm.
       if( work.isEmpty() && !HM_IS_HIGH )
-        //for( Node call : ambi._work )
-        //  if( !((CallNode)call)._not_resolved_by_gcp )
-        //    ((CallNode)work.add(call))._not_resolved_by_gcp = true;
-        throw unimpl("changing worklist impl");
+        for( Node call : ambi )
+          if( !((CallNode)call)._not_resolved_by_gcp )
+            ((CallNode)work.add(call))._not_resolved_by_gcp = true;
     }
 
     assert Env.START.more_flow(work,false)==0; // Final conditions are correct
@@ -237,17 +296,33 @@ public abstract class Combo {
     Env.START.walk_opt(new VBitSet());
   }
 
+  // The new line may escape more functions at the top level, wiring them to
+  // the Scope for unknown callers.  Revisit the Scope and the escaping
+  // functions and their pointers.
+  private static void seed_escapes(WorkNode work) {
+    ScopeNode scope = Env.FILE._scope;
+    work.add(scope);
+    BitsFun escs = scope.top_escapes();
+    if( escs==BitsFun.FULL ) return; // Error exit, or not run Opto yet
+    for( int fidx : escs ) {
+      FunNode fun = FunNode.find_fidx(fidx);
+      if( fun==null || fun.is_dead() ) continue;
+      work.add(fun);
+      RetNode ret = fun.ret();
+      if( ret!=null ) { work.add(ret); work.add(ret._uses); } // FunPtrs use the Ret
+    }
+  }
+
   // Resolve ambiguous calls, and put on the worklist to make more progress.
   private static void remove_ambi(WorkNode ambi, WorkNode work, Ary<Node> oldfdx) {
     assert work.isEmpty();
-    //for( int i=0; i<ambi.len(); i++ ) {
-    //  CallNode call = (CallNode)ambi.at(i);
-    //  if( call.remove_ambi(oldfdx) ) {
-    //    ambi.del(i--);
-    //    work.add(call);
-    //    work.add(call.cepi());
-    //  }
-    //}
-    throw unimpl("changing worklist impl");
+    for( Node n : ambi ) {
+      CallNode call = (CallNode)n;
+      if( call.remove_ambi(oldfdx) ) {
+        ambi.del(call);
+        work.add(call);
+        work.add(call.cepi());
+      }
+    }
   }
 }
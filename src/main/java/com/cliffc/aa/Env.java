@@ -225,6 +225,7 @@ public class Env implements AutoCloseable {
     BitsAlias.init0();
     BitsFun  .init0();
     BitsRPC  .init0();
+    Type     .init0();    // Pin the primitive Types
   }
 
   // Reset all global statics for the next parse.  Useful during testing when
@@ -243,7 +244,7 @@ public class Env implements AutoCloseable {
     Node.RESET_VISIT.clear();
     Env.START.walk_reset(Env.GVN._work_flow);  // Clean out any wired prim calls
     Env.GVN.iter(GVNGCM.Mode.Parse);   // Clean out any dead; reset prim types
-    for( Node n : Node.VALS.keySet() ) // Assert no leftover bits from the prior compilation
+    for( Node n : Node.VALS ) // Assert no leftover bits from the prior compilation
       assert n._uid < Node._INIT0_CNT; //
     Node      .reset_to_init0();
     GVN       .reset_to_init0();
@@ -251,6 +252,7 @@ public class Env implements AutoCloseable {
     BitsAlias .reset_to_init0();
     BitsFun   .reset_to_init0();
     BitsRPC   .reset_to_init0();
+    Type      .reset_to_init0();
     // Reset aliases declared as Displays
     ALL_DISPLAYS = LEX_DISPLAYS = BitsAlias.make0(STK_0._alias);
   }
@@ -1,5 +1,9 @@
 package com.cliffc.aa;
 
+import com.cliffc.aa.node.Node;
+
+import java.util.LinkedHashMap;
+
 /** an implementation of language AA
  */
 
@@ -22,9 +26,22 @@ public abstract class Exec {
     return te;
   }
 
+  // Per-phase stats of the last go(), in phase order: wall nanos, the Node
+  // uid high-water mark, and the phase's worklist counter (cumulative GVN
+  // iterations, or this Combo's pops).  For compile-time scaling studies.
+  public static final LinkedHashMap<String,long[]> PHASES = new LinkedHashMap<>();
+  private static long T0;
+  private static void phase( String name, int work ) {
+    long t = System.nanoTime();
+    PHASES.put(name,new long[]{t-T0,Node.uid_cnt(),work});
+    T0 = t;
+  }
+
   // Parse and type a string.  Can be nested.  In theory, will be eval() someday.
   // In theory, can keep the result node and promote them for the REPL.
   public static TypeEnv go( Env top, String src, String str ) { // Execute string
+    PHASES.clear();
+    T0 = System.nanoTime();
     Env e = Env.FILE = new Env(top,null,false,top._scope.ctrl(),top._scope.mem());
 
     // Parse a program
@@ -34,27 +51,38 @@ public abstract class Exec {
     e._scope.keep();
     Env.GVN.add_flow_uses(e._scope);// Post-parse, revisit top-level called functions
     e.close();                // No more fields added to the parse scope
-    
+    phase("Parse",0);
+
     // Pessimistic optimizations; might improve error situation
     Env.GVN.iter(GVNGCM.Mode.PesiNoCG);
-    
+    phase("Iter PesiNoCG",GVNGCM.ITER_CNT);
+
     // Remove all the things kept alive until Combo runs
     Env.pre_combo();
     Combo.CHECK_FOR_NOT_NIL = false; // See Combo for an explanation
     Combo.opto();                    // Global Constant Propagation and Hindley-Milner Typing
-    
+    phase("Combo 1",Combo.CNT);
+
     Env.GVN.iter(GVNGCM.Mode.PesiCG);// Re-check all ideal calls now that types have been maximally lifted
-    
+    phase("Iter PesiCG 1",GVNGCM.ITER_CNT);
+
     Combo.CHECK_FOR_NOT_NIL = true;  // See Combo for an explanation
     Combo.opto();                    // Global Constant Propagation and Hindley-Milner Typing
-    
+    phase("Combo 2",Combo.CNT);
+
     Env.GVN.iter(GVNGCM.Mode.PesiCG);// Re-check all ideal calls now that types have been maximally lifted
-    
+    phase("Iter PesiCG 2",GVNGCM.ITER_CNT);
+
     Combo.CHECK_FOR_NOT_NIL = false; // Reset
+    GCM gcm = GCM.schedule();        // Schedule into basic blocks
+    phase("GCM",0);
     //assert Type.intern_check();
     Env.FILE=null;
 
-    return e.gather_errors(err);
+    TypeEnv te = e.gather_errors(err);
+    te._gcm = gcm;
+    phase("Errors",0);
+    return te;
   }
 
 
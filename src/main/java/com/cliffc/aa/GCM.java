@@ -0,0 +1,366 @@
+package com.cliffc.aa;
+
+import com.cliffc.aa.node.*;
+import com.cliffc.aa.util.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Global Code Motion: schedule the final graph into basic blocks.
+//
+// Runs after the last GVN pass.  START (for the top-level code) and every
+// FunNode roots its own CFG: the is_CFG() Nodes reached from it, without
+// following call edges into other functions nor out of RetNodes.  Per CFG: a
+// dominator tree (Cooper, Harvey & Kennedy) and loop nesting depths, from the
+// back edges into any Region dominating its predecessor.
+//
+// Phis, Parms and projections from CFG Nodes are pinned at their control.
+// All other data Nodes are placed Click-style: schedule-early finds the
+// deepest placement of the inputs, schedule-late the dominator LCA of the
+// uses, and the Node goes at the latest point between them in the shallowest
+// loop.  Loop invariants hoist out of loops, and values needed only down one
+// path sink into it.  Data Nodes used from more than one function (constants,
+// function pointers) are globals, and are not placed in any function.
+//
+// A data Node "placed at" a CFG Node runs after it and before its CFG
+// successor.  Memory is SSA values here, so there are no anti-dependences.
+public class GCM {
+
+  // A basic block: a chain of CFG Nodes, starting at a Region or at a branch
+  // target, with the data Nodes placed along it.
+  public static class Block {
+    public final int _idx;      // Reverse postorder, within its function
+    public final Node _head;    // First CFG Node
+    public Block _idom;         // Immediate dominator; null for the entry
+    public int _loop;           // Loop nesting depth
+    public final Ary<Node> _nodes = new Ary<>(Node.class); // CFG and data, in order
+    Block( int idx, Node head ) { _idx=idx; _head=head; }
+    @Override public String toString() {
+      SB sb = new SB().p("B").p(_idx);
+      if( _idom!=null ) sb.p(" idom B").p(_idom._idx);
+      if( _loop>0 ) sb.p(" loop ").p(_loop);
+      sb.p(":");
+      for( Node n : _nodes ) sb.p(' ').p(n._uid).p(n.xstr());
+      return sb.toString();
+    }
+  }
+
+  // Blocks per function entry (START or a FunNode), in reverse postorder
+  public final HashMap<Node,Ary<Block>> _funs = new HashMap<>();
+  // Data Nodes used from several functions, inputs first
+  public final Ary<Node> _globals = new Ary<>(Node.class);
+
+  private static final int UNKNOWN=-3, GLOBAL=-2, NONE=-1; // Else an index into _entries
+  private final Ary<Node> _entries = new Ary<>(Node.class);
+  private final Ary<Node> _all = new Ary<>(Node.class); // Every Node reached
+  private final int[] _fun;     // By uid: function index, GLOBAL or NONE (dead/unreached)
+  private final int[] _rpo;     // By uid, CFG: reverse postorder in its function
+  private final int[] _nsucc;   // By uid, CFG: CFG successors in its function
+  private final int[] _dom;     // By uid, CFG: dominator tree depth
+  private final int[] _loop;    // By uid, CFG: loop nesting depth
+  private final Node[] _idom;   // By uid, CFG: immediate dominator; the entry is its own
+  private final Node[] _early;  // By uid, data: schedule-early
+  private final Node[] _sched;  // By uid, data: final placement
+  private final Block[] _blocks;// By uid: block holding the Node
+
+  // Schedule the whole program
+  public static GCM schedule() { return new GCM(Env.START); }
+
+  // Schedule everything connected to root; root and all FunNodes are entries
+  GCM( Node root ) {
+    _entries.push(root);
+    VBitSet visit = new VBitSet();
+    Ary<Node> work = new Ary<>(Node.class);
+    work.push(root);  visit.set(root._uid);
+    int max=0;
+    while( !work.isEmpty() ) {
+      Node n = work.pop();
+      _all.push(n);
+      max = Math.max(max,n._uid);
+      if( n instanceof FunNode && n!=root ) _entries.push(n);
+      for( Node def : n._defs ) if( def!=null && !visit.tset(def._uid) ) work.push(def);
+      for( Node use : n._uses ) if(              !visit.tset(use._uid) ) work.push(use);
+    }
+    _fun   = new int [max+1];  Arrays.fill(_fun,UNKNOWN);
+    _rpo   = new int [max+1];
+    _nsucc = new int [max+1];
+    _dom   = new int [max+1];
+    _loop  = new int [max+1];
+    _idom  = new Node[max+1];
+    _early = new Node[max+1];
+    _sched = new Node[max+1];
+    _blocks= new Block[max+1];
+
+    for( int f=0; f<_entries._len; f++ )
+      build_cfg(f,_entries.at(f));
+    Ary<Node>[] at = place();
+    for( int f=0; f<_entries._len; f++ )
+      emit_fun(f,at);
+    VBitSet done = new VBitSet();
+    for( Node n : _all )
+      if( _fun[n._uid]==GLOBAL ) emit_global(n,done);
+  }
+
+  public Ary<Block> blocks( Node entry ) { return _funs.get(entry); }
+  // Block holding n, or null for globals and dead Nodes
+  public Block block( Node n ) { return n._uid < _blocks.length ? _blocks[n._uid] : null; }
+
+  // ---------------------------------------------------------------------------
+  // CFG successor within the function: not into another function, and not out
+  // of a return.
+  private static boolean is_succ( Node n, Node use ) {
+    if( !use.is_CFG() || use instanceof FunNode || use instanceof CEProjNode || n instanceof RetNode ) return false;
+    if( !(use instanceof RegionNode) ) return use.in(0)==n;
+    for( int i=1; i<use.len(); i++ ) if( use.in(i)==n ) return true;
+    return false;
+  }
+  // CFG predecessors within function f
+  private Ary<Node> preds( Node n, int f, Ary<Node> ps ) {
+    ps.clear();
+    if( n==_entries.at(f) ) return ps;
+    if( n instanceof RegionNode ) {
+      for( int i=1; i<n.len(); i++ )
+        if( n.in(i)!=null && _fun[n.in(i)._uid]==f ) ps.push(n.in(i));
+    } else if( n.in(0)!=null && _fun[n.in(0)._uid]==f ) ps.push(n.in(0));
+    return ps;
+  }
+
+  private void build_cfg( int f, Node entry ) {
+    // Reverse postorder by iterative DFS; claims the CFG Nodes for f
+    Ary<Node> post = new Ary<>(Node.class), stk = new Ary<>(Node.class);
+    AryInt idxs = new AryInt();
+    _fun[entry._uid] = f;
+    stk.push(entry);  idxs.push(0);
+    while( !stk.isEmpty() ) {
+      Node n = stk.last();
+      int i = idxs.last();
+      if( i < n._uses._len ) {
+        idxs.set(idxs._len-1,i+1);
+        Node use = n._uses.at(i);
+        if( is_succ(n,use) && _fun[use._uid]==UNKNOWN ) { _fun[use._uid]=f; stk.push(use); idxs.push(0); }
+      } else {
+        post.push(stk.pop());  idxs.pop();
+      }
+    }
+    Ary<Node> rpo = new Ary<>(Node.class);
+    for( int i=post._len-1; i>=0; i-- ) { _rpo[post.at(i)._uid]=rpo._len; rpo.push(post.at(i)); }
+
+    // Distinct successors; a use list can hold the same successor twice
+    Ary<Node> ps = new Ary<>(Node.class);
+    for( Node b : rpo ) {
+      preds(b,f,ps);
+      for( int i=0; i<ps._len; i++ )
+        if( ps.find(ps.at(i))==i ) _nsucc[ps.at(i)._uid]++;
+    }
+
+    // Dominators
+    _idom[entry._uid] = entry;
+    boolean progress = true;
+    while( progress ) {
+      progress = false;
+      for( int i=1; i<rpo._len; i++ ) {
+        Node b = rpo.at(i), idom = null;
+        for( Node p : preds(b,f,ps) )
+          if( _idom[p._uid]!=null )
+            idom = idom==null ? p : intersect(p,idom);
+        if( idom!=null && _idom[b._uid]!=idom ) { _idom[b._uid]=idom; progress=true; }
+      }
+    }
+    for( int i=1; i<rpo._len; i++ ) {
+      Node b = rpo.at(i);
+      if( _idom[b._uid]==null ) _idom[b._uid]=entry; // Only via an irreducible or foreign edge
+      _dom[b._uid] = _dom[_idom[b._uid]._uid]+1;
+    }
+
+    // Loops: a Region dominating one of its predecessors heads a loop, whose
+    // body is everything reaching that back edge without passing the head.
+    for( Node h : rpo ) {
+      if( !(h instanceof RegionNode) ) continue;
+      VBitSet body = null;
+      Ary<Node> work = new Ary<>(Node.class);
+      for( Node p : preds(h,f,ps) )
+        if( dominates(h,p) ) {
+          if( body==null ) { body = new VBitSet(); body.set(h._uid); _loop[h._uid]++; }
+          work.push(p);
+        }
+      Ary<Node> ps2 = new Ary<>(Node.class);
+      while( !work.isEmpty() ) {
+        Node x = work.pop();
+        if( body.tset(x._uid) ) continue;
+        _loop[x._uid]++;
+        for( Node p : preds(x,f,ps2) ) work.push(p);
+      }
+    }
+
+    // Blocks: chains of CFG Nodes, broken at Regions and branches
+    Ary<Block> blocks = new Ary<>(Block.class);
+    for( Node n : rpo ) {
+      Node p = n==entry || n instanceof RegionNode ? null : n.in(0);
+      Block b;
+      if( p==null || _fun[p._uid]!=f || _nsucc[p._uid]!=1 ) {
+        b = blocks.push(new Block(blocks._len,n));
+        b._loop = _loop[n._uid];
+        if( n!=entry ) b._idom = _blocks[_idom[n._uid]._uid];
+      } else b = _blocks[p._uid];
+      _blocks[n._uid] = b;
+    }
+    _funs.put(entry,blocks);
+  }
+
+  private Node intersect( Node a, Node b ) {
+    while( a!=b ) {
+      while( _rpo[a._uid] > _rpo[b._uid] ) a = _idom[a._uid];
+      while( _rpo[b._uid] > _rpo[a._uid] ) b = _idom[b._uid];
+    }
+    return a;
+  }
+  private boolean dominates( Node a, Node b ) {
+    while( _dom[b._uid] > _dom[a._uid] ) b = _idom[b._uid];
+    return a==b;
+  }
+  private Node lca( Node a, Node b ) {
+    if( a==null ) return b;
+    while( _dom[a._uid] > _dom[b._uid] ) a = _idom[a._uid];
+    while( _dom[b._uid] > _dom[a._uid] ) b = _idom[b._uid];
+    while( a!=b ) { a = _idom[a._uid]; b = _idom[b._uid]; }
+    return a;
+  }
+
+  // ---------------------------------------------------------------------------
+  private static boolean is_pinned( Node n ) {
+    return n instanceof PhiNode || n instanceof ParmNode ||
+      (n instanceof ProjNode && n.in(0)!=null && n.in(0).is_CFG());
+  }
+
+  // Function using a data Node: the one function all its uses are in, else
+  // GLOBAL, or NONE if it has no live uses.
+  private int fun( Node n ) {
+    int f = _fun[n._uid];
+    if( f!=UNKNOWN ) return f;
+    if( n.is_CFG() ) return _fun[n._uid]=NONE; // Not reached from any entry
+    if( is_pinned(n) ) return _fun[n._uid] = n.in(0)==null ? NONE : fun(n.in(0));
+    _fun[n._uid] = NONE;        // Cycle guard
+    for( Node use : n._uses ) {
+      int fu = fun(use);
+      if( fu==NONE || fu==f ) continue;
+      f = f==UNKNOWN ? fu : GLOBAL;
+    }
+    return _fun[n._uid] = f==UNKNOWN ? NONE : f;
+  }
+
+  // Placement of def as an input to a Node in f; null if not in f
+  private Node def_pos( Node def, int f ) {
+    if( fun(def)!=f ) return null;
+    if( def.is_CFG() ) return def;
+    return is_pinned(def) ? def.in(0) : early(def);
+  }
+
+  // Deepest placement of all inputs in the same function
+  private Node early( Node n ) {
+    Node e = _early[n._uid];
+    if( e!=null ) return e;
+    int f = _fun[n._uid];
+    e = _early[n._uid] = _entries.at(f); // Also a cycle guard
+    for( Node def : n._defs ) {
+      Node p = def==null ? null : def_pos(def,f);
+      if( p!=null && _dom[p._uid] > _dom[e._uid] ) e = p;
+    }
+    return _early[n._uid] = e;
+  }
+
+  // Final placement: latest in the shallowest loop, between early and the LCA
+  // of the uses.
+  private Node sched( Node n ) {
+    Node s = _sched[n._uid];
+    if( s!=null ) return s;
+    int f = _fun[n._uid];
+    Node e = _sched[n._uid] = early(n); // Also a cycle guard
+    Node lca = null;
+    for( Node use : n._uses ) {
+      if( fun(use)!=f ) continue;
+      if( use instanceof PhiNode ) {  // Needed at the end of the matching Region input
+        Node r = use.in(0);
+        for( int i=1; i<use.len() && i<r.len(); i++ )
+          if( use.in(i)==n && r.in(i)!=null && _fun[r.in(i)._uid]==f )
+            lca = lca(lca,r.in(i));
+      } else if( use.is_CFG() ) {     // Needed before the CFG use
+        if( use instanceof RegionNode ) continue;
+        Node c = use.in(0);
+        lca = lca(lca, c!=null && _fun[c._uid]==f ? c : use);
+      } else if( is_pinned(use) ) {
+        lca = lca(lca,use.in(0));
+      } else {
+        lca = lca(lca,sched(use));
+      }
+    }
+    if( lca==null ) return e;   // No uses needing it; stays early
+    Node best = lca;
+    for( Node x=lca; x!=e; x=_idom[x._uid] ) {
+      if( _idom[x._uid]==x ) { best = e; break; } // Early does not dominate late
+      if( _loop[x._uid] < _loop[best._uid] ) best = x;
+    }
+    if( _loop[e._uid] < _loop[best._uid] ) best = e;
+    return _sched[n._uid] = best;
+  }
+
+  // Data Nodes by the CFG Node they are placed at
+  @SuppressWarnings("unchecked")
+  private Ary<Node>[] place() {
+    Ary<Node>[] at = new Ary[_fun.length];
+    for( Node n : _all ) {
+      if( n.is_CFG() ) continue;
+      int f = fun(n);
+      if( f < 0 ) continue;
+      Node c = is_pinned(n) ? n.in(0) : sched(n);
+      if( at[c._uid]==null ) at[c._uid] = new Ary<>(Node.class);
+      at[c._uid].push(n);
+    }
+    return at;
+  }
+
+  // Fill blocks in order: each CFG Node, then the Nodes pinned to it, then the
+  // Nodes placed at it, inputs first.
+  private void emit_fun( int f, Ary<Node>[] at ) {
+    VBitSet done = new VBitSet();
+    for( Block b : _funs.get(_entries.at(f)) )
+      for( Node c = b._head; c!=null; c = next(c,b) ) {
+        b._nodes.push(c);
+        Ary<Node> ns = at[c._uid];
+        if( ns==null ) continue;
+        for( Node n : ns ) if( is_pinned(n) ) { done.set(n._uid); b._nodes.push(n); _blocks[n._uid]=b; }
+        for( Node n : ns ) emit(b,c,n,done);
+      }
+  }
+  // Next CFG Node in block b after c, or null
+  private Node next( Node c, Block b ) {
+    if( _nsucc[c._uid]!=1 ) return null;
+    for( Node use : c._uses )
+      if( is_succ(c,use) && _blocks[use._uid]==b ) return use;
+    return null;
+  }
+  private void emit( Block b, Node c, Node n, VBitSet done ) {
+    if( done.tset(n._uid) ) return;
+    for( Node def : n._defs )
+      if( def!=null && !def.is_CFG() && !is_pinned(def) && _fun[def._uid]==_fun[n._uid] && _sched[def._uid]==c )
+        emit(b,c,def,done);
+    b._nodes.push(n);
+    _blocks[n._uid] = b;
+  }
+  private void emit_global( Node n, VBitSet done ) {
+    if( done.tset(n._uid) ) return;
+    for( Node def : n._defs )
+      if( def!=null && _fun[def._uid]==GLOBAL ) emit_global(def,done);
+    _globals.push(n);
+  }
+
+  @Override public String toString() {
+    SB sb = new SB();
+    for( Node entry : _entries ) {
+      sb.p(entry._uid).p(entry.xstr()).nl();
+      for( Block b : _funs.get(entry) ) sb.p("  ").p(b.toString()).nl();
+    }
+    sb.p("globals:");
+    for( Node n : _globals ) sb.p(' ').p(n._uid).p(n.xstr());
+    return sb.nl().toString();
+  }
+}
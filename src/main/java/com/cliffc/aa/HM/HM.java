@@ -112,7 +112,7 @@ public class HM {
   static boolean HM_FREEZE;
   static boolean ROOT_FREEZE;
   public static Root hm( String sprog, int rseed, boolean do_hm, boolean do_gcp ) {
-    Type.RECURSIVE_MEET=0;      // Reset between failed tests
+    Type.rmeet_reset();         // Reset between failed tests
     DO_HM  = do_hm ;
     DO_GCP = do_gcp;
 
@@ -238,7 +238,7 @@ public class HM {
       }, (a,b)->null);
   }
 
-  static void reset() {
+  public static void reset() {
     BitsAlias.reset_to_init0();
     BitsFun.reset_to_init0();
     PRIMSYNS.clear();
@@ -1630,7 +1630,7 @@ public class HM {
         if( tstr==null ) {
           // Returning a high version of struct
           if( !ROOT_FREEZE ) return Type.XNSCALR;
-          Type.RECURSIVE_MEET++;
+          Type.rmeet_inc();
           tstr = TypeStruct.malloc("",is_open(),false).add_fld(TypeFld.NO_DISP);
           if( _args!=null )
             for( String id : _args.keySet() )
@@ -1640,9 +1640,9 @@ public class HM {
           if( _args!=null )
             for( String id : _args.keySet() )
               tstr.get(id).setX(arg(id)._as_flow()); // Recursive
-          if( --Type.RECURSIVE_MEET == 0 )
+          if( Type.rmeet_dec() == 0 )
             // Shrink / remove cycle dups.  Might make new (smaller)
-            // TypeStructs, so keep RECURSIVE_MEET enabled.
+            // TypeStructs, so keep rmeet enabled.
             tstr = tstr.install();
         }
         return TypeMemPtr.make(_aliases,tstr);
@@ -2176,7 +2176,7 @@ public class HM {
         if( ts0.above_center() )  return Type.SCALAR;
         TypeStruct ts = WDUPS.get(_uid);
         if( ts != null ) return t; // Recursive, stop cycles
-        Type.RECURSIVE_MEET++;
+        Type.rmeet_inc();
         ts = TypeStruct.malloc("",false,false);
 
         // Add fields.  Common to both are easy, and will be walked (recursive,
@@ -2208,7 +2208,7 @@ public class HM {
             if( get(fld._fld)==null )       // Solo in GCP
               ts.get(fld._fld).setX( jt, fld._order );
         // Close off the recursion
-        if( --Type.RECURSIVE_MEET == 0 )
+        if( Type.rmeet_dec() == 0 )
           ts = ts.install();
         return tmp.make_from(ts);
       }
@@ -1392,7 +1392,7 @@ public class HM9 {
       if( is_struct() ) {
         TypeStruct tstr = ADUPS.get(_uid);
         if( tstr==null ) {
-          Type.RECURSIVE_MEET++;
+          Type.rmeet_inc();
           //TypeFld[] ts = TypeFlds.get(_ids.length+1);
           //ts[0] = TypeFld.NO_DISP;
           //for( int i=0; i<_ids.length; i++ )
@@ -1402,13 +1402,13 @@ public class HM9 {
           //ADUPS.put(_uid,tstr); // Stop cycles
           //for( int i=0; i<_ids.length; i++ )
           //  ts[i+1].setX(args(i)._as_flow()); // Recursive
-          //if( --Type.RECURSIVE_MEET == 0 ) {
+          //if( Type.rmeet_dec() == 0 ) {
           //  // Shrink / remove cycle dups.  Might make new (smaller)
-          //  // TypeStructs, so keep RECURSIVE_MEET enabled.
-          //  Type.RECURSIVE_MEET++;
+          //  // TypeStructs, so keep rmeet enabled.
+          //  Type.rmeet_inc();
           //  tstr = TypeStruct.shrink(tstr.reachable(),tstr);
           //  TypeStruct.UF.clear();
-          //  Type.RECURSIVE_MEET--;
+          //  Type.rmeet_dec();
           //  // Walk the final cyclic structure and intern everything.
           //  tstr.install_cyclic(tstr.reachable());
           //}
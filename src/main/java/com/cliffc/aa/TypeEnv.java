@@ -14,6 +14,7 @@ public class TypeEnv{
   final TypeMem _tmem;
   final TV2 _hmt;
   final ArrayList<ErrMsg> _errs;
+  GCM _gcm;                     // Block schedule of the final graph
   TypeEnv( ScopeNode scope, Type t, TypeStruct formals, TypeMem tmem, TV2 hmt, ArrayList<ErrMsg> errs ) {
     _scope=scope; _t=t; _formals=formals; _tmem=tmem; _hmt=hmt; _errs = errs;
   }
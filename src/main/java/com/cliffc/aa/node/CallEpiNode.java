@@ -371,7 +371,7 @@ public final class CallEpiNode extends Node {
     // and GCP flow type in parallel and create a mapping.  Then walk the
     // output HM type and CCP flow type in parallel, and join output CCP types
     // with the matching input CCP type.
-    if( Combo.DO_HM && opt_mode._CG && err==null ) {
+    if( Combo.DO_HM && opt_mode._CG && err==null && hm_inputs(call) ) {
       // Walk the inputs, building a mapping
       TV2.T2MAP.clear();
       // Walk the display first, skipping through the function pointer to the display
@@ -395,6 +395,15 @@ public final class CallEpiNode extends Node {
 
     return TypeTuple.make(Type.CTRL,tmem3,trez);
   }
+  // Reads the Call's inputs, error state and the argument type-vars
+  @Override public boolean value_on_live() { return true; }
+  // Nodes made by GVN after Combo have no type-var; no lift from them
+  private boolean hm_inputs( CallNode call ) {
+    if( !has_tvar() || !call.fdx().has_tvar() ) return false;
+    for( int i=ARG_IDX; i<call._defs._len-1; i++ )
+      if( !call.in(i).has_tvar() ) return false;
+    return true;
+  }
 
 
   static BitsAlias esc_out( TypeMem tmem, Type trez ) {
@@ -49,8 +49,7 @@ public class DefMemNode extends Node {
     return make_mem(nn._alias,mrg);
   }
   public <N extends Node> N make_mem(int alias, N obj) {
-    TypeObj[] tos0 = TypeMem.MEM.alias2objs();
-    while( _defs._len < tos0.length )
+    while( _defs._len < TypeMem.MEM.len() )
       add_def(Node.con(TypeMem.MEM.at(_defs._len)));
     while( _defs._len <= alias ) this.add_def(null);
     set_def(alias,obj);
@@ -82,6 +82,20 @@ public class FunNode extends RegionNode {
   private byte _cnt_size_inlines; // Count of size-based inlines; prevents infinite unrolling via inlining
   public static int _must_inline; // Used for asserts
 
+  // Cached function body, for inlining decisions: the forwards-reached set,
+  // the body and its membership, the Calls in it and its opcode histogram.
+  // The body is a function of the edges out of forwards-reached Nodes, so the
+  // cache is dropped when any such edge changes (Node.add_use and del_use
+  // call touch()).  OWNERS maps each Node uid to the cached FunNodes whose
+  // forwards set holds it, so an edge change only looks at its two ends.
+  private RetNode _body_ret;
+  private VBitSet _freached, _breached;
+  private Ary<Node> _body, _body_calls;
+  private int[] _body_cnts;
+  @SuppressWarnings("unchecked")
+  private static final Ary<Ary<FunNode>> OWNERS = new Ary<>(new Ary[1],0);
+  public static int BODY_HITS, BODY_MISSES;
+
   // Used to make the primitives at boot time.  Note the empty displays: in
   // theory Primitives should get the top-level primitives-display, but in
   // practice most primitives neither read nor write their own scope.
@@ -110,7 +124,10 @@ public class FunNode extends RegionNode {
   private static int FLEN;
   public static Ary<FunNode> FUNS = new Ary<>(new FunNode[]{null,});
   public static void init0() { FLEN = FUNS.len(); }
-  public static void reset_to_init0() { FUNS.set_len(FLEN); _must_inline=0; }
+  public static void reset_to_init0() {
+    FUNS.set_len(FLEN); _must_inline=0;
+    for( Ary<FunNode> funs : OWNERS ) drop(funs);
+  }
   public static FunNode find_fidx( int fidx ) { return FUNS.atX(fidx); }
   int fidx() { return _fidx; }
 
@@ -306,7 +323,7 @@ public class FunNode extends RegionNode {
       formals = _sig._formals;  // Use old args
       if( _cnt_size_inlines >= 10 && !is_prim() ) return null;
       // Large code-expansion allowed; can inline for other reasons
-      path = _thunk_rhs ? 2 : split_size(body,parms); // Forcible size-splitting first path
+      path = _thunk_rhs ? 2 : split_size(parms); // Forcible size-splitting first path
       if( path == -1 ) return null;
       assert CallNode.ttfp(in(path).val(0)).fidx()!=-1; // called by a single-target call
       if( !is_prim() ) _cnt_size_inlines++; // Disallow infinite size-inlining of recursive non-primitives
@@ -512,8 +529,11 @@ public class FunNode extends RegionNode {
   }
 
 
-  // Return the function body.
-  private Ary<Node> find_body( RetNode ret ) {
+  // Return the function body, cached until an edge in it changes.
+  Ary<Node> find_body( RetNode ret ) {
+    if( _body != null && _body_ret == ret ) { BODY_HITS++; return _body; }
+    BODY_MISSES++;
+    if( _body != null ) drop(); // Cached against another Ret
     // Find the function body.  Do a forwards walk first, stopping at the
     // obvious function exit.  If function does not expose its display then
     // this is the complete function body with nothing extra walked.  If it has
@@ -556,15 +576,50 @@ public class FunNode extends RegionNode {
       if( n==null ) continue;   // Defs can be null
       // As a special case for H-M, always clone uses of nil constants.
       // These need private H-M variables to support polymorphic nil-typing.
-      if( n instanceof ConNode && ((ConNode)n)._t==Type.XNIL ) freached.tset(n._uid);
-      if( !freached.get (n._uid) ) continue; // Not reached from fcn top
+      // Not added to the forwards set: the shared nil gains uses from every
+      // function, and would drop the cache each time.
+      boolean xnil = n instanceof ConNode && ((ConNode)n)._t==Type.XNIL;
+      if( !xnil && !freached.get(n._uid) ) continue; // Not reached from fcn top
       if(  breached.tset(n._uid) ) continue; // Already visited?
       body.push(n);                          // Part of body
       work.addAll(n._defs);                  // Visit all defs
       if( n.is_multi_head() )                // Multi-head?
         work.addAll(n._uses);                // All uses are ALSO part, even if not reachable in this fcn
     }
-    return body;
+
+    // Opcode histogram; Calls are classified later, by their current types
+    int[] cnts = new int[OP_MAX];
+    Ary<Node> calls = new Ary<>(new Node[1],0);
+    for( Node n : body ) {
+      cnts[n._op]++;
+      if( n._op == OP_CALL ) calls.push(n);
+    }
+    _body_ret = ret;  _freached = freached;  _breached = breached;
+    _body_cnts = cnts;  _body_calls = calls;
+    // Index by the forwards set; this includes the Ret
+    for( int uid = freached.nextSetBit(0); uid >= 0; uid = freached.nextSetBit(uid+1) ) {
+      Ary<FunNode> funs = OWNERS.atX(uid);
+      if( funs == null ) OWNERS.setX(uid,funs = new Ary<>(new FunNode[1],0));
+      funs.push(this);
+    }
+    return (_body = body);
+  }
+
+  // An edge from def to use changed; drop any cached body holding either end.
+  static void touch( Node def, Node use ) {
+    drop(OWNERS.atX(def._uid));
+    drop(OWNERS.atX(use._uid));
+  }
+  // Drop every cached body in the list; each drop removes itself from it
+  private static void drop( Ary<FunNode> funs ) {
+    if( funs != null )
+      while( !funs.isEmpty() ) funs.last().drop();
+  }
+  // Drop this cached body, and unindex its forwards set
+  private void drop() {
+    for( int uid = _freached.nextSetBit(0); uid >= 0; uid = _freached.nextSetBit(uid+1) )
+      OWNERS.at(uid).del(this);
+    _body = null;
   }
 
   // Split a single-use copy (e.g. fully inline) if the function is "small
@@ -574,33 +629,29 @@ public class FunNode extends RegionNode {
   // prevents lifting the allocations from the default parent to either child
   // without a full GCP pass - which means we split_size but then cannot inline
   // in CEPI because the Ret memory type will never lift to the default memory.
-  private int split_size( Ary<Node> body, Node[] parms ) {
+  private int split_size( Node[] parms ) {
     if( _defs._len <= 1 ) return -1; // No need to split callers if only 2
     boolean self_recursive=false;
 
-    // Count function body size.  Requires walking the function body and
-    // counting opcodes.  Some opcodes are ignored, because they manage
-    // dependencies but make no code.
+    // Count function body size, from the cached opcode histogram.  Some
+    // opcodes are ignored, because they manage dependencies but make no code.
+    // Calls depend on the current types, and are classified here.
     int call_indirect=0, call_thunk=0; // Count of calls to e.g. loads/args/parms
-    int[] cnts = new int[OP_MAX];
-    for( Node n : body ) {
-      int op = n._op;           // opcode
-      if( op == OP_CALL ) {     // Call-of-primitive?
-        Node n1 = ((CallNode)n).fdx();
-        if( !(n1._val instanceof TypeFunPtr) ) return -1; // Calling an unknown function, await GCP
-        TypeFunPtr tfp = (TypeFunPtr)n1._val;
-        if( tfp._fidxs.test(_fidx) ) self_recursive = true; // May be self-recursive
-        Node n2 = n1 instanceof UnOrFunPtrNode ? ((UnOrFunPtrNode)n1).funptr() : n1;
-        if( n2 instanceof FunPtrNode ) {
-          FunPtrNode fpn = (FunPtrNode) n2;
-          if( fpn.ret().rez() instanceof PrimNode )
-            op = OP_PRIM;       // Treat as primitive for inlining purposes
-        } else if( n2!=null && n2._val==TypeTuple.RET ) { // Thunks are encouraged to inline
-          call_thunk++;
-        } else
-          call_indirect++;
-      }
-      cnts[op]++;               // Histogram ops
+    int[] cnts = _body_cnts.clone();
+    for( Node n : _body_calls ) {
+      Node n1 = ((CallNode)n).fdx();
+      if( !(n1._val instanceof TypeFunPtr) ) return -1; // Calling an unknown function, await GCP
+      TypeFunPtr tfp = (TypeFunPtr)n1._val;
+      if( tfp._fidxs.test(_fidx) ) self_recursive = true; // May be self-recursive
+      Node n2 = n1 instanceof UnOrFunPtrNode ? ((UnOrFunPtrNode)n1).funptr() : n1;
+      if( n2 instanceof FunPtrNode ) {
+        FunPtrNode fpn = (FunPtrNode) n2;
+        if( fpn.ret().rez() instanceof PrimNode )
+          { cnts[OP_CALL]--; cnts[OP_PRIM]++; } // Treat as primitive for inlining purposes
+      } else if( n2!=null && n2._val==TypeTuple.RET ) { // Thunks are encouraged to inline
+        call_thunk++;
+      } else
+        call_indirect++;
     }
     assert cnts[OP_FUN]==1 && cnts[OP_RET]==1;
     assert cnts[OP_SCOPE]==0;
@@ -632,7 +683,7 @@ public class FunNode extends RegionNode {
       TypeFunPtr tfp = CallNode.ttfp(call._val);
       int fidx = tfp.fidxs().abit();
       if( fidx < 0 || BitsFun.is_parent(fidx) ) continue;    // Call must only target one fcn
-      if( self_recursive && body.find(call)!=-1 ) continue; // Self-recursive; amounts to unrolling
+      if( self_recursive && _breached.get(call._uid) ) continue; // Self-recursive; amounts to unrolling
       int ncon=0;
       // Count constant inputs on non-error paths
       for( TypeFld arg : _sig._formals.flds() ) {
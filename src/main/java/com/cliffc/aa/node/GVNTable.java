@@ -0,0 +1,119 @@
+package com.cliffc.aa.node;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// The GVN value table: a set of Nodes, keyed by Node.hashCode and the
+// class-specific Node.equals, mapping each hit to the prior equal Node.
+//
+// GVN is single-threaded, so this is a plain open-addressed table with linear
+// probing; no locking.  Hashes are cached beside the Nodes (a Node in the
+// table is edge-locked, so its hash does not change) and compared before
+// calling equals.  Removal back-shifts the probe run, so there are no
+// tombstones and lookups never scan past a cleared slot.
+//
+// Counts lookups, reprobes (probes past the home slot) and collisions (equal
+// hashes on unequal Nodes), to judge hash quality.
+public final class GVNTable implements Iterable<Node> {
+  private Node[] _ns = new Node[1<<10];
+  private int [] _hs = new int [1<<10];
+  private int _size;
+  private long _lookups, _reprobes, _collides;
+
+  // Murmur3 finalizer; spreads a hash over all the bits
+  public static int mix( int h ) {
+    h ^= h>>>16;  h *= 0x85EBCA6B;
+    h ^= h>>>13;  h *= 0xC2B2AE35;
+    return h ^ (h>>>16);
+  }
+
+  public int size() { return _size; }
+  public long lookups () { return _lookups ; }
+  public long reprobes() { return _reprobes; }
+  public long collides() { return _collides; }
+
+  // Slot holding a Node equal to n, or the empty slot ending its probe run
+  private int find( Node n, int h ) {
+    _lookups++;
+    int mask = _ns.length-1;
+    for( int i=mix(h)&mask; ; i=(i+1)&mask ) {
+      Node x = _ns[i];
+      if( x==null || x==n ) return i;
+      if( _hs[i]==h ) {
+        if( n.equals(x) ) return i;
+        _collides++;
+      }
+      _reprobes++;
+    }
+  }
+
+  // Prior Node equal to n, or null
+  public Node get( Node n ) { return _ns[find(n,n.hashCode())]; }
+
+  // Insert n; replaces and returns any prior equal Node
+  public Node put( Node n ) {
+    int h = n.hashCode(), i = find(n,h);
+    Node old = _ns[i];
+    _ns[i] = n;  _hs[i] = h;
+    if( old==null && ++_size > (_ns.length>>1) ) grow();
+    return old;
+  }
+
+  // Remove and return the Node equal to n, or null
+  public Node remove( Node n ) {
+    int i = find(n,n.hashCode());
+    Node old = _ns[i];
+    if( old==null ) return null;
+    _size--;
+    // Back-shift the rest of the probe run over the hole
+    int mask = _ns.length-1;
+    for( int j=(i+1)&mask; _ns[j]!=null; j=(j+1)&mask ) {
+      int home = mix(_hs[j])&mask;
+      // Stays put if its home is cyclically in (i,j]
+      if( i<=j ? (i<home && home<=j) : (i<home || home<=j) ) continue;
+      _ns[i] = _ns[j];  _hs[i] = _hs[j];
+      i = j;
+    }
+    _ns[i] = null;
+    return old;
+  }
+
+  public void clear() {
+    Arrays.fill(_ns,null);
+    _size = 0;
+  }
+
+  private void grow() {
+    Node[] ns = _ns;  int[] hs = _hs;
+    _ns = new Node[ns.length<<1];
+    _hs = new int [ns.length<<1];
+    int mask = _ns.length-1;
+    for( int j=0; j<ns.length; j++ ) {
+      if( ns[j]==null ) continue;
+      int i = mix(hs[j])&mask;
+      while( _ns[i]!=null ) i = (i+1)&mask;
+      _ns[i] = ns[j];  _hs[i] = hs[j];
+    }
+  }
+
+  // Visit all Nodes; no changes to the table while iterating
+  @Override public Iterator<Node> iterator() {
+    return new Iterator<>() {
+      int _i = skip(0);
+      private int skip( int i ) {
+        while( i < _ns.length && _ns[i]==null ) i++;
+        return i;
+      }
+      @Override public boolean hasNext() { return _i < _ns.length; }
+      @Override public Node next() {
+        if( _i >= _ns.length ) throw new NoSuchElementException();
+        Node n = _ns[_i];  _i = skip(_i+1);  return n;
+      }
+    };
+  }
+
+  @Override public String toString() {
+    return "GVN table: "+_size+" nodes in "+_ns.length+" slots, "+_lookups+" lookups, "+_reprobes+" reprobes, "+_collides+" collisions";
+  }
+}
@@ -6,8 +6,8 @@ import com.cliffc.aa.type.*;
 import com.cliffc.aa.util.*;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.function.IntSupplier;
 
@@ -59,12 +59,18 @@ public abstract class Node implements Cloneable, IntSupplier {
   public  static int _INIT0_CNT;
   private static int CNT=1; // Do not hand out UID 0
   private static final VBitSet LIVE = new VBitSet();  // Conservative approximation of live; due to loops some things may be marked live, but are dead
+  // Uids of killed Nodes.  A uid is not reused until the GVN work lists are
+  // clear, since they filter dups by uid; until then it waits in DEAD_UIDS.
+  private static final AryInt DEAD_UIDS = new AryInt(), FREE_UIDS = new AryInt();
+  // Uid high-water mark; bounds the Nodes ever alive at once
+  public static int uid_cnt() { return CNT; }
   int newuid() {
+    int uid = FREE_UIDS.isEmpty() ? CNT++ : FREE_UIDS.pop();
     assert CNT < 100000 : "infinite node create loop";
-    if( CNT==AA.UID )
+    if( uid==AA.UID )
       System.out.print("");
-    LIVE.set(CNT);
-    return CNT++;
+    LIVE.set(uid);
+    return uid;
   }
   @Override public int getAsInt() { return _uid; }
 
@@ -80,13 +86,17 @@ public abstract class Node implements Cloneable, IntSupplier {
     CNT = _INIT0_CNT;
     LIVE.clear();
     LIVE.set(0,CNT);
+    DEAD_UIDS.clear();
+    FREE_UIDS.clear();
   }
 
 
   public int _uid;      // Unique ID, will have gaps, used to give a dense numbering to nodes
+  public int _rpo;      // Reverse postorder number from the last number_rpo; 0 if made since
   final byte _op;       // Opcode (besides the object class), used to avoid v-calls in some places
   public byte _keep;    // Keep-alive in parser, even as last use goes away
   public boolean _elock;// Edge-lock: cannot modify edges because messes up hashCode & GVN
+  public boolean _settled;// Typed by a finished Combo; an incremental Combo keeps its types
   public Type _val;     // Value; starts at ALL and lifts towards ANY.
   public TypeMem _live; // Liveness; assumed live in gvn.iter(), assumed dead in gvn.gcp().
   // Hindley-Milner inspired typing, or CNC Thesis based congruence-class
@@ -104,11 +114,16 @@ public abstract class Node implements Cloneable, IntSupplier {
   public TV2 new_tvar(String alloc_site) { return TV2.make_leaf(this,alloc_site); }
 
   // Hash is function+inputs, or opcode+input_uids, and is invariant over edge
-  // order (so we can swap edges without rehashing)
+  // order (so we can swap edges without rehashing).  Uids are mixed before
+  // the commutative sum and xor, so inputs with merely xor-equal uids differ.
   @Override public int hashCode() {
-    int sum = _op;
-    for( int i=0; i<_defs._len; i++ ) if( _defs._es[i] != null ) sum ^= _defs._es[i]._uid;
-    return sum;
+    int sum = 0, xor = 0;
+    for( int i=0; i<_defs._len; i++ )
+      if( _defs._es[i] != null ) {
+        int h = GVNTable.mix(_defs._es[i]._uid);
+        sum += h;  xor ^= h;
+      }
+    return _op*0x9E3779B9 + sum + Integer.rotateLeft(xor,16);
   }
   // Equals is function+inputs, or opcode+input_uids.  Uses pointer-equality
   // checks for input equality checks.
@@ -125,6 +140,9 @@ public abstract class Node implements Cloneable, IntSupplier {
 
   // Defs.  Generally fixed length, ordered, nulls allowed, no unused trailing space.  Zero is Control.
   public Ary<Node> _defs;
+  // Parallel to _defs: the index of each def/use edge in the def's _uses, so
+  // edges are removed in constant time.  Edit edges only with the calls below.
+  AryInt _dus;
   public int len() { return _defs._len; }
   public Node in( int i) { return _defs.at(i); }
   // Edge lock check, or anything that changes the hash
@@ -139,7 +157,7 @@ public abstract class Node implements Cloneable, IntSupplier {
   }
   Node _elock() {               // No assert version, used for new nodes
     assert check_vals();        // elock & VALs match
-    if( !_elock && VALS.get(this)==null ) { _elock = true; VALS.put(this,this); }
+    if( !_elock && VALS.get(this)==null ) { _elock = true; VALS.put(this); }
     return this;
   }
 
@@ -147,40 +165,108 @@ public abstract class Node implements Cloneable, IntSupplier {
     Node x = VALS.get(this), old=null;
     if( x == this ) old=this;   // Found in table quickly
     // Hunt the hard way
-    else for( Node o : VALS.keySet() ) if( o._uid == _uid ) { old=o; break; }
+    else for( Node o : VALS ) if( o._uid == _uid ) { old=o; break; }
     return (old!=null) == _elock;
   }
 
   // Add def/use edge
-  public Node add_def(Node n) { unelock(); _defs.add(n); if( n!=null ) n._uses.add(this); return this; }
+  public Node add_def(Node n) { unelock(); _defs.add(n); _dus.push(0); if( n!=null ) n.add_use(this,_defs._len-1); return this; }
   // Replace def/use edge
   public Node set_def( int idx, Node n ) {
     unelock();
     Node old = _defs.at(idx);  // Get old value
+    int ux = _dus.at(idx);     // Old edge in old._uses
     // Add edge to new guy before deleting old, in case old goes dead and
     // recursively makes new guy go dead also
-    if( (_defs._es[idx] = n) != null ) n._uses.add(this);
+    if( (_defs._es[idx] = n) != null ) n.add_use(this,idx);
+    if( old != null ) old.del_use(ux);
     return unuse(old);
   }
 
-  public void replace(Node old, Node nnn) { unelock(); _defs.replace(old,nnn); }
+  // Replace the first old def with nnn, with no worklist updates for old
+  public void replace(Node old, Node nnn) {
+    int idx = _defs.find(old);
+    if( idx == -1 ) return;
+    unelock();
+    if( old != null ) old.del_use(_dus.at(idx));
+    if( (_defs._es[idx] = nnn) != null ) nnn.add_use(this,idx);
+  }
 
-  public Node insert (int idx, Node n) { unelock(); _defs.insert(idx,n); if( n!=null ) n._uses.add(this); return this; }
+  public Node insert (int idx, Node n) {
+    unelock();
+    _defs.insert(idx,n);
+    _dus .insert(idx,0);
+    if( n!=null ) n.add_use(this,idx);
+    renumber_defs(idx+1);
+    return this;
+  }
   // Return Node at idx, withOUT auto-deleting it, even if this is the last
   // use.  Used by the parser to retrieve final Nodes from tmp holders.  Does
   // NOT preserve order.
   public void del( int idx ) {
     unelock();
-    Node n = _defs.del(idx);
-    if( n != null ) n._uses.del(this);
+    Node n = _defs.at(idx);
+    if( n != null ) n.del_use(_dus.at(idx));
+    _defs.del(idx);
+    _dus .del(idx);
+    if( idx < _defs._len ) renumber_def(idx);
+  }
+  public Node pop( ) {
+    unelock();
+    int ux = _dus.pop();
+    Node n = _defs.pop();
+    if( n != null ) n.del_use(ux);
+    unuse(n);
+    return n;
   }
-  public Node pop( ) { unelock(); Node n = _defs.pop(); unuse(n); return n; }
   // Remove Node at idx, auto-delete and preserve order.
-  public Node remove(int idx) { unelock(); return unuse(_defs.remove(idx)); }
+  public Node remove(int idx) {
+    unelock();
+    Node n = _defs.at(idx);
+    if( n != null ) n.del_use(_dus.at(idx)); // Before shifting, as it may renumber this
+    _defs.remove(idx);
+    _dus .remove(idx);
+    renumber_defs(idx);
+    return unuse(n);
+  }
 
+  // Append use edge from 'use', whose def slot idx is this
+  private void add_use( Node use, int idx ) {
+    FunNode.touch(this,use);    // Cached function bodies holding either end
+    use._dus.set(idx,_uses._len);
+    _uses.add(use);
+    _uds.push(idx);
+  }
+  // Remove the use edge at ux, moving the last use edge into its place
+  private void del_use( int ux ) {
+    FunNode.touch(this,_uses.at(ux));
+    _uses.del(ux);
+    _uds .del(ux);
+    if( ux < _uses._len ) _uses.at(ux)._dus.set(_uds.at(ux),ux);
+  }
+  // Def at idx moved slots; point its use edge at the new slot
+  private void renumber_def( int idx ) {
+    Node n = _defs.at(idx);
+    if( n != null ) n._uds.set(_dus.at(idx),idx);
+  }
+  private void renumber_defs( int idx ) {
+    for( int i=idx; i<_defs._len; i++ ) renumber_def(i);
+  }
+  // Def and use edges agree with their back-indices
+  boolean check_edges() {
+    if( _dus._len != _defs._len || _uds._len != _uses._len ) return false;
+    for( int i=0; i<_defs._len; i++ ) {
+      Node n = _defs.at(i);
+      if( n != null && (n._uses.at(_dus.at(i))!=this || n._uds.at(_dus.at(i))!=i) ) return false;
+    }
+    for( int i=0; i<_uses._len; i++ )
+      if( _uses.at(i)._defs.at(_uds.at(i))!=this || _uses.at(i)._dus.at(_uds.at(i))!=i ) return false;
+    return true;
+  }
+
+  // Edge bookkeeping after removing a use of old
   private Node unuse( Node old ) {
     if( old == null ) return this;
-    old._uses.del(this);
     // Either last use of old & goes dead, or at least 1 fewer uses & changes liveness
     Env.GVN.add_unuse(old);
     if( old._uses._len!=0 && old._keep ==0 ) old.add_work_def_extra(Env.GVN._work_flow,this);
@@ -194,9 +280,12 @@ public abstract class Node implements Cloneable, IntSupplier {
   public void insert( Node nnn ) {
     if( _uses._len>0 ) unelock(); // Hacking edges
     while( _uses._len > 0 ) {
-      Node u = _uses.del(0);  // Old use
-      u.replace(this,nnn);    // was this now nnn
-      nnn._uses.add(u);
+      Node u = _uses.at(0);   // Old use
+      int idx = _uds.at(0);   // Slot in old use
+      del_use(0);
+      u.unelock();
+      u._defs._es[idx] = nnn; // was this now nnn
+      nnn.add_use(u,idx);
     }
   }
 
@@ -216,17 +305,60 @@ public abstract class Node implements Cloneable, IntSupplier {
     assert _uses._len==0 && _keep==0;
     // Similar to unelock(), except do not put on any worklist
     if( _elock ) { _elock = false; Node x = VALS.remove(this); assert x == this; }
-    while( _defs._len > 0 ) unuse(_defs.pop());
-    _defs = _uses = null;       // TODO: Poor-man's indication of a dead node, probably needs to recycle these...
+    while( _defs._len > 0 ) {
+      int ux = _dus.pop();
+      Node n = _defs.pop();
+      if( n != null ) n.del_use(ux);
+      unuse(n);
+    }
+    // Recycle the edge arrays.  Both lists are empty, so any iterator still
+    // over them is done.  The Node itself is not recycled: stale pointers to
+    // it test is_dead().
+    free_nodes(_defs._es);  free_nodes(_uses._es);
+    free_ints (_dus ._es);  free_ints (_uds ._es);
+    _defs = _uses = null;       // Poor-man's indication of a dead node
+    _dus  = _uds  = null;
     LIVE.clear(_uid);           // Off the LIVE set.  CNT cannot roll back unless the GVN work lists are also clear
+    Env.GVN._work_dom.del(this);// Only work list not drained by GVN iter
+    if( _INIT0_CNT > 0 ) DEAD_UIDS.push(_uid);
     if( this instanceof RetNode ) ((RetNode)this).free();
     if( this instanceof NewNode ) ((NewNode)this).free();
     return this;
   }
   public boolean is_dead() { return _uses == null; }
 
-  // Called when GVN work lists are empty
-  public static void roll_back_CNT() { while( !LIVE.get(CNT-1) ) CNT--; }
+  // Called when GVN work lists are empty: reclaim dead uids, keeping the
+  // numbering dense so uid-indexed bitsets stay small.
+  public static void roll_back_CNT() {
+    while( !LIVE.get(CNT-1) ) CNT--;
+    int j=0;                    // Drop free uids past the new CNT
+    for( int i=0; i<FREE_UIDS._len; i++ )
+      if( FREE_UIDS._es[i] < CNT ) FREE_UIDS._es[j++] = FREE_UIDS._es[i];
+    FREE_UIDS.set_len(j);
+    for( int i=0; i<DEAD_UIDS._len; i++ ) {
+      int uid = DEAD_UIDS._es[i];
+      if( uid < CNT && !LIVE.get(uid) ) FREE_UIDS.push(uid);
+    }
+    DEAD_UIDS.clear();
+  }
+
+  // Pools of edge arrays from killed Nodes, reused by new Nodes.  Any
+  // capacity will do; a bigger one saves regrowing.
+  private static final Ary<Node[]> NODE_ARYS = new Ary<>(new Node[1][],0);
+  private static final Ary<int []> INT_ARYS  = new Ary<>(new int [1][],0);
+  private static final int MAX_POOL = 1024;
+  private static void free_nodes( Node[] es ) {
+    if( NODE_ARYS._len < MAX_POOL ) { Arrays.fill(es,null); NODE_ARYS.push(es); }
+  }
+  private static void free_ints( int[] es ) {
+    if( INT_ARYS._len < MAX_POOL ) INT_ARYS.push(es);
+  }
+  private static Node[] node_ary() { return NODE_ARYS.isEmpty() ? new Node[1] : NODE_ARYS.pop(); }
+  private static int [] int_ary( int len ) {
+    if( INT_ARYS.isEmpty() ) return new int[Math.max(1,len)];
+    int[] es = INT_ARYS.pop();
+    return es.length >= len ? es : new int[len];
+  }
 
   // "keep" a Node during all optimizations because it is somehow unfinished.
   // Typically, used when needing to build several Nodes before building the
@@ -251,14 +383,18 @@ public abstract class Node implements Cloneable, IntSupplier {
 
   // Uses.  Generally variable length; unordered, no nulls, compressed, unused trailing space
   public Ary<Node> _uses;
+  // Parallel to _uses: the def slot in each use that points here
+  AryInt _uds;
 
   Node( byte op ) { this(op,new Node[0]); }
   Node( byte op, Node... defs ) {
     _op   = op;
     _uid  = newuid();
     _defs = new Ary<>(defs);
-    _uses = new Ary<>(new Node[1],0);
-    for( Node def : defs ) if( def != null ) def._uses.add(this);
+    _uses = new Ary<>(node_ary(),0);
+    _dus  = new AryInt(int_ary(defs.length),defs.length);
+    _uds  = new AryInt(int_ary(0),0);
+    for( int i=0; i<defs.length; i++ ) if( defs[i] != null ) defs[i].add_use(this,i);
     _val  = Type.ALL;
     _live = all_live();
     _tvar = null;
@@ -273,10 +409,14 @@ public abstract class Node implements Cloneable, IntSupplier {
     try {
       Node n = (Node)clone();
       n._uid = newuid();                  // A new UID
-      n._defs = new Ary<>(new Node[1],0); // New empty defs
-      n._uses = new Ary<>(new Node[1],0); // New empty uses
+      n._defs = new Ary<>(node_ary(),0); // New empty defs
+      n._uses = new Ary<>(node_ary(),0); // New empty uses
+      n._dus  = new AryInt(int_ary(0),0);
+      n._uds  = new AryInt(int_ary(0),0);
       n._keep = 0;              // Not keeping, even if cloning a mid-keeper operation
       n._elock=false;           // Not in GVN
+      n._rpo = 0;               // Not numbered yet
+      n._settled = false;       // Not typed by Combo
       if( copy_edges )
         for( Node def : _defs )
           n.add_def(def);
@@ -360,7 +500,7 @@ public abstract class Node implements Cloneable, IntSupplier {
   }
   public boolean is_multi_head() { return _op==OP_CALL || _op==OP_CALLEPI || _op==OP_FUN || _op==OP_IF || _op==OP_LOOP || _op==OP_NEWOBJ || _op==OP_NEWSTR || _op==OP_REGION || _op==OP_SPLIT || _op==OP_START; }
   private boolean is_multi_tail() { return _op==OP_PARM || _op==OP_PHI || _op==OP_PROJ || _op==OP_CPROJ; }
-  boolean is_CFG() { return _op==OP_CALL || _op==OP_CALLEPI || _op==OP_FUN || _op==OP_RET || _op==OP_IF || _op==OP_LOOP || _op==OP_REGION || _op==OP_START || _op==OP_CPROJ || _op==OP_SCOPE; }
+  public boolean is_CFG() { return _op==OP_CALL || _op==OP_CALLEPI || _op==OP_FUN || _op==OP_RET || _op==OP_IF || _op==OP_LOOP || _op==OP_REGION || _op==OP_START || _op==OP_CPROJ || _op==OP_SCOPE; }
 
   public String dumprpo( boolean prims, boolean plive ) {
     Ary<Node> nodes = new Ary<>(new Node[1],0);
@@ -460,6 +600,9 @@ public abstract class Node implements Cloneable, IntSupplier {
   // inputs.  May return Type.ALL, especially if its inputs are in error.  It
   // must be monotonic.  This is a forwards-flow transfer-function computation.
   abstract public Type value(GVNGCM.Mode opt_mode);
+  // True if value() reads more than its inputs' values and its own type-var,
+  // so Combo redoes it on every visit, even one only for liveness.
+  public boolean value_on_live() { return false; }
 
   // Shortcut to update self-value.  Typically, used in contexts where it is NOT
   // locally monotonic - hence we cannot run any monotonicity asserts until the
@@ -553,11 +696,11 @@ public abstract class Node implements Cloneable, IntSupplier {
   public boolean remove_ambi(Ary<Node> oldfdx) {return false;}
 
   // Do One Step of forwards-dataflow analysis.  Assert monotonic progress.
-  // If progressed, add neighbors on worklist.
-  public void combo_forwards(WorkNode work) {
+  // If progressed, add neighbors on worklist and return true.
+  public boolean combo_forwards(WorkNode work) {
     Type oval = _val;           // Old local type
     Type nval = value(GVNGCM.Mode.Opto);// New type
-    if( oval == nval ) return;  // No progress
+    if( oval == nval ) return false; // No progress
     assert nval==nval.simple_ptr() || this instanceof ConTypeNode; // Only simple pointers in node types
     assert oval.isa(nval);      // Monotonic
     _val = nval;                // Record progress
@@ -576,19 +719,23 @@ public abstract class Node implements Cloneable, IntSupplier {
     //assert may_be_con_live(oval) || !may_be_con_live(nval); // May_be_con_live is monotonic
     //if( may_be_con_live(oval) && !may_be_con_live(nval) )
     //  for( Node def : _defs ) work.add(def); // Now check liveness
+    return true;
   }
 
   // Do One Step of backwards-dataflow analysis.  Assert monotonic progress.
-  // If progressed, add neighbors on worklist.
-  public void combo_backwards(WorkNode work) {
+  // If progressed, add neighbors on worklist and return true.  Defs only need
+  // their liveness redone and go on the 'live' worklist; the extras may need
+  // any analysis and go on 'work'.
+  public boolean combo_backwards(WorkNode live, WorkNode work) {
     TypeMem oliv = _live;
     TypeMem nliv = live(GVNGCM.Mode.Opto);
-    if( oliv == nliv ) return;  // No progress
+    if( oliv == nliv ) return false; // No progress
     assert oliv.isa(nliv);      // Monotonic
     _live = nliv;               // Record progress
     add_work_extra(work,oliv);
     for( Node def : _defs )     // Classic reverse flow on change
-      if( def!=null ) work.add(def).add_work_def_extra(work,this);
+      if( def!=null ) live.add(def).add_work_def_extra(work,this);
+    return true;
   }
 
   // Do One Step of Hindley-Milner unification.  Assert monotonic progress.
@@ -619,7 +766,7 @@ public abstract class Node implements Cloneable, IntSupplier {
 
 
   // Global expressions, to remove redundant Nodes
-  public static final ConcurrentHashMap<Node,Node> VALS = new ConcurrentHashMap<>();
+  public static final GVNTable VALS = new GVNTable();
 
   // Reducing xforms, strictly fewer Nodes or Edges.  n may be either in or out
   // of VALS.  If a replacement is found, replace.  In any case, put in the
@@ -779,18 +926,51 @@ public abstract class Node implements Cloneable, IntSupplier {
     // Walk reachable graph
     for( Node use : _uses )                   use.walk_initype(work);
     for( Node def : _defs ) if( def != null ) def.walk_initype(work);
+    if( dsp_call()!=null ) dsp_call().fdx().walk_initype(work); // Reached from the Call's uses before its defs
+    initype_deps();
+  }
+
+  // Incremental forward reachable walk, for the REPL.  Nodes settled by a
+  // prior Combo keep their types: a new line only adds uses, and escaping
+  // functions were already typed as-if called by anybody.  New Nodes are set
+  // to ANY and dead, and go on the worklist with their settled neighbors.
+  public final void walk_initype_new( WorkNode work ) {
+    if( RESET_VISIT.tset(_uid) ) return; // Been there, done that
+    boolean nnn = !_settled;
+    if( nnn ) {
+      work.add(this);
+      _val = Type.ANY;             // Highest value
+      _live = TypeMem.DEAD;        // Not alive
+      _tvar = new_tvar("Combo");
+    }
+    // Walk reachable graph
+    for( Node use : _uses )                   use.walk_initype_new(work);
+    for( Node def : _defs ) if( def != null ) def.walk_initype_new(work);
+    if( !nnn ) return;
+    if( dsp_call()!=null ) dsp_call().fdx().walk_initype_new(work);
+    work.add(_uses);               // Typed uses see a new input value
+    for( Node def : _defs ) if( def != null ) work.add(def); // Typed defs see a new use
+    initype_deps();
+    if( this instanceof LoadNode ) (( LoadNode)this)._hm_lift = false; // Settled graph is past Combo phase 2
+  }
+
+  // Per-Node Combo setup, after the type-vars of the neighbors are made
+  private void initype_deps() {
     if( this instanceof CallNode ) (( CallNode)this)._not_resolved_by_gcp = false; // Try again
     if( this instanceof FreshNode) ((FreshNode)this).id().tvar().push_dep(this);
     if( this instanceof LoadNode ) (( LoadNode)this)._hm_lift = true;
-    if( this instanceof ProjNode && ((ProjNode)this)._idx==DSP_IDX && in(0) instanceof CallNode )
-      ((CallNode)in(0)).fdx().tvar().push_dep(this);
+    if( dsp_call()!=null ) dsp_call().fdx().tvar().push_dep(this);
+  }
+  // The Call, if this is the display projection of a Call
+  private CallNode dsp_call() {
+    return this instanceof ProjNode && ((ProjNode)this)._idx==DSP_IDX && in(0) instanceof CallNode ? (CallNode)in(0) : null;
   }
 
   // Combo phase 2: all nodes previously lifted by HM go back on the worklist,
   // as the default HM will no longer lift to Type.XNSCALR.
   public final void walk_combo_phase2( WorkNode work, BitsFun top_escapes ) {
     if( RESET_VISIT.tset(_uid) ) return; // Been there, done that
-    if( this instanceof LoadNode ) { work.add(this); ((LoadNode)this)._hm_lift = false; } // Loads are lifted.
+    if( this instanceof LoadNode && ((LoadNode)this)._hm_lift ) { work.add(this); ((LoadNode)this)._hm_lift = false; } // Loads are lifted.
     if( this instanceof FunNode  && top_escapes.test_recur(((FunNode)this)._fidx) ) work.add(this);
     if( this instanceof ParmNode && has_tvar() && tvar().is_leaf() &&
         top_escapes.test_recur(((ParmNode)this).fun()._fidx ))
@@ -801,6 +981,32 @@ public abstract class Node implements Cloneable, IntSupplier {
     for( Node def : _defs ) if( def != null ) def.walk_combo_phase2(work,top_escapes);
   }
 
+  // Number all nodes reachable from 'start' in reverse postorder of the
+  // def-to-use edges, from 1.  Control uses are walked before data uses, so the
+  // CFG skeleton is laid out first and the data hangs off of it.  Apart from
+  // loop backedges, a node numbers after all its defs, so forward flow popped
+  // in this order sees its inputs settle first.  Iterative, as graphs run deep.
+  private static final VBitSet RPO_VISIT = new VBitSet();
+  public static int number_rpo( Node start ) {
+    Ary<Node> stk = new Ary<>(Node.class), post = new Ary<>(Node.class);
+    AryInt idxs = new AryInt();   // Next use to try, per stack entry; CFG uses in the 1st lap
+    RPO_VISIT.clear();
+    RPO_VISIT.set(start._uid);
+    stk.push(start);  idxs.push(0);
+    while( !stk.isEmpty() ) {
+      Node n = stk.last();
+      int i = idxs.last(), len = n._uses._len;
+      if( i == len<<1 ) { stk.pop(); idxs.pop(); post.push(n); continue; }
+      idxs.set(idxs._len-1,i+1);
+      Node use = n._uses.at(i<len ? i : i-len);
+      if( use.is_CFG() == (i<len) && !RPO_VISIT.tset(use._uid) )
+        { stk.push(use);  idxs.push(0); }
+    }
+    for( int i=0; i<post._len; i++ )
+      post.at(i)._rpo = post._len-i;
+    return post._len;
+  }
+
   // Reset
   public static final VBitSet RESET_VISIT = new VBitSet();
   public final void walk_reset( WorkNode work ) {
@@ -921,6 +1127,7 @@ public abstract class Node implements Cloneable, IntSupplier {
     assert !is_dead();
     if( visit.tset(_uid) ) return; // Been there, done that
     _elock = false;                // Removed from VALS
+    _settled = true;               // Typed by this Combo
     // Walk reachable graph
     if( is_dead() ) return;
     Env.GVN.add_work_all(this);
@@ -4,13 +4,18 @@ import com.cliffc.aa.util.*;
 import com.cliffc.aa.tvar.UQNodes;
 
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 public abstract class WorkNode extends Work<Node> implements Function<Node,Node> {
   public final String _name;
   public final boolean _replacing;
   public WorkNode(String name, boolean replacing) { _name=name; _replacing = replacing; }
+  public WorkNode(String name, boolean replacing, Policy policy, ToIntFunction<Node> order) { super(policy,order); _name=name; _replacing = replacing; }
+  // RPO-policy orders: reverse postorder for forward flow, and postorder for
+  // liveness.  Nodes made since the last Node.number_rpo pop first.
+  public static final ToIntFunction<Node> RPO = n -> n._rpo, PO = n -> -n._rpo;
   public void add(Ary<Node> ns) { for( Node n : ns )  add(n); }
   public void add(UQNodes uq) {  if( uq!=null ) for( Node n : uq.values() )  add(n); }
   public abstract Node apply(Node n);
-  @Override public String toString() { return _name+keySet().toString(); }
+  @Override public String toString() { return _name+super.toString(); }
 }
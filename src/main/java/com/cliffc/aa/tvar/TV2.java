@@ -889,7 +889,7 @@ public class TV2 {
       TypeStruct ts = WDUPS.get(duid);
       if( ts != null ) ts.set_cyclic();
       else {
-        Type.RECURSIVE_MEET++;
+        Type.rmeet_inc();
         ts = TypeStruct.malloc("",false,false);
         for( TypeFld fld : ts0.flds() ) ts.add_fld(fld.malloc_from());
         ts.set_hash();
@@ -899,9 +899,9 @@ public class TV2 {
           if( tv2 != null )
             fld.setX(tv2.walk_types_out(fld._t,cepi));
         }
-        if( --Type.RECURSIVE_MEET == 0 )
+        if( Type.rmeet_dec() == 0 )
           // Shrink / remove cycle dups.  Might make new (smaller)
-          // TypeStructs, so keep RECURSIVE_MEET enabled.
+          // TypeStructs, so keep rmeet enabled.
           ts = ts.install();
       }
       return tmp.make_from(ts);
@@ -956,7 +956,7 @@ public class TV2 {
     if( is_struct() ) {
       TypeStruct tstr = ADUPS.get(_uid);
       if( tstr==null ) {
-        Type.RECURSIVE_MEET++;
+        Type.rmeet_inc();
         tstr = TypeStruct.malloc("",false,false);
         if( _args!=null )
           for( String id : _args.keySet() )
@@ -966,9 +966,9 @@ public class TV2 {
         if( _args!=null )
           for( String id : _args.keySet() )
             tstr.get(id).setX(get(id)._as_flow(opto)); // Recursive
-        if( --Type.RECURSIVE_MEET == 0 )
+        if( Type.rmeet_dec() == 0 )
           // Shrink / remove cycle dups.  Might make new (smaller)
-          // TypeStructs, so keep RECURSIVE_MEET enabled.
+          // TypeStructs, so keep rmeet enabled.
           tstr = tstr.install();
       } else {
         tstr.set_cyclic();    // Been there, done that, just mark it cyclic
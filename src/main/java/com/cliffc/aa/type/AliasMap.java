@@ -0,0 +1,210 @@
+package com.cliffc.aa.type;
+
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+// Persistent map from alias# to TypeObj; the backing store for TypeMem.
+//
+// A path-copying radix trie, WIDTH ways per level.  An update copies only the
+// nodes on the path to the changed alias and shares all the rest with the
+// prior version, and memory is only spent on populated parts of the alias
+// space.  Missing aliases and empty subtrees are null.  Each node caches the
+// sum of the TypeObj hashes below it, so hashing a map is O(1) and equality
+// checks skip shared subtrees.
+//
+// The shape is canonical: the root is as short as the largest present alias
+// allows, and empty nodes are removed; equal maps have equal shapes.  The
+// TypeMem canonical form (missing children inherit from their parent) is kept
+// by TypeMem; to this class a missing alias is just null.
+final class AliasMap {
+  private static final int BITS=5, WIDTH=1<<BITS, MASK=WIDTH-1;
+
+  private static final class Node {
+    final Object[] _es;         // Kid Nodes, or TypeObjs at the bottom level
+    final int _hash;            // Sum of all TypeObj hashes below
+    Node( Object[] es, int hash ) { _es=es; _hash=hash; }
+  }
+
+  static final AliasMap EMPTY = new AliasMap(null,0,0);
+
+  private final Node _root;     // Null if empty
+  private final int _shift;     // Shift of the root level; 0 if the root holds TypeObjs
+  private final int _len;       // One past the largest present alias, like an array length
+  private AliasMap( Node root, int shift, int len ) { _root=root; _shift=shift; _len=len; }
+
+  // Shift of the shortest root covering aliases below len
+  private static int shift( int len ) {
+    int shift=0;
+    while( len > 1<<(shift+BITS) ) shift += BITS;
+    return shift;
+  }
+  // Make a Node, or null if empty
+  private static Node node( Object[] es, int shift ) {
+    int hash=0;
+    boolean any=false;
+    for( Object e : es )
+      if( e!=null ) {
+        any=true;
+        hash += shift==0 ? ((TypeObj)e)._hash : ((Node)e)._hash;
+      }
+    return any ? new Node(es,hash) : null;
+  }
+
+  static AliasMap make( TypeObj[] as ) {
+    int len = as.length;
+    while( len>0 && as[len-1]==null ) len--;
+    int shift = shift(len);
+    return new AliasMap(make(as,len,shift,0),shift,len);
+  }
+  private static Node make( TypeObj[] as, int len, int shift, int base ) {
+    if( base >= len ) return null;
+    Object[] es = new Object[WIDTH];
+    for( int k=0; k<WIDTH; k++ ) {
+      int idx = base+(k<<shift);
+      es[k] = shift==0 ? (idx<len ? as[idx] : null) : make(as,len,shift-BITS,idx);
+    }
+    return node(es,shift);
+  }
+
+  int len() { return _len; }
+
+  // TypeObj at alias, or null if missing
+  TypeObj at( int alias ) {
+    if( alias >= _len ) return null;
+    Node n = _root;
+    for( int shift=_shift; shift>0; shift-=BITS )
+      if( (n = (Node)n._es[(alias>>>shift)&MASK])==null )
+        return null;
+    return (TypeObj)n._es[alias&MASK];
+  }
+
+  // Smallest present alias at or after 'alias', or -1.  Skips empty subtrees,
+  // so cheap to iterate a sparse map:
+  //   for( int i=m.next(0); i!=-1; i=m.next(i+1) )
+  int next( int alias ) { return alias >= _len ? -1 : next(_root,_shift,0,alias); }
+  private static int next( Node n, int shift, int base, int alias ) {
+    for( int k = alias>base ? (alias-base)>>>shift : 0; k<WIDTH; k++ ) {
+      Object e = n._es[k];
+      if( e==null ) continue;
+      int kbase = base+(k<<shift);
+      if( shift==0 ) return kbase;
+      int x = next((Node)e,shift-BITS,kbase,alias);
+      if( x!=-1 ) return x;
+    }
+    return -1;
+  }
+
+  // New map with alias set to 't'; a null 't' removes the alias.
+  AliasMap set( int alias, TypeObj t ) {
+    if( at(alias)==t ) return this;
+    int shift = Math.max(_shift,shift(alias+1));
+    Node root = set(grow(shift),shift,alias,t);
+    return t==null ? trim(root,shift) : new AliasMap(root,shift,Math.max(_len,alias+1));
+  }
+  private static Node set( Node n, int shift, int alias, TypeObj t ) {
+    Object[] es = n==null ? new Object[WIDTH] : n._es.clone();
+    int k = (alias>>>shift)&MASK;
+    es[k] = shift==0 ? t : set((Node)es[k],shift-BITS,alias,t);
+    return node(es,shift);
+  }
+  // Root made taller, with the old root as kid 0
+  private Node grow( int shift ) {
+    Node root = _root;
+    for( int s=_shift; s<shift && root!=null; s+=BITS ) {
+      Object[] es = new Object[WIDTH];
+      es[0] = root;
+      root = new Node(es,root._hash);
+    }
+    return root;
+  }
+  // Shortest root and tight length after removals
+  private static AliasMap trim( Node root, int shift ) {
+    while( shift>0 && root!=null && only_kid0(root) ) {
+      root = (Node)root._es[0];
+      shift -= BITS;
+    }
+    if( root==null ) return EMPTY;
+    int max=0;
+    Node n = root;
+    for( int s=shift; ; s-=BITS ) {
+      int k=WIDTH-1;
+      while( n._es[k]==null ) k--;
+      max += k<<s;
+      if( s==0 ) break;
+      n = (Node)n._es[k];
+    }
+    return new AliasMap(root,shift,max+1);
+  }
+  private static boolean only_kid0( Node n ) {
+    for( int k=1; k<WIDTH; k++ )
+      if( n._es[k]!=null )
+        return false;
+    return true;
+  }
+
+  // Apply 'f' to every present alias; 'f' never returns null.
+  AliasMap map( UnaryOperator<TypeObj> f ) {
+    return _root==null ? this : new AliasMap(map(_root,_shift,f),_shift,_len);
+  }
+  private static Node map( Node n, int shift, UnaryOperator<TypeObj> f ) {
+    if( n==null ) return null;
+    Object[] es = new Object[WIDTH];
+    for( int k=0; k<WIDTH; k++ ) {
+      Object e = n._es[k];
+      es[k] = shift==0 ? (e==null ? null : f.apply((TypeObj)e)) : map((Node)e,shift-BITS,f);
+    }
+    return node(es,shift);
+  }
+
+  // Merge two maps.  'f' computes the result for an alias present in either;
+  // aliases missing from both stay missing.  Subtrees the maps share are
+  // returned unchanged, so 'f' must return 't' for an alias mapped to the same
+  // 't' in both, as a meet does.
+  static AliasMap zip( AliasMap a, AliasMap b, IntFunction<TypeObj> f ) {
+    int shift = Math.max(a._shift,b._shift);
+    return trim(zip(a.grow(shift),b.grow(shift),shift,0,f),shift);
+  }
+  private static Node zip( Node x, Node y, int shift, int base, IntFunction<TypeObj> f ) {
+    if( x==y ) return x;        // Shared subtree, or both empty
+    Object[] es = new Object[WIDTH];
+    boolean same_x = x!=null, same_y = y!=null;
+    for( int k=0; k<WIDTH; k++ ) {
+      Object ex = x==null ? null : x._es[k];
+      Object ey = y==null ? null : y._es[k];
+      int idx = base+(k<<shift);
+      Object e = shift==0
+        ? (ex==null && ey==null ? null : f.apply(idx))
+        : zip((Node)ex,(Node)ey,shift-BITS,idx,f);
+      es[k] = e;
+      same_x &= e==ex;
+      same_y &= e==ey;
+    }
+    // Keep sharing with an input, if the result matches it
+    return same_x ? x : (same_y ? y : node(es,shift));
+  }
+
+  // Dense copy, as long as len()
+  TypeObj[] asAry() {
+    TypeObj[] as = new TypeObj[_len];
+    for( int i=next(0); i!=-1; i=next(i+1) )
+      as[i] = at(i);
+    return as;
+  }
+
+  @Override public int hashCode() { return _root==null ? 0 : _root._hash; }
+  @Override public boolean equals( Object o ) {
+    if( this==o ) return true;
+    if( !(o instanceof AliasMap) ) return false;
+    AliasMap m = (AliasMap)o;
+    return _len==m._len && eq(_root,m._root,_shift);
+  }
+  private static boolean eq( Node x, Node y, int shift ) {
+    if( x==y ) return true;
+    if( x==null || y==null || x._hash!=y._hash ) return false;
+    for( int k=0; k<WIDTH; k++ )
+      if( shift==0 ? x._es[k]!=y._es[k] // note '==' and NOT '.equals()'
+          : !eq((Node)x._es[k],(Node)y._es[k],shift-BITS) )
+        return false;
+    return true;
+  }
+}
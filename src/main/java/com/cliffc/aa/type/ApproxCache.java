@@ -0,0 +1,104 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.util.SB;
+
+import java.util.Arrays;
+
+// Global memo of TypeStruct.approx2 results, keyed by (struct, cutoff, alias
+// set).  Recursive functions and HM ask for the same approximation over and
+// over, and each miss is a deep clone plus a full cyclic install.
+//
+// Keys are all interned (the struct is a Type, the aliases are hash-consed
+// Bits), so keys compare by pointer.  Layout and eviction are as MeetCache: an
+// open-addressed table probed over a short fixed window, with a CLOCK sweep
+// picking the victim when the window is full.  Results are interned, so are
+// shared by all threads; the cache locks itself.
+//
+// Alias overlap depends on the alias tree, so the cache is flushed whenever
+// BitsAlias resets.  Sized from the "aa.approx_cache" system property, or by
+// calling set_size.
+public final class ApproxCache {
+  private static final int PROBE = 8; // Probe window; also the CLOCK sweep length
+
+  private static TypeStruct[] _ts; // Key struct; null is empty
+  private static BitsAlias [] _as; // Key aliases
+  private static int       [] _cs; // Key cutoffs
+  private static TypeStruct[] _vals;
+  private static boolean   [] _refs; // CLOCK reference bits
+  private static int _mask, _len;
+  private static long _hits, _misses, _evicts;
+  static { set_size(Integer.getInteger("aa.approx_cache",1<<12)); }
+
+  private static int idx( TypeStruct ts, int cutoff, BitsAlias aliases ) {
+    int h = ts._uid*0x9E3779B9 + aliases._hash*31 + cutoff;
+    return (h ^ (h>>>16)) & _mask;
+  }
+
+  static synchronized TypeStruct get( TypeStruct ts, int cutoff, BitsAlias aliases ) {
+    for( int i=0, idx=idx(ts,cutoff,aliases); i<PROBE; i++, idx=(idx+1)&_mask ) {
+      if( _ts[idx]==null ) break; // Slots are never emptied, so a miss
+      if( _ts[idx]==ts && _as[idx]==aliases && _cs[idx]==cutoff )
+        { _hits++; _refs[idx]=true; return _vals[idx]; }
+    }
+    _misses++;
+    return null;
+  }
+
+  static synchronized TypeStruct put( TypeStruct ts, int cutoff, BitsAlias aliases, TypeStruct apx ) {
+    assert ts.interned() && apx.interned();
+    int home = idx(ts,cutoff,aliases), idx=home;
+    for( int i=0; i<PROBE; i++, idx=(idx+1)&_mask ) {
+      if( _ts[idx]==null ) { _len++; break; } // Empty slot
+      if( _ts[idx]==ts && _as[idx]==aliases && _cs[idx]==cutoff ) break; // Replace in-place
+      if( i==PROBE-1 ) {        // Window is full; sweep for a victim
+        idx = victim(home);
+        _evicts++;
+      }
+    }
+    _ts[idx] = ts;  _as[idx] = aliases;  _cs[idx] = cutoff;
+    _vals[idx] = apx;
+    _refs[idx] = false;         // Must hit once to earn a second chance
+    return apx;
+  }
+
+  private static int victim( int home ) {
+    for( int i=0, idx=home; i<PROBE; i++, idx=(idx+1)&_mask ) {
+      if( !_refs[idx] ) return idx;
+      _refs[idx] = false;
+    }
+    return home;
+  }
+
+  // Drop all cached results; the size and stats are unchanged.
+  public static synchronized void clear() {
+    Arrays.fill(_ts,null);
+    Arrays.fill(_as,null);
+    Arrays.fill(_vals,null);
+    Arrays.fill(_refs,false);
+    _len = 0;
+  }
+  // Change the cache size, rounded up to a power of 2.  Flushes the cache.
+  public static synchronized void set_size( int size ) {
+    int len = Integer.highestOneBit(Math.max(PROBE,size-1)<<1);
+    _ts   = new TypeStruct[len];
+    _as   = new BitsAlias [len];
+    _cs   = new int       [len];
+    _vals = new TypeStruct[len];
+    _refs = new boolean   [len];
+    _mask = len-1;
+    _len  = 0;
+  }
+  public static int  size() { return _ts.length; }
+  public static int  len () { return _len; }
+  public static long hits() { return _hits; }
+  public static long misses() { return _misses; }
+  public static long evictions() { return _evicts; }
+  public static synchronized void reset_stats() { _hits = _misses = _evicts = 0; }
+
+  public static synchronized SB str( SB sb ) {
+    long tot = _hits+_misses;
+    return sb.p("approx cache ").p(_len).p('/').p(size())
+      .p(", hits ").p(_hits).p(", misses ").p(_misses).p(", evicts ").p(_evicts)
+      .p(", hit rate ").p(tot==0 ? 0 : (int)(_hits*100/tot)).p('%');
+  }
+}
@@ -1,5 +1,6 @@
 package com.cliffc.aa.type;
 
+import com.cliffc.aa.type.ChunkedBits.Builder;
 import com.cliffc.aa.util.*;
 import org.jetbrains.annotations.NotNull;
 
@@ -63,57 +64,43 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
   // If _bits is NULL, then _con is a single bit and is +/- for meet/join.
   // If _bits is not-null, then _con is +1 for meet, and -1 for join.
   // The NIL bit has both meet & join flavors, required for a lattice.
-  long[] _bits;   // Bits set or null for a single bit
+  // Large split trees make for large sparse sets, so _bits is compressed.
+  ChunkedBits _bits; // Bits set or null for a single bit
   int _con;       // value of single bit
   int _hash;      // Pre-computed hashcode
   // Intern: lookup and return an existing Bits or install in hashmap and
   // return a new Bits.  Overridden in subclasses to make type-specific Bits.
-  abstract B make_impl(int con, long[] bits );
+  abstract B make_impl(int con, ChunkedBits bits );
   abstract Tree<B> tree();
   public abstract B ALL();
   public abstract B ANY();
   public abstract B EMPTY();
 
   // Common init
-  void init(int con, long[] bits ) {
+  void init(int con, ChunkedBits bits ) {
     _con = con;
     _bits=bits;
-    long sum=_con;
-    if( _bits != null ) for( long l : _bits ) sum += l;
-    _hash = (int)((sum>>32)+sum);
+    _hash = _con + (_bits==null ? 0 : _bits.hashCode()*7);
     if( _hash==0 ) _hash=1;
     assert check();
   }
   private boolean check() {
     if( _bits==null ) return true;  // Must be a single bit#
     if( _con != 1 && _con != -1 ) return false;
-    if( _bits.length==0 ) return false;  // Empty bits replaced by a con
-    if( _bits.length==1 && _bits[0]== 0 ) return false; // NO bits is bad, use EMPTY instead
-    if( _bits[_bits.length-1]==0 ) return false; // Array is "tight"
-    if( _bits.length==1 && _bits[0]==1 ) return true; // NIL
+    if( _bits.card()==0 ) return false; // NO bits is bad, use EMPTY instead
+    // For efficiency, 1 bit set uses 'con' instead of 'bits', except NIL
+    if( _bits.card()==1 ) return _bits.test(0);
     // No set bit has a parent bit set, because the parent overrides
-    Tree<B> tree = tree();
-    for( int i : this )
-      while( (i = tree.parent(i)) != 0 )
-        if( test(i) )
-          return false;
-    // For efficiency, 1 bit set uses 'con' instead of 'bits'
-    return check_multi_bits(_bits); // Found multiple bits
-  }
-  private static boolean check_multi_bits( long[] bits) {
-    int len = bits.length;
-    long b = bits[len-1];             // Last word
-    if( (b & (b-1))!=0 ) return true; // Last word has multiple bits
-    // Check multiple bits spread over multiple words
-    for( int i=0; i<len-1; i++ ) if( bits[i] != 0 ) return true;
-    return false;                // Found a single bit in last word
+    Tree.Labels l = tree()._lbl;
+    long hi = Long.MIN_VALUE;   // End of the last subtree seen
+    for( int i : preorder(l,sets(_bits)) )
+      if( l._lo[i] < hi ) return false;
+      else hi = l._hi[i];
+    return true;
   }
   public int bitCount() {
     if( _bits==null ) return _con==0 ? 0 : 1;
-    int sum=0;
-    for( long b : _bits )
-      sum += Long.bitCount(b);
-    return sum;
+    return _bits.card();
   }
   @Override public int hashCode( ) { return _hash; }
   @Override public boolean equals( Object o ) {
@@ -123,10 +110,7 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
     if( _con != bs._con || _hash != bs._hash ) return false;
     if( _bits == bs._bits ) return true;
     if( _bits ==null || bs._bits==null ) return false;
-    if( _bits.length != bs._bits.length ) return false;
-    for( int i=0; i<_bits.length; i++ )
-      if( _bits[i]!=bs._bits[i] ) return false;
-    return true;
+    return _bits.equals(bs._bits);
   }
   @Override public String toString() { return str(new SB()).toString(); }
   public SB str(SB sb) {
@@ -139,63 +123,52 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
     sb.p('[');
     if( above_center() ) sb.p('~');
     char sep = above_center()?'+':',';
-    if( test(_bits,1) ) {
-      if( test(_bits,0) ) sb.p('0').p(sep);
+    if( _bits.test(1) ) {
+      if( _bits.test(0) ) sb.p('0').p(sep);
       return sb.p(above_center() ? "ANY]" : "ALL]");
     }
     for( Integer idx : this ) sb.p(idx).p(sep);
     return sb.unchar().p(']');
   }
 
-  // Constructor taking an array of bits, and allowing join/meet selection.
+  // Constructor taking a set of bits, and allowing join/meet selection.
   // Canonicalizes the bits.  The 'this' pointer is only used to clone the class.
-  private B make( boolean any, long[] bits ) {
-    // If a 'parent' bit is set, then no need to have any child bits set.
-    Tree<B> tree = tree();
-    // TODO: Run this loop backwards, avoids most tree-walks; lowers O(n log n) to O(n).
-    for( int i=0; i<bits.length; i++ ) { // For all words
-      long l = bits[i];
-      if( l!=0 ) {
-        for( int j=0; j<64; j++ ) // For all bits in word
-          if( (mask(j)&l) != 0 ) {
-            int par = (i<<6)+j; // Kid index
-            while( (par = tree.parent(par)) != 0 ) // Walk parent chain
-              if( test(bits,par) )                 // If parent set
-                { bits[i]&=~mask(j); break; }      // then clear kid
-          }
-      }
+  private B make( boolean any, Builder b ) {
+    // If a 'parent' bit is set, then no need to have any child bits set.  In
+    // tree pre-order a kid follows its parent, inside the parent's interval.
+    Tree.Labels l = tree()._lbl;
+    int n=0;
+    int[] is = new int[4];
+    for( int i=b.next(1); i!=-1; i=b.next(i+1) ) { // All bits, except nil
+      if( n==is.length ) is = Arrays.copyOf(is,n<<1);
+      is[n++] = i;
     }
-
-    // Remove any trailing empty words
-    int len = bits.length;
-    while( len > 1 && bits[len-1]==0 ) len--;
-    if( bits.length != len ) bits = Arrays.copyOf(bits,len);
-
-    // Check for a single bit or NO bits
-    if( check_multi_bits(bits) ) return make_impl(any ? -1 : 1,bits);
-    // Special check for +/-0
-    if( len==1 && bits[0]==1 ) return make_impl(any ? -1 : 1,bits);
+    long hi = Long.MIN_VALUE;   // End of the last kept subtree
+    for( int i : preorder(l,n==is.length ? is : Arrays.copyOf(is,n)) )
+      if( l._lo[i] < hi ) b.clear(i); // Parent set, so clear kid
+      else hi = l._hi[i];
+    ChunkedBits bits = b.build();
     // Empty is self-dual, ignores 'any'
-    if( len==1 && bits[0]==0 ) return make_impl(0,null);
-    // Single bit
-    int bnum0 = 63 - Long.numberOfLeadingZeros(bits[len-1]);
-    int bnum = bnum0 + ((len-1)<<6);
-    if( any ) bnum = -bnum;
-    return make_impl(bnum,null);
+    if( bits.card()==0 ) return make_impl(0,null);
+    // Single bit, except +/-0
+    if( bits.card()==1 && !bits.test(0) ) {
+      int bnum = bits.max();
+      return make_impl(any ? -bnum : bnum,null);
+    }
+    return make_impl(any ? -1 : 1,bits);
   }
   // Constructor taking a single bit
-  final B make( int bit ) { return bit==0 ? make_impl(1,new long[]{1}) : make_impl(bit,null); }
+  final B make( int bit ) { return bit==0 ? make_impl(1,ChunkedBits.NIL) : make_impl(bit,null); }
   // Constructor taking an array of bits
   public final B make( int... bits ) {
-    int max= 0;                // Find max bit
-    for( int bit : bits ) max=Math.max(max,bit);
-    long[] ls = bits(max);  // Big enuf bits
-    for( int bit : bits ) or(ls,bit);
-    return make(false,ls);
+    Builder b = new Builder();
+    for( int bit : bits ) b.set(bit);
+    return make(false,b);
+  }
+  // Private mutable copy of the bits, expanding a single bit
+  private Builder builder() {
+    return _bits==null ? new Builder().set(Math.abs(_con)) : new Builder(_bits);
   }
-
-  private static int  idx (long i) { return (int)(i>>6); }
-  private static long mask(long i) { return 1L<<(i&63); }
 
   public int getbit() { assert _bits==null && _con!=0; return _con; }
   public int abit() { return _bits==null&&_con!=0 ? _con : -1; }
@@ -203,33 +176,34 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
   // Only empty and nil.  Other bits represent sets (possibly unsplit).
   public boolean is_con() { return is_nil() || is_empty(); }
   public boolean is_empty() { return _bits==null && _con==0; }
-  public boolean is_nil() { return _bits!=null && _bits.length==1 && _bits[0]==1; }
-  boolean may_nil() { return _con==-1 && _bits != null && ((_bits[0]&1) == 1); }
+  public boolean is_nil() { return _bits!=null && _bits.card()==1 && _bits.test(0); }
+  boolean may_nil() { return _con==-1 && _bits != null && _bits.test(0); }
   // Add a low nil.
   @SuppressWarnings("unchecked")
   public B meet_nil() {
     if( above_center() ) return make(0); // Crossing the centerline, drop all above bits, just [0]
     if( test(0) ) return (B)this;// Already has nil
-    long[] bs = _bits;
-    if( bs==null )              // Is a single compressed bit
-      or(bs = bits(Math.abs(_con)),Math.abs(_con)); // Decompress single bit into array
-    else bs = _bits.clone();    // Make a private set
-    bs[0] |= 1;                 // Set nil
-    return make(false,bs);      // It's below center now, even if the original was above
+    // Make a private set, and set nil.  It's below center now, even if the
+    // original was above.
+    return make(false,builder().set(0));
   }
 
-  // Test a specific bit is set or clear on a given bits
-  private static boolean test(long[] bits, int i) { return idx(i) < bits.length && (bits[idx(i)]&mask(i))!=0; }
   // Test a specific bit is set or clear on this Bits
   public boolean test(int i) {
     if( _bits==null ) return i!=0 && i==Math.abs(_con);
-    int idx = idx(i);
-    return idx < _bits.length && test(_bits, i);
+    return _bits.test(i);
   }
   // Test if this bit, or any parent of this bit, is set
   public boolean test_recur( int i ) {
     if( test(i) ) return true;
     Tree<B> tree = tree();
+    // Check the few set bits in O(1) each, or walk a short parent chain
+    if( _bits!=null && _bits.card() < tree.depth(i) ) {
+      for( int j=_bits.next(1); j!=-1; j=_bits.next(j+1) )
+        if( tree.is_parent(j,i) )
+          return true;
+      return false;
+    }
     while( (i = tree.parent(i)) != 0 )
       if( test(i) )
         return true;
@@ -243,19 +217,16 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
   @SuppressWarnings("unchecked")
   B not_nil() {
     if( !above_center() || _bits == null ) return (B)this;  // Some constant not-nil
-    if( !test(_bits,0) ) return (B)this; // No nil choice
-    long[] bs = _bits.clone();           // Keep all other bits
-    and(bs,0);                           // remove nil choice
-    return make(true,bs);                // Choices without nil
+    if( !_bits.test(0) ) return (B)this; // No nil choice
+    // Keep all other bits, remove nil choice
+    return make(true,new Builder(_bits).clear(0));
   }
   // Remove the named bit, but otherwise preserve the type
   @SuppressWarnings("unchecked")
   public B clear(int bit) {
     if( !test(bit) ) return (B)this;
     if( _bits == null ) return EMPTY();
-    long[] bs = _bits.clone();
-    and(bs,bit);
-    return make(_con==-1,bs);
+    return make(_con==-1,new Builder(_bits).clear(bit));
   }
   // Add the named bit, but otherwise preserve the type
   @SuppressWarnings("unchecked")
@@ -270,18 +241,11 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
   @SuppressWarnings("unchecked")
   public B strip_nil() {
     if( _bits == null ) return (B)this; // Should not be a nil to remove
-    if( (_bits[0] &1)==0 ) return (B) this; // No nil
-    long[] bs = _bits.clone();
-    bs[0] &= ~1;                // Strip nil
-    return make(_con==-1,bs);
+    if( !_bits.test(0) ) return (B) this; // No nil
+    return make(_con==-1,new Builder(_bits).clear(0)); // Strip nil
   }
 
-  private static void or ( long[] bits, long con ) { bits[idx(con)] |=  mask(con); }
-  private static void and( long[] bits, long con ) { bits[idx(con)] &= ~mask(con); }
-  private static long[] bits( int b ) { return new long[idx(b)+1]; }
-  public int max( ) {
-    return _bits==null ? Math.abs(_con) : (63 - Long.numberOfLeadingZeros(_bits[_bits.length-1]))+((_bits.length-1)<<6);
-  }
+  public int max( ) { return _bits==null ? Math.abs(_con) : _bits.max(); }
 
   // Meet is more complex than the obvious AND/OR over bits.  There's a bit of
   // prefix logic to remove common cases (meet with ANY/ALL/NIL), and a final
@@ -306,61 +270,84 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
     if( is_empty() ) return bs.above_center() ? (B)this : bs;
     if( bs.is_empty() ) return above_center() ? bs : (B)this;
 
-    long[] bits0 = _bits, bits1 = bs._bits;
-    int con0 = Math.abs(_con), con1 = Math.abs(bs._con);
-
-    // Expand any single bits
-    if( bits0==null ) or(bits0=bits(con0), con0);
-    if( bits1==null ) or(bits1=bits(con1), con1);
-    con0 =    _con < 0 ? -1 : 1;
-    con1 = bs._con < 0 ? -1 : 1;
+    int con0 =    _con < 0 ? -1 : 1;
+    int con1 = bs._con < 0 ? -1 : 1;
 
-    // Bigger in bits0
-    if( bits0.length < bits1.length ) { long[] tmp=bits0; bits0=bits1; bits1=tmp; int t=con0; con0=con1; con1=t; }
     // Both meets?  Set-union
     if( con0 == 1 && con1 == 1 ) {
-      long[] bits = bits0.clone();        // Clone larger
-      for( int i=0; i<bits1.length; i++ ) // OR in smaller bits
-        bits[i] |= bits1[i];
-      return make(false,bits);  // This will remove parent/child dups
+      // Copy the larger, and OR in the smaller; chunks only in the smaller are
+      // shared, not copied.
+      Bits<B> big = this, small = bs;
+      if( bitCount() < bs.bitCount() ) { big = bs; small = this; }
+      Builder b = big.builder();
+      if( small._bits==null ) b.set(Math.abs(small._con));
+      else b.or(small._bits);
+      return make(false,b);     // This will remove parent/child dups
     }
 
     // Both joins?  Set-intersection
-    Tree<B> tree = tree();
     if( con0 == -1 && con1 == -1 ) {
-      long[] bits = new long[bits0.length];// Result array
-      join(tree,bits0,bits1,bits);         // Merge left into right
-      join(tree,bits1,bits0,bits);         // Merge right into left
+      Tree.Labels l = tree()._lbl;
+      int[] is0 = preorder(l,sets()), is1 = preorder(l,bs.sets());
+      Builder b = new Builder(); // Result set
+      join(l,is0,is1,b);         // Merge left into right
+      join(l,is1,is0,b);         // Merge right into left
       // Nil is not part of the parent tree, so needs to be set explicitly
-      if( (bits0[0]&1)==1 && (bits1[0]&1)==1 )  bits[0]|=1;
+      if( _bits!=null && bs._bits!=null && _bits.test(0) && bs._bits.test(0) ) b.set(0);
       // Just the intersection, which may be empty.
-      return make(true,bits);
+      return make(true,b);
     }
 
     // Mixed meet/join.  Toss away the join, keep only the meet bits.
     return above_center() ? bs : (B)this;
   }
 
-  // Virtually expand all bits in both arrays to cover all children,
-  // then AND the bits, then re-pack.  However, we do it tree-by-tree
-  // to keep from doing the full expansion costs.
-  private static void join( Tree tree, long[] bits0, long[] bits1, long[] bits2 ) {
-    // If a 'parent' bit is set, then no need to have any child bits set.
-    for( int i=0; i<bits0.length; i++ ) { // For all words
-      long l = bits0[i];
-      if( l!=0 ) {
-        // TODO: Use Long.numberOfTrailingZeros (or LeadingZeros probably) to
-        // do this only once-per-set-bit.
-        for( int j=0; j<64; j++ ) // For all bits in word
-          if( (mask(j)&l) != 0 ) {
-            for( int par = (i<<6)+j; par!=0; par = tree.parent(par) ) // Walk parent chain
-              if( test(bits1,par) )                // If parent set
-                { bits2[i]|=mask(j); break; }      // then set kid
-          }
-      }
+  // Virtually expand all bits in both sets to cover all children, then AND
+  // the bits, then re-pack.  However, we do it tree-by-tree to keep from doing
+  // the full expansion costs: a bit from is0 is kept if it, or any parent, is
+  // in is1.  Both are in tree pre-order, so this is a merge; 'hi' is the
+  // furthest reach of any is1 subtree starting at or before the is0 bit.
+  private static void join( Tree.Labels l, int[] is0, int[] is1, Builder b ) {
+    long hi = Long.MIN_VALUE;
+    int j=0;
+    for( int kid : is0 ) {
+      long lo = l._lo[kid];
+      while( j<is1.length && l._lo[is1[j]] <= lo ) hi = Math.max(hi,l._hi[is1[j++]]);
+      if( lo < hi ) b.set(kid); // Inside an is1 subtree
     }
   }
 
+  // All set bits except nil
+  int[] sets() {
+    return _bits==null ? new int[]{Math.abs(_con)} : sets(_bits);
+  }
+  private static int[] sets( ChunkedBits bits ) {
+    int[] is = new int[bits.card()-(bits.test(0)?1:0)];
+    for( int i=bits.next(1), n=0; i!=-1; i=bits.next(i+1) ) is[n++]=i;
+    return is;
+  }
+  // Sort bits into tree pre-order, by interval start; in-place heapsort.
+  private static int[] preorder( Tree.Labels l, int[] is ) {
+    long[] lo = l._lo;
+    int n = is.length;
+    if( n < 2 ) return is;
+    for( int i=(n>>1)-1; i>=0; i-- ) sift(lo,is,i,n);
+    for( int i=n-1; i>0; i-- ) {
+      int t=is[0]; is[0]=is[i]; is[i]=t;
+      sift(lo,is,0,i);
+    }
+    return is;
+  }
+  private static void sift( long[] lo, int[] is, int i, int n ) {
+    int x = is[i];
+    for( int c; (c=(i<<1)+1) < n; i=c ) {
+      if( c+1 < n && lo[is[c+1]] > lo[is[c]] ) c++;
+      if( lo[is[c]] <= lo[x] ) break;
+      is[i] = is[c];
+    }
+    is[i] = x;
+  }
+
   // Constants are self-dual; classes just flip the meet/join bit.
   @SuppressWarnings("unchecked")
   public B dual() { return make_impl(-_con,_bits); }
@@ -396,23 +383,51 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
 
   // Bits are split in a tree like pattern, recorded here.  To avoid rehashing,
   // the exact same tree-split is handed out between tests.  Basically there is
-  // only 1 tree shape, lazily discovered, for all tests.
+  // only 1 tree shape, lazily discovered, for all tests.  Shared by all
+  // compilation threads, so changes are synchronized; lookups are not, as
+  // arrays only grow and a recorded parent never changes.
+  //
+  // Each bit also has an interval label, nested like an Euler tour: a bit's
+  // descendants all have labels inside its interval, and unrelated bits have
+  // disjoint intervals.  So "is i below j" is a pair of compares instead of a
+  // walk up the parent chain, and sorting bits by label puts them in tree
+  // pre-order.  New kids take half the free space left in their parent's
+  // interval; when a parent runs out the whole tree is relabeled, leaving
+  // free space in every interval in proportion to its subtree size.  Labels
+  // depend only on parents, so reset_to_init0 keeps them.
   public static class Tree<B extends Bits<B>> {
     int _cnt = 1; // Next available bit number
     // Invariants: _pars[kid]==parent && _kids[parent].contains(kid)
     int[]   _pars = new int[2];  // Parent bit from child bit; _cnt is the in-use part
     int[][] _kids = new int[2][];// List of kids from a parent; 1st element is in-use length
     int[] _init;                 // Used to reset _kids[X][0] for all X
+    volatile Labels _lbl = new Labels(2); // Replaced whole on grow or relabel
+
+    // Interval labels, indexed by bit.  Bit 0 is the root.
+    static final class Labels {
+      final long[] _lo, _hi;    // Bit owns [_lo,_hi) and labels its kids inside
+      final long[] _nxt;        // Start of the free space for new kids
+      final int[] _dep;         // Depth, root is 0
+      Labels( int len ) {
+        _lo = new long[len]; _hi = new long[len]; _nxt = new long[len]; _dep = new int[len];
+        _hi[0] = 1L<<62; _nxt[0] = 1;
+      }
+      Labels( Labels l, int len ) {
+        _lo = Arrays.copyOf(l._lo,len); _hi = Arrays.copyOf(l._hi,len);
+        _nxt= Arrays.copyOf(l._nxt,len); _dep= Arrays.copyOf(l._dep,len);
+      }
+    }
 
     int parent( int kid ) { return _pars[kid]; }
+    int depth( int kid ) { return _lbl._dep[kid]; }
     public boolean is_parent( int idx ) { return idx<_kids.length && _kids[idx]!=null &&_kids[idx][0]>1; }
     // Return two kids at slots ary[1] and ary[2].
     public int[] get_kids( int par ) { assert _kids[par][0]==3; return _kids[par]; }
     // True if kid is a child or equal to parent
     boolean is_parent( int par, int kid ) {
-      for( ; par <= kid; kid = parent(kid) )
-        if( par==kid ) return true;
-      return false;             // Kid will be a larger number
+      Labels l = _lbl;
+      long lo = l._lo[kid];
+      return l._lo[par] <= lo && lo < l._hi[par];
     }
 
     @Override public String toString() { return toString(new SB(),1).toString(); }
@@ -428,7 +443,7 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
     }
 
     // Split out a bit to form a new constant, from a prior a bit
-    int split(int par) {
+    synchronized int split(int par) {
       // See if we have an existing bit
       if( par < _kids.length ) { // This parent has kids already
         int[] kids = _kids[par]; //
@@ -460,23 +475,60 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
         _kids[par] = kids = Arrays.copyOf(kids,klen<<1);
       kids[klen] = bit;         // Insert new child of parent
       kids[0] = klen+1;         // Bump count of children
+      label(par,bit);
       return bit;
     }
 
+    // Label a new kid from the free space in its parent's interval
+    private void label( int par, int bit ) {
+      Labels l = _lbl;
+      if( bit >= l._lo.length ) l = new Labels(l,_pars.length);
+      long w = (l._hi[par]-l._nxt[par])>>1;
+      if( w < 2 ) { relabel(); return; } // Parent is full
+      long lo = l._lo[bit] = l._nxt[par];
+      l._hi [bit] = lo+w;
+      l._nxt[bit] = lo+1;
+      l._dep[bit] = l._dep[par]+1;
+      l._nxt[par] = lo+w;
+      _lbl = l;                 // Publish, if grown
+    }
+    // Relabel all bits.  Every bit gets an interval twice the size of its
+    // subtree; the half not used by its kids is free space.  Kids always have
+    // larger bit numbers than their parent, so subtree sizes are summed in
+    // one backwards pass and labels handed out in one forwards pass.
+    private void relabel() {
+      int n = _cnt;
+      int[] sz = new int[n];
+      for( int b=n-1; b>0; b-- ) sz[_pars[b]] += ++sz[b];
+      sz[0]++;
+      long unit = (1L<<61)/n;
+      Labels l = new Labels(_pars.length);
+      l._hi[0] = 2*unit*sz[0];
+      for( int b=1; b<n; b++ ) {
+        int par = _pars[b];
+        long lo = l._lo[b] = l._nxt[par];
+        l._hi [b] = lo+2*unit*sz[b];
+        l._nxt[b] = lo+1;
+        l._dep[b] = l._dep[par]+1;
+        l._nxt[par] = l._hi[b];
+      }
+      _lbl = l;
+    }
+
     // Record all starting types tree relationships.
-    void init0() {
+    synchronized void init0() {
       _init = new int[_kids.length];
       for( int i=0; i<_kids.length; i++ )
         _init[i] = _kids[i]==null ? 1 : _kids[i][0];
     }
     // Chop back alias tree to only those types recorded during 'init0'
-    void reset_to_init0() {
+    synchronized void reset_to_init0() {
       for( int i=0; i<_kids.length; i++ )
         if( _kids[i] != null )
           _kids[i][0] = i<_init.length ? _init[i] : 1;
     }
     int peek() { return _kids[1][_kids[1][0]]; } // for testing
-    void free(int b) {
+    synchronized void free(int b) {
       if( is_parent(b) ) return; // Too hard to compress
       int par = parent(b), idx=-1;
       for( int i=1; i<_kids[par].length; i++ ) if( _kids[par][i]==b ) { idx=i; break; }
@@ -533,15 +585,14 @@ public abstract class Bits<B extends Bits<B>> implements Iterable<Integer> {
     @Override public boolean hasNext() {
       if( _bits==null )
         if( _i==-1 && _con!=0 ) { _i=0; return true; } else return false;
-      int idx;
-      while( (idx=idx(++_i)) < _bits.length )
-        if( (_bits[idx]&mask(_i)) != 0 )
-          return true;
-      return false;
+      int i = _bits.next(_i+1);
+      if( i==-1 ) return false;
+      _i = i;
+      return true;
     }
     @Override public Integer next() {
       if( _bits==null ) return Math.abs(_con);
-      if( idx(_i) < _bits.length ) return _i;
+      if( _i >= 0 ) return _i;
       throw new java.util.NoSuchElementException();
     }
   }
@@ -10,14 +10,16 @@ public class BitsAlias extends Bits<BitsAlias> {
   // return a new Bits.  Overridden in subclasses to make type-specific Bits.
   private static final HashMap<BitsAlias,BitsAlias> INTERN = new HashMap<>();
   private static BitsAlias FREE=null;
-  @Override BitsAlias make_impl(int con, long[] bits ) {
-    BitsAlias b1 = FREE;
-    if( b1 == null ) b1 = new BitsAlias();
-    else FREE = null;
-    b1.init(con,bits);
-    BitsAlias b2 = INTERN.get(b1);
-    if( b2 != null ) { FREE = b1; return b2; }
-    else { INTERN.put(b1,b1); return b1; }
+  @Override BitsAlias make_impl(int con, ChunkedBits bits ) {
+    synchronized( INTERN ) {    // Shared by all compilation threads
+      BitsAlias b1 = FREE;
+      if( b1 == null ) b1 = new BitsAlias();
+      else FREE = null;
+      b1.init(con,bits);
+      BitsAlias b2 = INTERN.get(b1);
+      if( b2 != null ) { FREE = b1; return b2; }
+      else { INTERN.put(b1,b1); return b1; }
+    }
   }
 
   static final Bits.Tree<BitsAlias> TREE = new Bits.Tree<>();
@@ -61,7 +63,8 @@ public class BitsAlias extends Bits<BitsAlias> {
   public static int[] get_kids( int par ) { return TREE.get_kids(par); }
   // Fast reset of parser state between calls to Exec
   public static void init0() { TREE.init0(); }
-  public static void reset_to_init0() { TREE.reset_to_init0(); }
+  // Approximations depend on alias overlap, so flush them with the tree
+  public static void reset_to_init0() { TREE.reset_to_init0(); ApproxCache.clear(); }
   // Iterate over children
   public static int next_kid( int alias, int kid ) { return TREE.next_kid(alias,kid); }
 
@@ -9,14 +9,16 @@ public class BitsFun extends Bits<BitsFun> {
   // return a new Bits.  Overridden in subclasses to make type-specific Bits.
   private static final HashMap<BitsFun,BitsFun> INTERN = new HashMap<>();
   private static BitsFun FREE=null;
-  @Override BitsFun make_impl(int con, long[] bits ) {
-    BitsFun b1 = FREE;
-    if( b1 == null ) b1 = new BitsFun();
-    else FREE = null;
-    b1.init(con,bits);
-    BitsFun b2 = INTERN.get(b1);
-    if( b2 != null ) { FREE = b1; return b2; }
-    else { INTERN.put(b1,b1); return b1; }
+  @Override BitsFun make_impl(int con, ChunkedBits bits ) {
+    synchronized( INTERN ) {    // Shared by all compilation threads
+      BitsFun b1 = FREE;
+      if( b1 == null ) b1 = new BitsFun();
+      else FREE = null;
+      b1.init(con,bits);
+      BitsFun b2 = INTERN.get(b1);
+      if( b2 != null ) { FREE = b1; return b2; }
+      else { INTERN.put(b1,b1); return b1; }
+    }
   }
 
   private static final Bits.Tree<BitsFun> TREE = new Bits.Tree<>();
@@ -31,7 +33,7 @@ public class BitsFun extends Bits<BitsFun> {
   // Have to make a first BitsFun here; thereafter the v-call to make_impl
   // will make more on demand.  But need the first one to make a v-call.
   public  static final BitsFun NZERO = new BitsFun().make_impl(ALL,null);
-  public  static final BitsFun FULL = new BitsFun().make_impl(1,new long[]{1L | (1L<<ALL)});
+  public  static final BitsFun FULL = new BitsFun().make_impl(1,ChunkedBits.of(0,ALL));
   public  static final BitsFun ANY = FULL.dual();
   public  static final BitsFun NIL = make0(0);
   public  static final BitsFun XNIL = NIL.dual();
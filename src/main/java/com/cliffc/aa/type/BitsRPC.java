@@ -8,16 +8,18 @@ import java.util.HashMap;
 public class BitsRPC extends Bits<BitsRPC> {
   // Intern: lookup and return an existing Bits or install in hashmap and
   // return a new Bits.  Overridden in subclasses to make type-specific Bits.
-  private static HashMap<BitsRPC,BitsRPC> INTERN = new HashMap<>();
+  private static final HashMap<BitsRPC,BitsRPC> INTERN = new HashMap<>();
   private static BitsRPC FREE=null;
-  @Override BitsRPC make_impl(int con, long[] bits ) {
-    BitsRPC b1 = FREE;
-    if( b1 == null ) b1 = new BitsRPC();
-    else FREE = null;
-    b1.init(con,bits);
-    BitsRPC b2 = INTERN.get(b1);
-    if( b2 != null ) { FREE = b1; return b2; }
-    else { INTERN.put(b1,b1); return b1; }
+  @Override BitsRPC make_impl(int con, ChunkedBits bits ) {
+    synchronized( INTERN ) {    // Shared by all compilation threads
+      BitsRPC b1 = FREE;
+      if( b1 == null ) b1 = new BitsRPC();
+      else FREE = null;
+      b1.init(con,bits);
+      BitsRPC b2 = INTERN.get(b1);
+      if( b2 != null ) { FREE = b1; return b2; }
+      else { INTERN.put(b1,b1); return b1; }
+    }
   }
 
   private static final Bits.Tree<BitsRPC> TREE = new Bits.Tree<>();
@@ -30,7 +32,7 @@ public class BitsRPC extends Bits<BitsRPC> {
   
   // Have to make a first BitsRPC here; thereafter the v-call to make_impl
   // will make more on demand.  But need the first one to make a v-call.
-  static final BitsRPC FULL = new BitsRPC().make_impl(1,new long[]{1L | (1L<<ALL)});
+  static final BitsRPC FULL = new BitsRPC().make_impl(1,ChunkedBits.of(0,ALL));
   private static final BitsRPC ANY = FULL.dual();
   public  static final BitsRPC NIL = make0(0);
   static final BitsRPC EMPTY = FULL.make(); // No bits
@@ -0,0 +1,303 @@
+package com.cliffc.aa.type;
+
+import java.util.Arrays;
+
+// Compressed, immutable set of bit numbers; the backing store for Bits.
+//
+// Roaring-style: the bit space is cut into chunks of SIZE bits, and only
+// non-empty chunks are kept, sorted by chunk number.  Each chunk is stored in
+// whichever of three containers is smallest for its contents: a sorted array
+// of offsets (sparse), a run list of [start,end] offset pairs (clustered), or
+// a plain bitmap (dense).  Roaring proper uses 64K-bit chunks; bit numbers
+// here come from Tree splits and rarely run past a few thousand, so chunks
+// are 1K bits and a full bitmap chunk is just 16 words.
+//
+// The container choice is a function of the chunk contents, so the encoding
+// is canonical and equal sets have equal encodings.  Set operations go
+// through a Builder, which decodes only the chunks it touches and shares the
+// rest with its source.
+final class ChunkedBits {
+  static final int SHIFT=10, SIZE=1<<SHIFT, OFF=SIZE-1, WORDS=SIZE>>6;
+
+  private final int[] _keys;    // Chunk numbers, ascending
+  private final Chunk[] _cs;    // Non-empty chunks, parallel to _keys
+  private final int _card;      // Count of set bits
+  private final int _hash;
+
+  private ChunkedBits( int[] keys, Chunk[] cs ) {
+    _keys=keys; _cs=cs;
+    int card=0, hash=0;
+    for( int i=0; i<keys.length; i++ ) {
+      card += cs[i]._card;
+      hash += cs[i]._hash*31+keys[i];
+    }
+    _card=card; _hash=hash;
+  }
+  static final ChunkedBits EMPTY = new ChunkedBits(new int[0],new Chunk[0]);
+  static final ChunkedBits NIL = of(0);
+
+  static ChunkedBits of( int... bits ) {
+    Builder b = new Builder();
+    for( int bit : bits ) b.set(bit);
+    return b.build();
+  }
+
+  int card() { return _card; }
+
+  // Index of the chunk holding 'key', or (-insertion point-1)
+  private int find( int key ) {
+    if( _keys.length==1 ) return _keys[0]==key ? 0 : (key < _keys[0] ? -1 : -2);
+    return Arrays.binarySearch(_keys,key);
+  }
+  boolean test( int i ) {
+    int k = find(i>>>SHIFT);
+    return k>=0 && _cs[k].test(i&OFF);
+  }
+  // Smallest set bit at or after 'i', or -1.  Usage:
+  //   for( int i=cb.next(0); i!=-1; i=cb.next(i+1) )
+  int next( int i ) {
+    int k = find(i>>>SHIFT);
+    if( k>=0 ) {
+      int x = _cs[k].next(i&OFF);
+      if( x!=-1 ) return (_keys[k]<<SHIFT)+x;
+      k++;
+    } else k = -k-1;
+    return k<_keys.length ? (_keys[k]<<SHIFT)+_cs[k].next(0) : -1;
+  }
+  // Largest set bit; the set is not empty
+  int max() {
+    int k = _keys.length-1;
+    return (_keys[k]<<SHIFT)+_cs[k].max();
+  }
+
+  @Override public int hashCode() { return _hash; }
+  @Override public boolean equals( Object o ) {
+    if( this==o ) return true;
+    if( !(o instanceof ChunkedBits) ) return false;
+    ChunkedBits cb = (ChunkedBits)o;
+    if( _hash!=cb._hash || _card!=cb._card || !Arrays.equals(_keys,cb._keys) ) return false;
+    for( int i=0; i<_cs.length; i++ )
+      if( !_cs[i].eq(cb._cs[i]) )
+        return false;
+    return true;
+  }
+
+  // --------------------------------------------------------------------------
+  // One chunk of bits, as offsets 0 to SIZE-1
+  private abstract static class Chunk {
+    final int _card, _hash;     // Set bits; hash of the bitmap contents
+    Chunk( int card, int hash ) { _card=card; _hash=hash; }
+    abstract boolean test( int off );
+    abstract int next( int off ); // Smallest set offset at or after 'off', or -1
+    abstract int max();
+    abstract void or_into( long[] ws ); // OR into a bitmap of WORDS
+    abstract boolean eq( Chunk c );
+  }
+
+  // Sorted offsets
+  private static final class Ary extends Chunk {
+    final char[] _vs;
+    Ary( char[] vs, int hash ) { super(vs.length,hash); _vs=vs; }
+    @Override boolean test( int off ) { return Arrays.binarySearch(_vs,(char)off) >= 0; }
+    @Override int next( int off ) {
+      int i = Arrays.binarySearch(_vs,(char)off);
+      if( i>=0 ) return off;
+      i = -i-1;
+      return i<_vs.length ? _vs[i] : -1;
+    }
+    @Override int max() { return _vs[_vs.length-1]; }
+    @Override void or_into( long[] ws ) { for( char v : _vs ) ws[v>>6] |= 1L<<v; }
+    @Override boolean eq( Chunk c ) { return c instanceof Ary && Arrays.equals(_vs,((Ary)c)._vs); }
+  }
+
+  // Sorted, disjoint, non-adjacent runs as inclusive [start,end] pairs
+  private static final class Run extends Chunk {
+    final char[] _rs;
+    Run( char[] rs, int card, int hash ) { super(card,hash); _rs=rs; }
+    // Index of the first run ending at or after 'off'
+    private int run( int off ) {
+      int lo=0, hi=(_rs.length>>1)-1;
+      while( lo<=hi ) {
+        int mid = (lo+hi)>>>1;
+        if( _rs[(mid<<1)+1] < off ) lo=mid+1; else hi=mid-1;
+      }
+      return lo;
+    }
+    @Override boolean test( int off ) {
+      int r = run(off)<<1;
+      return r<_rs.length && _rs[r]<=off;
+    }
+    @Override int next( int off ) {
+      int r = run(off)<<1;
+      return r<_rs.length ? Math.max(_rs[r],off) : -1;
+    }
+    @Override int max() { return _rs[_rs.length-1]; }
+    @Override void or_into( long[] ws ) {
+      for( int r=0; r<_rs.length; r+=2 )
+        for( int i=_rs[r]; i<=_rs[r+1]; i++ )
+          ws[i>>6] |= 1L<<i;
+    }
+    @Override boolean eq( Chunk c ) { return c instanceof Run && Arrays.equals(_rs,((Run)c)._rs); }
+  }
+
+  // Dense bitmap of WORDS
+  private static final class Bitmap extends Chunk {
+    final long[] _ws;
+    Bitmap( long[] ws, int card, int hash ) { super(card,hash); _ws=ws; }
+    @Override boolean test( int off ) { return (_ws[off>>6]&(1L<<off))!=0; }
+    @Override int next( int off ) { return next_set(_ws,off); }
+    @Override int max() {
+      int i=WORDS-1;
+      while( _ws[i]==0 ) i--;
+      return (i<<6)+63-Long.numberOfLeadingZeros(_ws[i]);
+    }
+    @Override void or_into( long[] ws ) { for( int i=0; i<WORDS; i++ ) ws[i] |= _ws[i]; }
+    @Override boolean eq( Chunk c ) { return c instanceof Bitmap && Arrays.equals(_ws,((Bitmap)c)._ws); }
+  }
+
+  // Smallest set bit at or after 'off' in a bitmap, or -1
+  private static int next_set( long[] ws, int off ) {
+    if( off >= SIZE ) return -1;
+    int i = off>>6;
+    long w = ws[i] & (-1L<<off);
+    while( w==0 ) {
+      if( ++i==WORDS ) return -1;
+      w = ws[i];
+    }
+    return (i<<6)+Long.numberOfTrailingZeros(w);
+  }
+  // Smallest clear bit at or after 'off' in a bitmap, or SIZE
+  private static int next_clr( long[] ws, int off ) {
+    int i = off>>6;
+    long w = ~ws[i] & (-1L<<off);
+    while( w==0 ) {
+      if( ++i==WORDS ) return SIZE;
+      w = ~ws[i];
+    }
+    return (i<<6)+Long.numberOfTrailingZeros(w);
+  }
+
+  // Pick the smallest container for a bitmap, or null if empty.  Sizes are
+  // counted in chars; ties go to the array, then the runs.
+  private static Chunk encode( long[] ws ) {
+    int card=0, runs=0, hash=0;
+    long prev=0;
+    for( long w : ws ) {
+      card += Long.bitCount(w);
+      runs += Long.bitCount(w & ~((w<<1) | (prev>>>63))); // Run starts: set bit after a clear bit
+      hash = hash*31 + (int)(w^(w>>>32));
+      prev = w;
+    }
+    if( card==0 ) return null;
+    if( card <= runs<<1 && card <= WORDS<<2 ) {
+      char[] vs = new char[card];
+      for( int i=next_set(ws,0), j=0; i!=-1; i=next_set(ws,i+1) ) vs[j++]=(char)i;
+      return new Ary(vs,hash);
+    }
+    if( runs<<1 <= WORDS<<2 ) {
+      char[] rs = new char[runs<<1];
+      for( int i=next_set(ws,0), j=0; i!=-1; ) {
+        int e = next_clr(ws,i);
+        rs[j++]=(char)i; rs[j++]=(char)(e-1);
+        i = next_set(ws,e);
+      }
+      return new Run(rs,card,hash);
+    }
+    return new Bitmap(ws.clone(),card,hash);
+  }
+
+  // --------------------------------------------------------------------------
+  // Mutable set, used to build a new ChunkedBits.  Chunks are shared with the
+  // source until written, then decoded to a bitmap and re-encoded on build.
+  static final class Builder {
+    private int[] _keys;
+    private Chunk[] _cs;        // Shared chunk, or null if decoded
+    private long[][] _ws;       // Decoded chunk, or null if shared
+    private int _len;
+    Builder() { _keys=new int[2]; _cs=new Chunk[2]; _ws=new long[2][]; }
+    Builder( ChunkedBits cb ) {
+      _len = cb._keys.length;
+      int len = Math.max(_len,2);
+      _keys = Arrays.copyOf(cb._keys,len);
+      _cs = Arrays.copyOf(cb._cs,len);
+      _ws = new long[len][];
+    }
+
+    // Index of the chunk holding 'key', or (-insertion point-1)
+    private int find( int key ) { return Arrays.binarySearch(_keys,0,_len,key); }
+    // Decoded bitmap for 'key', inserting an empty one as needed
+    private long[] words( int key ) {
+      int k = find(key);
+      if( k<0 ) {
+        k = -k-1;
+        if( _len==_keys.length ) {
+          _keys = Arrays.copyOf(_keys,_len<<1);
+          _cs   = Arrays.copyOf(_cs  ,_len<<1);
+          _ws   = Arrays.copyOf(_ws  ,_len<<1);
+        }
+        System.arraycopy(_keys,k,_keys,k+1,_len-k);
+        System.arraycopy(_cs  ,k,_cs  ,k+1,_len-k);
+        System.arraycopy(_ws  ,k,_ws  ,k+1,_len-k);
+        _len++;
+        _keys[k]=key; _cs[k]=null; _ws[k]=new long[WORDS];
+      }
+      return words_at(k);
+    }
+    private long[] words_at( int k ) {
+      if( _ws[k]==null ) {
+        _cs[k].or_into(_ws[k] = new long[WORDS]);
+        _cs[k]=null;
+      }
+      return _ws[k];
+    }
+
+    boolean test( int i ) {
+      int k = find(i>>>SHIFT);
+      if( k<0 ) return false;
+      return _ws[k]==null ? _cs[k].test(i&OFF) : (_ws[k][(i&OFF)>>6]&(1L<<i))!=0;
+    }
+    Builder set( int i ) { words(i>>>SHIFT)[(i&OFF)>>6] |= 1L<<i; return this; }
+    Builder clear( int i ) {
+      int k = find(i>>>SHIFT);
+      if( k>=0 && test(i) ) words_at(k)[(i&OFF)>>6] &= ~(1L<<i);
+      return this;
+    }
+    // Union in all of 'cb'; chunks missing here are shared, not copied
+    Builder or( ChunkedBits cb ) {
+      for( int i=0; i<cb._keys.length; i++ ) {
+        int k = find(cb._keys[i]);
+        if( k>=0 && _cs[k]==cb._cs[i] ) continue; // Same chunk already
+        if( k<0 ) {
+          words(cb._keys[i]);   // Insert, then swap the empty bitmap for the shared chunk
+          k = find(cb._keys[i]);
+          _ws[k]=null; _cs[k]=cb._cs[i];
+        } else cb._cs[i].or_into(words_at(k));
+      }
+      return this;
+    }
+    // Smallest set bit at or after 'i', or -1
+    int next( int i ) {
+      int k = find(i>>>SHIFT);
+      if( k<0 ) { k = -k-1; i=0; } else i &= OFF;
+      for( ; k<_len; k++, i=0 ) {
+        int x = _ws[k]==null ? _cs[k].next(i) : next_set(_ws[k],i);
+        if( x!=-1 ) return (_keys[k]<<SHIFT)+x;
+      }
+      return -1;
+    }
+
+    ChunkedBits build() {
+      int[] keys = new int[_len];
+      Chunk[] cs = new Chunk[_len];
+      int n=0;
+      for( int k=0; k<_len; k++ ) {
+        Chunk c = _ws[k]==null ? _cs[k] : encode(_ws[k]);
+        if( c==null ) continue; // Emptied out
+        keys[n]=_keys[k]; cs[n++]=c;
+      }
+      if( n==0 ) return EMPTY;
+      if( n<_len ) { keys=Arrays.copyOf(keys,n); cs=Arrays.copyOf(cs,n); }
+      return new ChunkedBits(keys,cs);
+    }
+  }
+}
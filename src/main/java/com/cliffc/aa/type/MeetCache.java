@@ -0,0 +1,128 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.util.SB;
+
+import java.util.Arrays;
+
+// Bounded memo of prior meet, join and isa results.  Replaces an unbounded
+// meet table which kept every transient meet ever computed reachable for the
+// life of the process.
+//
+// Keys are the pair of Type uids packed in a primitive long, so lookups and
+// inserts allocate nothing.  Uids are unique per Type object, so this is the
+// same as a pointer-equality pair compare.  The table is open-addressed with
+// linear probing over a short fixed window; slots are never emptied except by
+// a full clear, so a probe stops at the first empty slot.  When the window is
+// full a victim is picked with a CLOCK (second-chance) sweep over the window: a
+// hit sets a slot's reference bit, and the sweep clears reference bits until
+// it finds a not-recently-used slot to overwrite.
+//
+// The meet, join and isa caches are per-thread, kept with the other
+// thread-confined type-building state in Type.Local, so need no
+// synchronization.  The global SharpCache locks its own.
+//
+// Sizes are set from the "aa.meet_cache" (and "aa.join_cache", "aa.isa_cache")
+// system properties, or by calling set_size.  Hit, miss and eviction counts
+// are kept for sizing against real workloads.
+public class MeetCache {
+  // This thread's caches
+  public static MeetCache meet() { return Type.LOCAL.get()._meet; }
+  public static MeetCache join() { return Type.LOCAL.get()._join; }
+  public static MeetCache isa () { return Type.LOCAL.get()._isa ; }
+
+  private static final int PROBE = 8; // Probe window; also the CLOCK sweep length
+
+  public final String _name;
+  private long[] _keys;         // Packed uid pairs; 0 is empty (uids start at 1)
+  private Type[] _vals;         // Results
+  private boolean[] _refs;      // CLOCK reference bits
+  private int _mask;            // Table length - 1; length is a power of 2
+  private int _len;             // Slots in use
+
+  // Stats
+  private long _hits, _misses, _evicts;
+
+  MeetCache( String name, int size ) {
+    _name = name;
+    set_size(Integer.getInteger("aa."+name+"_cache",size));
+  }
+
+  private static long key( Type a, Type b ) { return ((long)a._uid<<32)|b._uid; }
+  // Spread the bits, so nearby uid pairs land in different windows
+  private int idx( long key ) {
+    key ^= key>>>33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key>>>33;
+    return (int)key & _mask;
+  }
+
+  Type get( Type a, Type b ) {
+    long key = key(a,b);
+    for( int i=0, idx=idx(key); i<PROBE; i++, idx=(idx+1)&_mask ) {
+      long k = _keys[idx];
+      if( k==key ) { _hits++; _refs[idx]=true; return _vals[idx]; }
+      if( k==0 ) break;         // Slots are never emptied, so a miss
+    }
+    _misses++;
+    return null;
+  }
+
+  void put( Type a, Type b, Type mt ) {
+    long key = key(a,b);
+    int home = idx(key), idx=home;
+    for( int i=0; i<PROBE; i++, idx=(idx+1)&_mask ) {
+      long k = _keys[idx];
+      if( k==0 ) { _len++; break; } // Empty slot
+      if( k==key ) break;           // Replace in-place
+      if( i==PROBE-1 ) {            // Window is full; sweep for a victim
+        idx = victim(home);
+        _evicts++;
+      }
+    }
+    _keys[idx] = key;
+    _vals[idx] = mt;
+    _refs[idx] = false;         // Must hit once to earn a second chance
+  }
+
+  // CLOCK sweep over the window: clear reference bits until finding a slot
+  // not recently used.  If all were used, the sweep wraps to the first slot.
+  private int victim( int home ) {
+    for( int i=0, idx=home; i<PROBE; i++, idx=(idx+1)&_mask ) {
+      if( !_refs[idx] ) return idx;
+      _refs[idx] = false;
+    }
+    return home;
+  }
+
+  // Drop all cached results; the size and stats are unchanged.
+  public void clear() {
+    Arrays.fill(_keys,0);
+    Arrays.fill(_vals,null);
+    Arrays.fill(_refs,false);
+    _len = 0;
+  }
+
+  // Change the cache size, rounded up to a power of 2.  Flushes the cache.
+  public void set_size( int size ) {
+    int len = Integer.highestOneBit(Math.max(PROBE,size-1)<<1);
+    _keys = new long[len];
+    _vals = new Type[len];
+    _refs = new boolean[len];
+    _mask = len-1;
+    _len = 0;
+  }
+  public int  size() { return _keys.length; }
+  public int  len () { return _len; }
+  public long hits() { return _hits; }
+  public long misses() { return _misses; }
+  public long evictions() { return _evicts; }
+  public void reset_stats() { _hits = _misses = _evicts = 0; }
+
+  public SB str( SB sb ) {
+    long tot = _hits+_misses;
+    return sb.p(_name).p(" cache ").p(_len).p('/').p(size())
+      .p(", hits ").p(_hits).p(", misses ").p(_misses).p(", evicts ").p(_evicts)
+      .p(", hit rate ").p(tot==0 ? 0 : (int)(_hits*100/tot)).p('%');
+  }
+  @Override public String toString() { return str(new SB()).toString(); }
+}
@@ -0,0 +1,323 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.util.Ary;
+import com.cliffc.aa.util.SB;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Minimizer for a not-yet-interned graph of Types; the engine behind
+// Cyclic.install.
+//
+// Hopcroft partition refinement, on dense arrays.  Types are numbered by
+// their order in the reachable set, and edge labels (struct field names, or
+// "t", "obj", "dsp", "ret") are numbered as seen.  Reverse edges are grouped
+// by def, so the uses of a def are a contiguous slice.  The members of each
+// partition (block) are a contiguous slice of one shared array, with marked
+// members gathered at the front of the slice; splitting a block is just
+// moving a boundary.  Each Type has at most one out-edge per label, so the
+// usual "process the smaller half" rule applies and the refinement is
+// O(E log N).
+//
+// Same result as the prior hash-table algorithm: start from partitions of
+// equal static properties, refine until all members of a partition have
+// edges to the same partitions, but never keep two already-interned Types in
+// one partition.  Scratch state is static; guarded by Type.CYCLIC.
+final class Minimizer {
+
+  // Counters, over all calls
+  static long CALLS, TYPES, EDGES, SPLITS;
+
+  // Types by dense index
+  private static Type[] TS = new Type[16];
+  private static int N;
+  // uid to dense index; open addressing, keys are uid+1 so 0 is empty.
+  // USLOT is the table slot of each index, to clear just those.
+  private static int[] UIDS = new int[32], IDXS = new int[32], USLOT = new int[16];
+
+  // Edge labels to dense label numbers
+  private static final HashMap<String,Integer> LABELS = new HashMap<>();
+  // Forward edges as found, use --label--> def
+  private static int[] EUSE = new int[16], EDEF = new int[16], ELAB = new int[16];
+  private static int E;
+  // Reverse edges grouped by def: the uses of def d are RUSE[RBEG[d]..RBEG[d+1])
+  private static int[] RBEG = new int[17], RUSE = new int[16], RLAB = new int[16];
+
+  // Partitions.  Members of block b are ELEMS[BBEG[b]..BEND[b]), and the
+  // first BMARK[b] of them are marked.  LOC is a Type's slot in ELEMS, BLK its
+  // block.  BNEW counts the not-interned members.
+  private static int[] ELEMS = new int[16], LOC = new int[16], BLK = new int[16];
+  private static int[] BBEG = new int[16], BEND = new int[16], BMARK = new int[16], BNEW = new int[16];
+  private static Type[] BHEAD = new Type[16];
+  private static int NB;
+
+  // Splitter worklist, blocks touched by the current splitter, and the
+  // (label,use) pairs into the current splitter.
+  private static int[] WORK = new int[16], TOUCHED = new int[16];
+  private static boolean[] ONWORK = new boolean[16];
+  private static int NWORK, NTOUCHED;
+  private static long[] PAIRS = new long[16];
+
+  // Minimize the graph of 'reach', which includes 'head', and return the
+  // replacement for 'head'.  Members of 'reach' merged away are freed.
+  static Type minimize( Ary<Type> reach, Type head ) {
+    CALLS++;
+    try {
+      init_types(reach);
+      init_edges();
+      init_parts();
+      refine();
+      return heads(head);
+    } finally {
+      clear();                  // Scratch must be empty for the next call, even after a failed assert
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  // Number the Types, and map uids to numbers
+  private static void init_types( Ary<Type> reach ) {
+    N = reach._len;
+    TYPES += N;
+    if( TS.length < N ) { TS = new Type[N<<1]; USLOT = new int[N<<1]; }
+    int len = Integer.highestOneBit(Math.max(N,8))<<2;
+    if( UIDS.length < len ) { UIDS = new int[len]; IDXS = new int[len]; }
+    for( int i=0; i<N; i++ ) {
+      Type t = TS[i] = reach.at(i);
+      if( t._hash!=0 && !t.interned() )
+        t._hash=0;              // Invariant: not-interned has no hash
+      int m = UIDS.length-1, k = hash(t._uid)&m;
+      while( UIDS[k]!=0 ) k = (k+1)&m;
+      UIDS[k] = t._uid+1;
+      IDXS[k] = i;
+      USLOT[i] = k;
+    }
+  }
+  private static int hash( int uid ) { int h = uid*0x9E3779B9; return h^(h>>>16); }
+  // Dense index of a Type, or -1 if not in the graph
+  private static int idx( Type t ) {
+    int m = UIDS.length-1, k = hash(t._uid)&m, key = t._uid+1;
+    for( int x; (x=UIDS[k])!=0; k = (k+1)&m )
+      if( x==key ) return IDXS[k];
+    return -1;
+  }
+
+  // Gather forward edges, then counting-sort them into reverse edges by def
+  private static void init_edges() {
+    E=0;
+    for( int i=0; i<N; i++ )
+      if( TS[i] instanceof Cyclic ) {
+        final int use = i;
+        ((Cyclic)TS[i]).walk1((t2,label) -> {
+            int def = idx(t2);
+            if( def == -1 ) return null; // Not part of the graph
+            if( E==EUSE.length ) {
+              EUSE = Arrays.copyOf(EUSE,E<<1);
+              EDEF = Arrays.copyOf(EDEF,E<<1);
+              ELAB = Arrays.copyOf(ELAB,E<<1);
+            }
+            EUSE[E]=use; EDEF[E]=def; ELAB[E]=LABELS.computeIfAbsent(label,k -> LABELS.size());
+            E++;
+            return null;
+          });
+      }
+    EDGES += E;
+    if( RBEG.length < N+1 ) RBEG = new int[(N<<1)+1];
+    if( RUSE.length < E ) { RUSE = new int[E<<1]; RLAB = new int[E<<1]; }
+    Arrays.fill(RBEG,0,N+1,0);
+    for( int e=0; e<E; e++ ) RBEG[EDEF[e]+1]++;
+    for( int d=0; d<N; d++ ) RBEG[d+1] += RBEG[d];
+    for( int e=0; e<E; e++ ) {      // Fill using RBEG[d] as a cursor...
+      int x = RBEG[EDEF[e]]++;
+      RUSE[x]=EUSE[e]; RLAB[x]=ELAB[e];
+    }
+    for( int d=N; d>0; d-- ) RBEG[d] = RBEG[d-1]; // ...then shift cursors back to starts
+    RBEG[0] = 0;
+  }
+
+  // Initial partitions: one per set of equal static properties, members in
+  // reachable order.
+  private static void init_parts() {
+    if( ELEMS.length < N ) {
+      ELEMS = new int[N<<1]; LOC = new int[N<<1]; BLK = new int[N<<1];
+      BBEG = new int[N<<1]; BEND = new int[N<<1]; BMARK = new int[N<<1]; BNEW = new int[N<<1];
+      BHEAD = new Type[N<<1];
+      WORK = new int[N<<1]; TOUCHED = new int[N<<1]; ONWORK = new boolean[N<<1];
+    }
+    HashMap<SType,Integer> stypes = new HashMap<>();
+    NB=0;
+    for( int i=0; i<N; i++ ) {
+      Integer b = stypes.putIfAbsent(new SType(TS[i]),NB);
+      if( b==null ) { b=NB++; BEND[b]=0; BNEW[b]=0; }
+      BLK[i]=b;
+      BEND[b]++;                // Count members
+      if( TS[i]._hash==0 ) BNEW[b]++;
+    }
+    for( int b=0, x=0; b<NB; b++ ) { BBEG[b]=x; x+=BEND[b]; BEND[b]=BBEG[b]; BMARK[b]=0; }
+    for( int i=0; i<N; i++ ) { int b=BLK[i]; LOC[i]=BEND[b]; ELEMS[BEND[b]++]=i; }
+    NWORK=0;
+    for( int b=0, nb=NB; b<nb; b++ ) {
+      push(b);
+      singletons(b);
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  // Refine until no splitter splits anything
+  private static void refine() {
+    while( NWORK > 0 ) {
+      int s = WORK[--NWORK];
+      ONWORK[s] = false;
+      // All (label,use) pairs for edges into the splitter, grouped by label.
+      // Taken up front, as the splitter itself may split.
+      int np=0;
+      for( int x=BBEG[s]; x<BEND[s]; x++ ) {
+        int def = ELEMS[x];
+        for( int r=RBEG[def]; r<RBEG[def+1]; r++ ) {
+          if( np==PAIRS.length ) PAIRS = Arrays.copyOf(PAIRS,np<<1);
+          PAIRS[np++] = ((long)RLAB[r]<<32) | RUSE[r];
+        }
+      }
+      Arrays.sort(PAIRS,0,np);
+      for( int p=0; p<np; ) {
+        int lab = (int)(PAIRS[p]>>>32);
+        for( ; p<np && (int)(PAIRS[p]>>>32)==lab; p++ )
+          mark((int)PAIRS[p]);
+        while( NTOUCHED > 0 )
+          split(TOUCHED[--NTOUCHED]);
+      }
+    }
+  }
+
+  private static int size( int b ) { return BEND[b]-BBEG[b]; }
+  private static void push( int b ) {
+    if( !ONWORK[b] ) { ONWORK[b]=true; WORK[NWORK++]=b; }
+  }
+
+  // Mark a use: swap it into the marked front of its block
+  private static void mark( int u ) {
+    int b = BLK[u];
+    if( size(b)==1 ) return;    // Length-1 partitions cannot be split
+    int pos = LOC[u], mpos = BBEG[b]+BMARK[b];
+    if( pos < mpos ) return;    // Already marked
+    int v = ELEMS[mpos];
+    ELEMS[mpos]=u; LOC[u]=mpos;
+    ELEMS[pos ]=v; LOC[v]=pos;
+    if( BMARK[b]++ == 0 ) TOUCHED[NTOUCHED++]=b;
+  }
+
+  // Split the marked front off a block, if not all of it was marked
+  private static void split( int b ) {
+    int m = BMARK[b];
+    BMARK[b]=0;
+    if( m==size(b) ) return;    // Touched all members
+    int nb = NB++;
+    BBEG[nb]=BBEG[b]; BEND[nb]=BBEG[b]+m; BMARK[nb]=0; BNEW[nb]=0;
+    BBEG[b]+=m;
+    for( int x=BBEG[nb]; x<BEND[nb]; x++ ) {
+      int i = ELEMS[x];
+      BLK[i]=nb;
+      if( TS[i]._hash==0 ) { BNEW[nb]++; BNEW[b]--; }
+    }
+    SPLITS++;
+    // Hopcroft: if b is waiting to split others, so must both halves.
+    // Otherwise b already did, and the smaller half does the rest.
+    push(ONWORK[b] || size(nb) <= size(b) ? nb : b);
+    singletons(b);
+    singletons(nb);
+  }
+
+  // A partition of only interned Types, with more than one, is split into
+  // 1-per-interned-element; distinct interned Types are never merged.
+  private static void singletons( int b ) {
+    if( size(b)<=1 || BNEW[b]!=0 ) return;
+    while( size(b)>1 ) {
+      int nb = NB++;
+      BEND[nb] = BEND[b]--;
+      BBEG[nb] = BEND[b];
+      BMARK[nb]=0; BNEW[nb]=0;
+      BLK[ELEMS[BBEG[nb]]] = nb;
+      SPLITS++;
+      push(nb);
+    }
+    push(b);
+  }
+
+  // --------------------------------------------------------------------------
+  // Pick a head for each partition, map all edges from head to head, set
+  // hashes, and replace any heads already interned.  Free the rest.
+  private static Type heads( Type head ) {
+    for( int b=0; b<NB; b++ ) {
+      int h = ELEMS[BBEG[b]];   // Earliest reached member
+      for( int x=BBEG[b]+1; x<BEND[b]; x++ ) h = Math.min(h,ELEMS[x]);
+      BHEAD[b] = TS[h];
+    }
+    for( int b=0; b<NB; b++ )
+      if( BHEAD[b] instanceof Cyclic )
+        ((Cyclic)BHEAD[b]).walk_update(Minimizer::head);
+
+    // Edges are fixed, compute hash
+    for( int b=0; b<NB; b++ ) if( BHEAD[b] instanceof TypeStruct ) BHEAD[b].set_hash();
+    for( int b=0; b<NB; b++ ) if( BHEAD[b] instanceof TypeMemPtr ) BHEAD[b].set_hash();
+    for( int b=0; b<NB; b++ ) if( BHEAD[b] instanceof TypeFunPtr ) BHEAD[b].set_hash();
+    for( int b=0; b<NB; b++ )                                      BHEAD[b].set_hash();
+
+    // Anything we make here might already be interned, at either the top-level
+    // or at any intermediate point (and we might have been passed new types
+    // with prior interned matches).  Replace any already interned parts.
+    boolean done=false;
+    while( !done ) {
+      done = true;
+      for( int b=0; b<NB; b++ ) {
+        Type h = BHEAD[b];
+        if( h instanceof Cyclic )
+          ((Cyclic)h).walk_update(Minimizer::head);
+        Type i = h.intern_lookup();
+        if( i!=null && h!=i ) { done=false; BHEAD[b]=i; }
+      }
+    }
+
+    for( int b=0; b<NB; b++ )
+      for( int x=BBEG[b]; x<BEND[b]; x++ )
+        if( TS[ELEMS[x]] != BHEAD[b] )
+          free(TS[ELEMS[x]]);
+
+    return head(head);
+  }
+  @SuppressWarnings("unchecked")
+  private static void free( Type t ) { t.free(null); }
+  // Partition head for t, or just t
+  private static Type head( Type t ) {
+    int i = idx(t);
+    return i==-1 ? t : BHEAD[BLK[i]];
+  }
+
+  // Drop all references to Types, so nothing is kept alive
+  private static void clear() {
+    for( int i=0; i<N; i++ )
+      if( TS[i]!=null ) UIDS[USLOT[i]]=0;
+    Arrays.fill(TS,0,N,null);
+    Arrays.fill(BHEAD,0,NB,null);
+    LABELS.clear();
+    N=E=NB=0;
+  }
+
+  // Static properties of a Type, for the initial partitions
+  private static final class SType {
+    final Type _t;
+    SType( Type t ) { _t=t; }
+    @Override public int hashCode() { return _t.static_hash(); }
+    @SuppressWarnings("unchecked")
+    @Override public boolean equals( Object o ) {
+      if( this==o ) return true;
+      if( !(o instanceof SType) ) return false;
+      Type t2 = ((SType)o)._t;
+      return _t._type == t2._type && _t.static_eq(t2);
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  static void reset_stats() { CALLS=TYPES=EDGES=SPLITS=0; }
+  static SB str( SB sb ) {
+    return sb.p("minimize calls ").p(CALLS).p(", types ").p(TYPES).p(", edges ").p(EDGES).p(", splits ").p(SPLITS);
+  }
+}
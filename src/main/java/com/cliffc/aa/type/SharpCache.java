@@ -0,0 +1,64 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.util.SB;
+
+// Global cache of sharpened pointers, keyed by (memory, dull pointer).
+// Replaces a per-TypeMem cache, which was lost whenever memory changed
+// slightly and was unbounded for long-lived memories.
+//
+// Two levels: the memory's uid picks a stripe, and each stripe is a bounded
+// CLOCK-evicting MeetCache keyed by the packed (memory uid, dull uid) pair.
+// Stripes are locked independently, so threads sharpening against different
+// memories rarely contend.  Results are interned, so are shared by all
+// threads.  Stripe sizes are set from the "aa.sharp_cache" system property,
+// or by calling set_size with the total size.
+public final class SharpCache {
+  private static final int STRIPES = 16; // Power of 2
+  private static final MeetCache[] CACHES = new MeetCache[STRIPES];
+  static {
+    for( int i=0; i<STRIPES; i++ )
+      CACHES[i] = new MeetCache("sharp",(1<<16)/STRIPES);
+  }
+  private static MeetCache stripe( TypeMem mem ) {
+    int h = mem._uid;
+    return CACHES[(h ^ (h>>>4)) & (STRIPES-1)];
+  }
+
+  static TypeMemPtr get( TypeMem mem, TypeMemPtr dull ) {
+    MeetCache c = stripe(mem);
+    synchronized( c ) { return (TypeMemPtr)c.get(mem,dull); }
+  }
+  static TypeMemPtr put( TypeMem mem, TypeMemPtr dull, TypeMemPtr sharp ) {
+    assert dull.interned() && sharp.interned();
+    MeetCache c = stripe(mem);
+    synchronized( c ) { c.put(mem,dull,sharp); }
+    return sharp;               // return new not old
+  }
+
+  // Drop all cached results; sizes and stats are unchanged.
+  public static void clear() {
+    for( MeetCache c : CACHES )
+      synchronized( c ) { c.clear(); }
+  }
+  // Change the total size, split evenly across the stripes.  Flushes the cache.
+  public static void set_size( int size ) {
+    for( MeetCache c : CACHES )
+      synchronized( c ) { c.set_size(size/STRIPES); }
+  }
+  public static int size() { return CACHES[0].size()*STRIPES; }
+  public static int len() { int x=0; for( MeetCache c : CACHES ) x += c.len(); return x; }
+  public static long hits() { long x=0; for( MeetCache c : CACHES ) x += c.hits(); return x; }
+  public static long misses() { long x=0; for( MeetCache c : CACHES ) x += c.misses(); return x; }
+  public static long evictions() { long x=0; for( MeetCache c : CACHES ) x += c.evictions(); return x; }
+  public static void reset_stats() {
+    for( MeetCache c : CACHES )
+      synchronized( c ) { c.reset_stats(); }
+  }
+
+  public static SB str( SB sb ) {
+    long hits = hits(), misses = misses(), tot = hits+misses;
+    return sb.p("sharp cache ").p(len()).p('/').p(size())
+      .p(", hits ").p(hits).p(", misses ").p(misses).p(", evicts ").p(evictions())
+      .p(", hit rate ").p(tot==0 ? 0 : (int)(hits*100/tot)).p('%');
+  }
+}
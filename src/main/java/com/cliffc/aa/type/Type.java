@@ -2,8 +2,12 @@ package com.cliffc.aa.type;
 
 import com.cliffc.aa.util.*;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import java.util.function.IntSupplier;
 
@@ -93,14 +97,14 @@ import java.util.function.IntSupplier;
 // Current solution is that nil is signed: XNIL and NIL.
 
 public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
-  static private int CNT=1;
+  static private final AtomicInteger CNT = new AtomicInteger(1);
   public int _uid;   // Unique ID, will have gaps, used to uniquely order Types
   public int _hash;      // Hash for this Type; built recursively
   byte _type;            // Simple types use a simple enum
   public String _name;   // All types can be named
   T _dual; // All types support a dual notion, eagerly computed and cached here
 
-  private static int _uid() { return CNT++; }
+  private static int _uid() { return CNT.getAndIncrement(); }
   @Override public int getAsInt() { return _uid; }
   @SuppressWarnings("unchecked")
   T init(String name) { _name=name; return (T)this; }
@@ -159,9 +163,9 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
   }
 
   // Construct a simple type, possibly from a pool
-  static Type make(byte type) { return POOLS[type].malloc().init("").hashcons_free(); }
+  static Type make(byte type) { return pool(type).malloc().init("").hashcons_free(); }
   @SuppressWarnings("unchecked")
-  T free(T t2) { return (T)POOLS[_type].free(this,t2); }
+  T free(T t2) { return (T)pool(_type).free(this,t2); }
   T hashcons_free() {
     T t2 = hashcons();
     return this==t2 ? t2 : free(t2);
@@ -171,8 +175,24 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
   // Hash-Cons - all Types are interned in this hash table.  Thus an equality
   // check of a (possibly very large) Type is always a simple pointer-equality
   // check, except during construction and intern'ing.
-  private static final ConcurrentHashMap<Type,Type> INTERN = new ConcurrentHashMap<>();
-  public static int RECURSIVE_MEET;    // Count of recursive meet depth
+  //
+  // The table is shared by all threads.  Lookups are lock-free; a miss
+  // computes the dual privately, then publishes the Type and its dual together
+  // under the table lock, so no thread ever sees an interned Type without its
+  // dual.  Two threads racing to make the same Type both build it, and the
+  // loser returns the winner's copy.
+  //
+  // The table holds Types weakly.  A Type stays interned while anything -
+  // a Node, a TV2, another Type, a static - still refers to it, so pointer
+  // equality holds for all live Types.  Once unreferenced, e.g. after
+  // Env.top_reset drops a compilation, the GC reclaims it and an equal Type
+  // made later interns fresh.  Types made while the primitives were parsed are
+  // pinned (see init0) and never reclaimed.
+  private static final WeakIHashMap<Type> INTERN = new WeakIHashMap<>() {
+    @Override protected int hash( Type t ) { return t._hash; }
+    @Override protected boolean eq( Type probe, Type t ) { return probe.equals(t); }
+  };
+  private static Type[] PINNED = new Type[0];
   @SuppressWarnings("unchecked")
   private T hashcons() {
     _hash = compute_hash();     // Set hash
@@ -182,45 +202,59 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
       assert this != t2;        // Do not hashcons twice, should not get self back
       return t2;                // Return prior
     }
-    if( RECURSIVE_MEET > 0 )    // Mid-building recursive types; do not intern
+    if( rmeet() > 0 )           // Mid-building recursive types; do not intern
       return (T)this;
     // Not in type table
     _dual = null;                // No dual yet
-    INTERN.put(this,this);       // Put in table without dual
     T d = xdual();               // Compute dual without requiring table lookup, and not setting name
     d._name = _name;             // xdual does not set name either
     d._hash = d.compute_hash();  // Set dual hash
-    _dual = d;
-    if( this==d ) return d;      // Self-symmetric?  Dual is self
-    assert !equals(d);           // Self-symmetric is handled by caller
-    assert d._dual==null;        // Else dual-dual not computed yet
-    assert INTERN.get(d)==null;
-    d._dual = (T)this;
-    INTERN.put(d,d);
+    synchronized( INTERN ) {
+      t2 = (T)INTERN.get(this);  // Recheck; another thread may have just made it
+      if( t2!=null ) return t2;  // Lost the race; the new dual is garbage
+      _dual = d;
+      if( this!=d ) {            // Self-symmetric?  Dual is self
+        assert !equals(d);       // Self-symmetric is handled by caller
+        assert d._dual==null;    // Else dual-dual not computed yet
+        assert INTERN.get(d)==null;
+        d._dual = (T)this;
+        INTERN.put(d);
+      }
+      INTERN.put(this);          // Publish after the dual is complete
+    }
     return (T)this;
   }
+  // Intern a Type whose dual is already set; used to install cyclic types.
+  // Callers hold the table lock (see intern_lock) across their dup check and
+  // all their reterns, so a whole cycle publishes at once.
   @SuppressWarnings("unchecked")
   final T retern( ) {
+    assert Thread.holdsLock(INTERN);
     assert _dual._dual == this;
     assert _hash != 0;
     assert INTERN.get(this)==null;
-    INTERN.put(this,this);
+    INTERN.put(this);
     assert INTERN.get(this)==this;
     return (T)this;
   }
+  static Object intern_lock() { return INTERN; }
   boolean interned() { return _hash!=0 && INTERN.get(this)==this; }
   Type intern_lookup() { return INTERN.get(this); }
-  static int intern_size() { return INTERN.size(); }
+  // Count of interned Types, after dropping any the GC has reclaimed
+  static int intern_size() {
+    synchronized( INTERN ) { INTERN.expunge(); }
+    return INTERN.size();
+  }
   public static boolean intern_check() {
-    int errs=0;
-    for( Type k : INTERN.keySet() ) {
-      Type v = INTERN.get(k);
-      if( !k.intern_check0(v) ) {
-        System.out.println("INTERN_CHECK FAIL: "+k._uid+":"+k+" vs "+v._uid+":"+v);
-        errs++;
-      }
-    }
-    return errs==0;
+    int[] errs = new int[1];
+    INTERN.forEach(k -> {
+        Type v = INTERN.get(k);
+        if( !k.intern_check0(v) ) {
+          System.out.println("INTERN_CHECK FAIL: "+k._uid+":"+k+" vs "+(v==null ? "null" : v._uid+":"+v));
+          errs[0]++;
+        }
+      });
+    return errs[0]==0;
   }
   private boolean intern_check0(Type v) {
     if( this != v || _dual==null || _dual._dual!=this || compute_hash()!=_hash ) return false;
@@ -229,10 +263,35 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
   boolean intern_check1() { return true; }
   // Debugging helper
   static Type intern_find(int uid) {
-    for( Type k : INTERN.keySet() )
-      if( k._uid==uid )
-        return k;
-    return null;
+    Type[] rez = new Type[1];
+    INTERN.forEach(k -> { if( k._uid==uid ) rez[0]=k; });
+    return rez[0];
+  }
+
+  // Record end of primitives: pin every Type interned so far, so the
+  // primitive Types survive all resets.
+  public static void init0() {
+    PINNED = intern_all();
+    if( Boolean.getBoolean("aa.jmx") ) TypeMetrics.register();
+  }
+  // Snapshot of every live interned Type; also the benchmark corpus
+  static Type[] intern_all() {
+    Ary<Type> ts = new Ary<>(Type.class);
+    INTERN.forEach(ts::push);
+    return ts.asAry();
+  }
+  // Reset for the next compilation.  Drop this thread's memoized meets and
+  // the sharpened pointers and approximations, which would otherwise keep
+  // the prior compilation's Types reachable.  The Types themselves are reclaimed by the
+  // GC as the prior Nodes and TV2s die.
+  public static void reset_to_init0() {
+    Local l = LOCAL.get();
+    l._meet.clear();
+    l._join.clear();
+    l._isa .clear();
+    SharpCache.clear();
+    ApproxCache.clear();
+    synchronized( INTERN ) { INTERN.expunge(); }
   }
 
   // Cyclic (complex/slow) interning
@@ -292,19 +351,58 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
   // initialized, used to build a cycle, then have some fields set (sometimes
   // more than once) to close the cycle.  However, once a Type is interned, its
   // fields are forever more "final".
-  static final Pool[] POOLS = new Pool[TLAST];
+  //
+  // Pools are thread-confined: a Type is only ever built by one thread until
+  // it interns, so each thread mallocs from and frees to its own free lists
+  // with no synchronization.  Each Type class registers its prototype "gold"
+  // Type once, and threads lazily make their own Pools from it.
+  private static final Type[] GOLDS = new Type[TLAST];
+  // Name of the Type class for a kind; all the simple kinds are just "Type"
+  static String kind_name( byte t ) {
+    return t<TSIMPLE || GOLDS[t]==null ? "Type" : GOLDS[t].getClass().getSimpleName();
+  }
+
+  // Per-thread type-building state: the object pools, the recursive-meet
+  // depth and the meet caches.
+  static final class Local {
+    final Pool[] _pools = new Pool[TLAST];
+    int _rmeet;                 // Count of recursive meet depth
+    final MeetCache _meet = new MeetCache("meet",1<<16);
+    final MeetCache _join = new MeetCache("join",1<<14);
+    final MeetCache _isa  = new MeetCache("isa" ,1<<14);
+    Local() { LOCALS.add(this); }
+  }
+  static final ThreadLocal<Local> LOCAL = ThreadLocal.withInitial(Local::new);
+  // Every live thread's Local, for TypeMetrics.  Weak, so a dead thread's
+  // pools and caches drop out along with the thread.
+  static final Set<Local> LOCALS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+  static Pool pool( byte t ) {
+    Pool[] pools = LOCAL.get()._pools;
+    Pool p = pools[t];
+    return p==null ? (pools[t] = new Pool(GOLDS[t])) : p;
+  }
+
   @SuppressWarnings("unchecked")
   static class Pool {
-    private int _malloc, _free, _pool;
-    int _clone;                 // Allow TypeStruct a personal copy
+    // Counts of fresh allocations, frees, and mallocs served from the free
+    // list.  Thread-confined, so plain fields; TypeMetrics reads them racily.
+    long _malloc, _free, _pool;
+    long _clone;                // Allow TypeStruct a personal copy
     private final Ary<Type> _frees;
     private final Type _gold;
+    // Register the gold prototype for type 't', and use this Pool for the
+    // registering thread.
     Pool(byte t, Type gold) {
+      this(gold);
       gold._type = t;
       gold._name = "";
+      GOLDS[t] = gold;
+      LOCAL.get()._pools[t] = this;
+    }
+    private Pool(Type gold) {
       _gold=gold;
       _frees= new Ary<>(new Type[1],0);
-      POOLS[t] = this;
     }
     <T extends Type> T malloc() {
       T t;
@@ -315,6 +413,7 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
       } else {
         _pool++;                // Pull a from free pool
         t = (T)_frees.pop();
+        _frees._es[_frees._len]=null; // Free list does not keep it reachable
       }
       return t;                 // Set breakpoints here to find a uid
     }
@@ -335,12 +434,42 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
   // All the simple type pools
   static {
     for( int i=0; i<TSIMPLE; i++ )
-      POOLS[i]=new Pool((byte)i,new Type());
+      new Pool((byte)i,new Type());
+  }
+
+  // ----------------------------------------------------------
+  // Recursive meet depth.  While above zero, cyclic types are under
+  // construction and hashcons does not intern.  The depth is per-thread, but
+  // cyclic construction shares static scratch state (and the static parts of
+  // Cyclic.install), so the outermost level also holds the CYCLIC lock until
+  // the depth returns to zero.  Other threads keep making and interning
+  // non-cyclic types meanwhile.
+  static final ReentrantLock CYCLIC = new ReentrantLock();
+  // Cyclic.install counts: all installs, those finding a prior interned
+  // cycle, and the Types newly interned.  Guarded by CYCLIC.
+  static long CYCLIC_INSTALLS, CYCLIC_PRIORS, CYCLIC_INTERNS;
+  public static int rmeet() { return LOCAL.get()._rmeet; }
+  public static int rmeet_inc() {
+    Local l = LOCAL.get();
+    if( l._rmeet++ == 0 ) CYCLIC.lock();
+    return l._rmeet;
+  }
+  public static int rmeet_dec() {
+    Local l = LOCAL.get();
+    assert l._rmeet > 0;
+    if( --l._rmeet == 0 ) CYCLIC.unlock();
+    return l._rmeet;
+  }
+  // Reset between failed tests, which can exit mid-meet
+  public static void rmeet_reset() {
+    LOCAL.get()._rmeet = 0;
+    while( CYCLIC.isHeldByCurrentThread() ) CYCLIC.unlock();
   }
 
   protected T _copy() {
-    POOLS[_type]._clone++;  POOLS[_type]._malloc--; // Move the count from malloc to clone
-    return POOLS[_type].malloc();
+    Pool p = pool(_type);
+    p._clone++;  p._malloc--;   // Move the count from malloc to clone
+    return p.malloc();
   }
 
   // Overridable clone method.  Not interned.
@@ -382,58 +511,19 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
   public final T dual() { return _dual; }
 
   // Compute dual right now.  Overridden in subclasses.
-  T xdual() { return POOLS[_type^1].malloc(); }
+  T xdual() { return pool((byte)(_type^1)).malloc(); }
   T rdual() { assert _dual!=null; return _dual; }
 
   // ----------------------------------------------------------
-  // Memoize meet results
-  private static class Key {
-    static Key K = new Key(null,null);
-    static NonBlockingHashMap<Key,Type> INTERN_MEET = new NonBlockingHashMap<>();
-    Key(Type a, Type b) { _a=a; _b=b; }
-    Type _a, _b;
-    @Override public int hashCode() { return ((_a._hash<<17)|(_a._hash>>>15))^_b._hash; }
-    @Override public boolean equals(Object o) { return _a==((Key)o)._a && _b==((Key)o)._b; }
-    static Type get(Type a, Type b) {
-      K._a=a;
-      K._b=b;
-      return INTERN_MEET.get(K);
-    }
-    static void put(Type a, Type b, Type mt) {
-      INTERN_MEET.put(new Key(a,b),mt);
-      // Uncomment to check hash quality.
-      //Util.hash_quality_check_per(INTERN_MEET);
-    }
-    static void intern_meet_quality_check() {
-      NonBlockingHashMapLong<Integer> hashs = new NonBlockingHashMapLong<>();
-      for( Key k : INTERN_MEET.keySet() ) {
-        int hash = k.hashCode();
-        Integer ii = hashs.get(hash);
-        hashs.put(hash,ii==null ? 1 : ii+1);
-      }
-      int[] hist = new int[16];
-      int maxval=0;
-      long maxkey=-1;
-      for( long l : hashs.keySet() ) {
-        int reps = hashs.get(l);
-        if( reps > maxval ) { maxval=reps; maxkey=l; }
-        if( reps < hist.length ) hist[reps]++;
-        else System.out.println("hash "+l+" repeats "+reps);
-      }
-      for( int i=0; i<hist.length; i++ )
-        if( hist[i] > 0 )
-          System.out.println("Number of hashes with "+i+" repeats: "+hist[i]);
-      System.out.println("Max repeat key "+maxkey+" repeats: "+maxval);
-    }
-
-  }
+  // Memoize meet, join and isa results in bounded caches; see MeetCache.
 
   // Compute the meet
   public final Type meet( Type t ) {
     // Short cut for the self case
     if( t == this ) return this;
     // Short-cut for seeing this meet before
-    Type mt = Key.get(this,t);
+    Local l = LOCAL.get();
+    Type mt = l._meet.get(this,t);
     if( mt != null ) return mt;
 
     // "Triangulate" the matrix and cut in half the number of cases.
@@ -446,8 +536,8 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
     Type nmt = xmt_name(t,mt);
 
     // Record this meet, to short-cut next time
-    if( RECURSIVE_MEET == 0 )   // Only not mid-building recursive types;
-      Key.put(this,t,nmt);
+    if( l._rmeet == 0 )         // Only not mid-building recursive types;
+      l._meet.put(this,t,nmt);
     return nmt;
   }
 
@@ -555,7 +645,7 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
   @SuppressWarnings("unchecked")
   public final T remove_name() { return has_name() ? _set_name("") : (T)this; }
   private T _set_name(String name) {
-    POOLS[_type]._clone++;
+    pool(_type)._clone++;
     T t1 = copy();
     t1._name = name;
     return t1.hashcons_free();
@@ -615,11 +705,30 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
     return false;
   }
 
-  public Type join( Type t ) { return dual().meet(t.dual()).dual(); }
+  public Type join( Type t ) {
+    if( t == this ) return this;
+    Local l = LOCAL.get();
+    Type jt = l._join.get(this,t);
+    if( jt != null ) return jt;
+    jt = dual().meet(t.dual()).dual();
+    if( l._rmeet == 0 )         // Only not mid-building recursive types;
+      l._join.put(this,t,jt);
+    return jt;
+  }
 
   // True if 'this' isa/subtypes 't'.  E.g. Int32-isa-Int64, but not vice-versa
   // E.g. ANY-isa-XSCALAR; XSCALAR-isa-Int(Any); Int(Any)-isa-Int(3)
-  public boolean isa( Type t ) { return meet(t)==t; }
+  public boolean isa( Type t ) {
+    if( t == this ) return true;
+    // Cached as 't' for true, 'this' for false
+    Local l = LOCAL.get();
+    Type x = l._isa.get(this,t);
+    if( x != null ) return x==t;
+    boolean isa = meet(t)==t;
+    if( l._rmeet == 0 )         // Only not mid-building recursive types;
+      l._isa.put(this,t,isa ? t : this);
+    return isa;
+  }
   // True if 'this' isa 't' but is not equal to 't'
   public boolean above( Type t ) { return t != this && meet(t)==t; }
 
@@ -640,7 +749,7 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
     TypeInt.init1(types);
     TypeFlt.init1(types);
     TypeStr.init1(types);
-    TypeStruct.RECURSIVE_MEET=0;
+    rmeet_reset();
   }
 
   private static Ary<Type> ALL_TYPES; // Used for tests
@@ -871,10 +980,15 @@ public class Type<T extends Type<T>> implements Cloneable, IntSupplier {
 
   static final VBitSet ARF = new VBitSet();
   public final BitsFun all_reaching_fidxs( TypeMem tmem) {
-    assert ARF.isEmpty();
-    BitsFun arf = _all_reaching_fidxs(tmem);
-    ARF.clear();
-    return arf;
+    CYCLIC.lock();              // ARF is shared scratch
+    try {
+      assert ARF.isEmpty();
+      BitsFun arf = _all_reaching_fidxs(tmem);
+      ARF.clear();
+      return arf;
+    } finally {
+      CYCLIC.unlock();
+    }
   }
   BitsFun _all_reaching_fidxs( TypeMem tmem ) { return BitsFun.EMPTY; }
 
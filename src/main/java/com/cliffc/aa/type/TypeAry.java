@@ -46,7 +46,7 @@ public class TypeAry extends TypeObj<TypeAry> implements Cyclic {
 
   static { new Pool(TARY,new TypeAry()); }
   public static TypeAry make( String name, boolean any, TypeInt sz, Type elem, TypeObj stor ) {
-    TypeAry t1 = POOLS[TARY].malloc();
+    TypeAry t1 = pool(TARY).malloc();
     return t1.init(name,any,sz,elem,stor).hashcons_free();
   }
 
@@ -56,7 +56,7 @@ public class TypeAry extends TypeObj<TypeAry> implements Cyclic {
   public static final TypeAry BYTES = make("",false,TypeInt.con(3),TypeInt.INT8,TypeObj.OBJ ); // TODO: TypeObjBits2
   static final TypeAry[] TYPES = new TypeAry[]{ARY,ARY0,BYTES};
 
-  @Override protected TypeAry xdual() { return POOLS[TARY].<TypeAry>malloc().init(_name, !_any,_size.dual(),_elem.dual(),(TypeObj)_stor.dual()); }
+  @Override protected TypeAry xdual() { return pool(TARY).<TypeAry>malloc().init(_name, !_any,_size.dual(),_elem.dual(),(TypeObj)_stor.dual()); }
   @Override
   TypeAry rdual() {
     if( _dual != null ) return _dual;
@@ -3,6 +3,8 @@ package com.cliffc.aa.type;
 import com.cliffc.aa.util.*;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.*;
 
 import static com.cliffc.aa.AA.DSP_IDX;
@@ -18,14 +20,31 @@ public class TypeFld extends Type<TypeFld> implements Cyclic {
   public Type _t;               // Field type.  Usually some type of Scalar, or ANY or ALL.
   public Access _access;        // Field access type: read/write, final, read/only
   public int _order;            // Field order in the struct, or -1 for undefined (Bot) or -2 for conforming (top)
+  int _sym;                     // Symbol id of the field name; structs sort fields by it
   boolean _cyclic; // Type is cyclic.  This is a summary property, not a part of the type, hence is not in the equals nor hash
 
   private TypeFld init( @NotNull String fld, Type t, Access access, int order ) {
     assert !(t instanceof TypeFld);
     _cyclic = false;
     _fld=fld; _t=t; _access=access; _order=order;
+    _sym = sym(fld);
     return this;
   }
+
+  // Field names to small ids, handed out in order of first sight.  Names are
+  // interned Strings, so the id is just a cheaper name for comparing and
+  // sorting.  Shared by all compilation threads.
+  private static final ConcurrentHashMap<String,Integer> SYMS = new ConcurrentHashMap<>();
+  private static final AtomicInteger NSYMS = new AtomicInteger();
+  static int sym( String fld ) {
+    Integer id = SYMS.get(fld);
+    return id != null ? id : SYMS.computeIfAbsent(fld, k -> NSYMS.getAndIncrement());
+  }
+  // Symbol id for a name, or -1 if no field was ever so named
+  static int sym_find( String fld ) {
+    Integer id = SYMS.get(fld);
+    return id==null ? -1 : id;
+  }
   @Override public TypeFld copy() { return _copy().init(_fld,_t,_access,_order); }
   
   @Override public boolean cyclic() { return _cyclic; }
@@ -77,8 +96,8 @@ public class TypeFld extends Type<TypeFld> implements Cyclic {
   }
 
   static { new Pool(TFLD,new TypeFld()); }
-  public static TypeFld malloc( String fld, Type t, Access access, int order ) { return POOLS[TFLD].<TypeFld>malloc().init(fld,t,access,order); }
-  public static TypeFld malloc( String fld ) { return POOLS[TFLD].<TypeFld>malloc().init(fld,null,Access.Final,oBot); }
+  public static TypeFld malloc( String fld, Type t, Access access, int order ) { return pool(TFLD).<TypeFld>malloc().init(fld,t,access,order); }
+  public static TypeFld malloc( String fld ) { return pool(TFLD).<TypeFld>malloc().init(fld,null,Access.Final,oBot); }
   public static TypeFld make( String fld, Type t, Access access, int order ) { return malloc(fld,t,access,order).hashcons_free(); }
   public static TypeFld make( String fld, Type t, int order ) { return make(fld,t,Access.Final,order); }
   public static TypeFld make( String fld, Type t ) { return make(fld,t,Access.Final,oBot); }
@@ -96,12 +115,12 @@ public class TypeFld extends Type<TypeFld> implements Cyclic {
   @Override protected TypeFld xdual() {
     if( _fld==sdual(_fld) && _t==_t._dual && _order==odual(_order) && _access==_access.dual() )
       return this;              // Self symmetric
-    return POOLS[TFLD].<TypeFld>malloc().init(sdual(_fld),_t._dual,_access.dual(),odual(_order));
+    return pool(TFLD).<TypeFld>malloc().init(sdual(_fld),_t._dual,_access.dual(),odual(_order));
   }
   @Override protected TypeFld rdual() {
     assert _hash!=0;
     if( _dual != null ) return _dual;
-    TypeFld dual = _dual = POOLS[TFLD].<TypeFld>malloc().init(sdual(_fld),_t==null ? null : _t.rdual(),_access.dual(),odual(_order));
+    TypeFld dual = _dual = pool(TFLD).<TypeFld>malloc().init(sdual(_fld),_t==null ? null : _t.rdual(),_access.dual(),odual(_order));
     dual._dual = this;
     dual._hash = dual.compute_hash();
     return dual;
@@ -119,7 +138,7 @@ public class TypeFld extends Type<TypeFld> implements Cyclic {
   }
 
   private static TypeFld malloc( String fld, Access a, int order ) {
-    TypeFld tfld = POOLS[TFLD].malloc();
+    TypeFld tfld = pool(TFLD).malloc();
     return tfld.init(fld,null,a,order);
   }
 
@@ -139,6 +158,7 @@ public class TypeFld extends Type<TypeFld> implements Cyclic {
   void cmeet(TypeFld f) {
     assert _hash==0; // Not interned, hash is changing
     _fld    = smeet(_fld,f._fld);
+    _sym    = sym(_fld);
     _access = _access.meet(f._access);
     _order  = omeet(_order,f._order);
   }
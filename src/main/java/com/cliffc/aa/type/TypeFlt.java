@@ -13,7 +13,10 @@ public class TypeFlt extends Type<TypeFlt> {
   private TypeFlt init(int x, int z, double con ) { _x=(byte)x; _z=(byte)z; _con = con; return this; }
   @Override TypeFlt copy() { return _copy().init(_x,_z,_con); }
   // Hash does not depend on other types
-  @Override int compute_hash() { return super.compute_hash()+_x+_z+(int)_con; }
+  @Override int compute_hash() {
+    int hash = super.compute_hash()+_x+_z+(int)_con;
+    return hash==0 ? 1 : hash;  // Zero is not-hashed; e.g. con(-31) sums to zero
+  }
   @Override public boolean equals( Object o ) {
     if( this==o ) return true;
     if( !(o instanceof TypeFlt) ) return false;
@@ -31,7 +34,7 @@ public class TypeFlt extends Type<TypeFlt> {
   static { new Pool(TFLT,new TypeFlt()); }
   public static Type make( int x, int z, double con ) {
     if( x==0 && (double)((long)con)==con ) return TypeInt.con((long)con);
-    TypeFlt t1 = POOLS[TFLT].malloc();
+    TypeFlt t1 = pool(TFLT).malloc();
     return t1.init(x,z,con).hashcons_free();
   }
 
@@ -53,7 +56,7 @@ public class TypeFlt extends Type<TypeFlt> {
   @Override public double getd() { assert is_con(); return _con; }
   @Override public long   getl() { assert is_con() && ((long)_con)==_con; return (long)_con; }
 
-  @Override protected TypeFlt xdual() { return _x==0 ? this : POOLS[TFLT].<TypeFlt>malloc().init(-_x,_z,_con); }
+  @Override protected TypeFlt xdual() { return _x==0 ? this : pool(TFLT).<TypeFlt>malloc().init(-_x,_z,_con); }
   @Override protected Type xmeet( Type t ) {
     assert t != this;
     switch( t._type ) {
@@ -128,15 +128,13 @@ public final class TypeFunPtr extends Type<TypeFunPtr> implements Cyclic {
   // one or both are LOW.  Return (LOW meet other), and unwind the recursion
   // wrapping merged TFPs as we go.
   //
-  static private BitsFun _SCAN1_FIDXS;
   static public TypeFunPtr make0( BitsFun fidxs, int nargs, Type dsp, Type tret ) {
-    _SCAN1_FIDXS = null;        // Reset
     TypeFunPtr trepeat = _scan1(fidxs,tret);
     if( trepeat==null )
       return make(fidxs,nargs,dsp,tret);   // build as usual
     BitsFun scan2_fidxs = trepeat._scan2();
     if( scan2_fidxs!=null )
-      return make_recursive(fidxs.meet(_SCAN1_FIDXS),nargs,dsp);  // build a 1-cycle
+      return make_recursive(fidxs.meet(_scan1_fidxs(tret,trepeat)),nargs,dsp);  // build a 1-cycle
     assert fidxs.overlaps(trepeat._fidxs);
     // The final meet
     Type mdsp = dsp.meet(trepeat._dsp);
@@ -146,26 +144,28 @@ public final class TypeFunPtr extends Type<TypeFunPtr> implements Cyclic {
   }
 
   // Scan 1: Follow chain to the end and return either the repeat point or
-  // null.  If no repeats, build the TFP as usual.  If repeating, also gather
-  // all FIDXS seen.
+  // null.  If no repeats, build the TFP as usual.
   static private TypeFunPtr _scan1( BitsFun fidxs, Type tret ) {
     if( !(tret instanceof TypeFunPtr) )
       return null; // The end, no repeats, valid as-is.
     TypeFunPtr tfret = (TypeFunPtr)tret;
     // Check for repeats
-    if( fidxs.overlaps(tfret._fidxs) ) {
-      assert _SCAN1_FIDXS == null;
-      _SCAN1_FIDXS = tfret._fidxs;
+    if( fidxs.overlaps(tfret._fidxs) )
       return tfret;             // The repeat point
-    }
     // Hit a cyclic-end, with no repeats.  Counts as a high-end
     if( tfret._ret == tfret )
       return null;              // The end, no repeats
     // Carry on the recursion
-    TypeFunPtr tfp = _scan1(fidxs,tfret._ret);
-    if( tfp==null ) return null; // Found the end, valid as-is
-    _SCAN1_FIDXS = _SCAN1_FIDXS.meet(tfret._fidxs); // Gather fidxs on the unwind
-    return tfp;
+    return _scan1(fidxs,tfret._ret);
+  }
+  // If repeating, gather all FIDXS seen from the start to the repeat point.
+  // Recomputed rather than gathered in a static during scan 1, so concurrent
+  // compilations do not share it.
+  static private BitsFun _scan1_fidxs( Type tret, TypeFunPtr trepeat ) {
+    BitsFun fidxs = trepeat._fidxs;
+    for( Type x = tret; x != trepeat; x = ((TypeFunPtr)x)._ret )
+      fidxs = fidxs.meet(((TypeFunPtr)x)._fidxs);
+    return fidxs;
   }
 
   // Scan 2: Follow the repeat point to the end, and return either all the
@@ -195,7 +195,7 @@ public final class TypeFunPtr extends Type<TypeFunPtr> implements Cyclic {
 
   // Allocate and init
   private static TypeFunPtr malloc(BitsFun fidxs, int nargs, Type dsp, Type ret ) {
-    TypeFunPtr t1 = POOLS[TFUNPTR].malloc();
+    TypeFunPtr t1 = pool(TFUNPTR).malloc();
     return t1.init(fidxs,nargs,dsp,ret);
   }
 
@@ -204,11 +204,13 @@ public final class TypeFunPtr extends Type<TypeFunPtr> implements Cyclic {
     TypeFunPtr tfp = malloc(fidxs,nargs,Type.ANY,null);
     tfp._ret = tfp;
     tfp._hash = tfp.compute_hash();
-    TypeFunPtr old = (TypeFunPtr)tfp.intern_lookup();
-    if( old!=null )             // Return prior hit
-      return POOLS[TFUNPTR].free(tfp,old);
-    tfp.rdual();
-    if( tfp.retern() != tfp.dual() ) tfp.dual().retern();
+    synchronized( intern_lock() ) { // Check for dups and publish atomically
+      TypeFunPtr old = (TypeFunPtr)tfp.intern_lookup();
+      if( old!=null )           // Return prior hit
+        return pool(TFUNPTR).free(tfp,old);
+      tfp.rdual();
+      if( tfp.retern() != tfp.dual() ) tfp.dual().retern();
+    }
     return tfp;
   }
 
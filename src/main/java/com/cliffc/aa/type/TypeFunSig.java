@@ -48,7 +48,7 @@ public final class TypeFunSig extends Type<TypeFunSig> {
 
   static { new Pool(TFUNSIG,new TypeFunSig()); }
   public static TypeFunSig make( TypeStruct formals, Type ret ) {
-    TypeFunSig t1 = POOLS[TFUNSIG].malloc();
+    TypeFunSig t1 = pool(TFUNSIG).malloc();
     return t1.init(formals,ret).hashcons_free();
   }
 
@@ -64,7 +64,7 @@ public final class TypeFunSig extends Type<TypeFunSig> {
   public TypeFld arg(int idx) { return _formals.fld_idx(idx); }
   public Type display() { return arg(DSP_IDX); }
 
-  @Override protected TypeFunSig xdual() {  return POOLS[TFUNSIG].<TypeFunSig>malloc().init(_formals.dual(),_ret.dual()); }
+  @Override protected TypeFunSig xdual() {  return pool(TFUNSIG).<TypeFunSig>malloc().init(_formals.dual(),_ret.dual()); }
   @Override protected Type xmeet( Type t ) {
     switch( t._type ) {
     case TFUNSIG: break;
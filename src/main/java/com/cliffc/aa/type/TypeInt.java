@@ -15,7 +15,10 @@ public class TypeInt extends Type<TypeInt> {
   private TypeInt init(int x, int z, long con ) { _x=(byte)x; _z=(byte)z; _con = con; return this; }
   @Override TypeInt copy() { return _copy().init(_x,_z,_con); }
   // Hash does not depend on other types
-  @Override int compute_hash() { return super.compute_hash()+_x+_z+(int)_con; }
+  @Override int compute_hash() {
+    int hash = super.compute_hash()+_x+_z+(int)_con;
+    return hash==0 ? 1 : hash;  // Zero is not-hashed; e.g. con(-31) sums to zero
+  }
   @Override public boolean equals( Object o ) {
     if( this==o ) return true;
     if( !(o instanceof TypeInt) ) return false;
@@ -34,7 +37,7 @@ public class TypeInt extends Type<TypeInt> {
   public static TypeInt make( int x, int z, long con ) {
     assert con==0 || log(con)==z;
     if( Math.abs(x)==1 && z==1 && con==0) { con=1; x=0; } // not-null-bool is just a 1
-    TypeInt t1 = POOLS[TINT].malloc();
+    TypeInt t1 = pool(TINT).malloc();
     return t1.init(x,z,con).hashcons_free();
   }
 
@@ -67,7 +70,7 @@ public class TypeInt extends Type<TypeInt> {
   @Override public long   getl() { assert is_con(); return _con; }
   @Override public double getd() { assert is_con() && (long)((double)_con)==_con; return _con; }
 
-  @Override protected TypeInt xdual() { return _x==0 ? this : POOLS[TINT].<TypeInt>malloc().init(-_x,_z,_con); }
+  @Override protected TypeInt xdual() { return _x==0 ? this : pool(TINT).<TypeInt>malloc().init(-_x,_z,_con); }
   @Override protected Type xmeet( Type t ) {
     assert t != this;
     switch( t._type ) {
@@ -38,7 +38,7 @@ public class TypeLive extends TypeObj<TypeLive> {
 
   static { new Pool(TLIVE,new TypeLive()); }
   private static TypeLive make( boolean any, int flags ) {
-    TypeLive t1 = POOLS[TLIVE].malloc();
+    TypeLive t1 = pool(TLIVE).malloc();
     return t1.init(any,flags).hashcons_free();
   }
 
@@ -58,7 +58,7 @@ public class TypeLive extends TypeObj<TypeLive> {
   public static final TypeLive LIVE_BOT=make(false,FLAG_ESCAPE+FLAG_WITH_DISP);
   public static final TypeLive DEAD   = LIVE_BOT.dual();
 
-  @Override protected TypeLive xdual() { return POOLS[TLIVE].<TypeLive>malloc().init(!_any,_flags); }
+  @Override protected TypeLive xdual() { return pool(TLIVE).<TypeLive>malloc().init(!_any,_flags); }
   @Override protected Type xmeet( Type t ) {
     switch( t._type ) {
     case TLIVE:   break;
@@ -4,7 +4,6 @@ import com.cliffc.aa.util.*;
 
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.HashMap;
 
 import static com.cliffc.aa.type.TypeFld.Access;
 
@@ -37,7 +36,8 @@ import static com.cliffc.aa.type.TypeFld.Access;
    to the the call (and are reachable from those) - but we need a convenient
    Bottom type.  Missing aliases default to TypeObj.
 
-   The representation is a collection of TypeObjs indexed by alias#.  Missing
+   The representation is a collection of TypeObjs indexed by alias#, held in
+   a persistent trie (AliasMap) so updates share structure.  Missing
    aliases are always equal to their nearest present parent.  The root at
    alias#1 is only either TypeObj.BOT or TOP.  Alias#0 is nil and is always
    missing.  The structure is canonicalized; if a child is a dup of a parent it
@@ -55,58 +55,40 @@ public class TypeMem extends Type<TypeMem> {
   // for memory liveness; TypeMem is never a nil.  Slot#1 is the Parent-Of-All
   // aliases and is the default value.  Default values are replaced with null
   // during canonicalization.
-  private TypeObj[] _pubs;
+  private AliasMap _pubs;
 
-  // A cache of sharpened pointers.  Pointers get sharpened by looking up their
-  // aliases in this memory (perhaps merging several aliases).  The process is
-  // recursive and "deeply" sharpens pointers, and is somewhat expensive.
-  // Maintain a cache of prior results.  Not related to the object's Type, so
-  // not part of the hash/equals checks.  Optional.  Lazily filled in.
-  private HashMap<TypeMemPtr,TypeMemPtr> _sharp_cache;
-
-  private TypeMem init(TypeObj[] pubs) {
-    assert check(pubs);    // Caller has canonicalized arrays already
+  private TypeMem init(AliasMap pubs) {
+    assert check(pubs);    // Caller has canonicalized already
     _pubs = pubs;
     return this;
   }
-  // False if not 'tight' (no trailing null pairs) or any matching pairs (should
-  // collapse to their parent) or any mixed parent/child.
-  private static boolean check(TypeObj[] as) {
-    if( !(as[0] instanceof TypeLive) ) return false; // Slot 0 reserved for live-ness
-    if( as.length == 1 ) return true;
-    if( as[1]!=TypeObj.OBJ    && as[1]!=TypeObj.XOBJ   &&
-        as[1]!=TypeObj.ISUSED && as[1]!=TypeObj.UNUSED &&
-        !(as[1] instanceof TypeLive) &&
-        as[1] != null )
+  // False if any matching pairs (should collapse to their parent) or any mixed
+  // parent/child.
+  private static boolean check(AliasMap as) {
+    if( !(as.at(0) instanceof TypeLive) ) return false; // Slot 0 reserved for live-ness
+    if( as.len() == 1 ) return true;
+    TypeObj as1 = as.at(1);
+    if( as1!=TypeObj.OBJ    && as1!=TypeObj.XOBJ   &&
+        as1!=TypeObj.ISUSED && as1!=TypeObj.UNUSED &&
+        !(as1 instanceof TypeLive) &&
+        as1 != null )
       return false;             // Only 2 choices
-    if( as[0].above_center()!=as[1].above_center() ) return false;
-    if( as.length==2 ) return true; // Trivial all of memory
-    // "tight" - something in the last slot
-    if( as[as.length-1] == null ) return false;
+    if( as.at(0).above_center()!=as1.above_center() ) return false;
+    if( as.len()==2 ) return true; // Trivial all of memory
     // No dups of any parent
-    for( int i=2; i<as.length; i++ )
-      if( as[i] != null )
-        for( int par = BitsAlias.TREE.parent(i); par!=0; par = BitsAlias.TREE.parent(par) )
-          if( as[par] != null ) {
-            if( as[par] == as[i] ) return false; // Dup of a parent
-            break;
-          }
+    for( int i=as.next(2); i!=-1; i=as.next(i+1) )
+      for( int par = BitsAlias.TREE.parent(i); par!=0; par = BitsAlias.TREE.parent(par) )
+        if( as.at(par) != null ) {
+          if( as.at(par) == as.at(i) ) return false; // Dup of a parent
+          break;
+        }
     return true;
   }
-  @Override int compute_hash() {
-    int sum=TMEM;
-    for( TypeObj obj : _pubs ) sum += obj==null ? 0 : obj._hash;
-    return sum;
-  }
+  @Override int compute_hash() { return TMEM+_pubs.hashCode(); }
   @Override public boolean equals( Object o ) {
     if( this==o ) return true;
     if( !(o instanceof TypeMem) ) return false;
-    TypeMem tf = (TypeMem)o;
-    if( _pubs .length != tf._pubs .length ) return false;
-    for( int i = 0; i< _pubs.length; i++ )
-      if( _pubs[i] != tf._pubs[i] ) // note '==' and NOT '.equals()'
-        return false;
-    return true;
+    return _pubs.equals(((TypeMem)o)._pubs);
   }
   // Never part of a cycle, so the normal check works
   @Override public boolean cycle_equals( Type o ) { return equals(o); }
@@ -116,50 +98,49 @@ public class TypeMem extends Type<TypeMem> {
     if( this== MEM ) return sb.p("[ mem ]");
     if( this==XMEM ) return sb.p("[~mem ]");
 
-    if( _pubs.length==1 )
-      return _pubs[0].str(sb.p('['),dups,mem,debug).p(']');
+    if( _pubs.len()==1 )
+      return _pubs.at(0).str(sb.p('['),dups,mem,debug).p(']');
 
-    if( _pubs[0]==TypeLive.DEAD ) sb.p('!');
-    else _pubs[0].str(sb,dups,mem,debug);
+    if( _pubs.at(0)==TypeLive.DEAD ) sb.p('!');
+    else _pubs.at(0).str(sb,dups,mem,debug);
 
     sb.p('[');
-    for( int i = 1; i< _pubs.length; i++ )
-      if( _pubs[i] != null )
-        _pubs[i].str(sb.p(i).p(':'),dups,mem,debug).p(",");
+    for( int i=_pubs.next(1); i!=-1; i=_pubs.next(i+1) )
+      _pubs.at(i).str(sb.p(i).p(':'),dups,mem,debug).p(",");
     return sb.unchar().p(']');
   }
 
   // Alias-at.  Out of bounds or null uses the parent value.
   public TypeObj at   (int alias) { return at(_pubs ,alias); }
-  static TypeObj at(TypeObj[] tos, int alias) { return tos.length==1 ? tos[0].oob(TypeObj.ISUSED): tos[at_idx(tos,alias)]; }
+  static TypeObj at(AliasMap tos, int alias) { return tos.len()==1 ? tos.at(0).oob(TypeObj.ISUSED): tos.at(at_idx(tos,alias)); }
   // Alias-at index
-  static int at_idx(TypeObj[]tos, int alias) {
+  static int at_idx(AliasMap tos, int alias) {
     if( alias==0 ) return 1;    // Either base memory, or assert
     while( true ) {
-      if( alias < tos.length && tos[alias] != null )
+      if( tos.at(alias) != null )
         return alias;
       alias = BitsAlias.TREE.parent(alias);
       assert alias!=0;
     }
   }
-  //
-  public TypeObj[] alias2objs() { return _pubs; }
-  public int len() { return _pubs.length; }
+  // True if the alias is explicitly mapped, and not inherited from a parent
+  public boolean has(int alias) { return _pubs.at(alias)!=null; }
+  public int len() { return _pubs.len(); }
 
   // Return set of aliases.  Not even sure if this is well-defined.
   public BitsAlias aliases() {
     if( this== FULL ) return BitsAlias.NZERO;
     if( this==EMPTY ) return BitsAlias.EMPTY;
     BitsAlias bas = BitsAlias.EMPTY;
-    for( int i = 0; i< _pubs.length; i++ )
-      if( _pubs[i]!=null && !_pubs[i].above_center() )
+    for( int i=_pubs.next(0); i!=-1; i=_pubs.next(i+1) )
+      if( !_pubs.at(i).above_center() )
         bas = bas.set(i);
     return bas;
   }
 
   static { new Pool(TMEM,new TypeMem()); }
-  private static TypeMem make(TypeObj[] pubs) {
-    Pool P = POOLS[TMEM];
+  private static TypeMem make(AliasMap pubs) {
+    Pool P = pool(TMEM);
     TypeMem t1 = P.malloc();
     return t1.init(pubs).hashcons_free();
   }
@@ -170,7 +151,12 @@ public class TypeMem extends Type<TypeMem> {
     if( as.length> 1 ) as[0] = as[1].oob(TypeLive.LIVE);
     TypeObj[] tos = _make1(as);
     if( tos==null ) return DEAD; // All things are dead, so dead
-    return make(tos);
+    return make(AliasMap.make(tos));
+  }
+  // Canonicalize and make, from a map with slot 0 already set
+  private static TypeMem make0( AliasMap as ) {
+    AliasMap tos = _make1(as);
+    return tos==null ? DEAD : make(tos); // All things are dead, so dead
   }
 
   // Canonicalize memory before making.  Unless specified, the default memory is "do not care"
@@ -198,6 +184,28 @@ public class TypeMem extends Type<TypeMem> {
     return as;
   }
 
+  // Canonicalize a map, as above.  Reads all present aliases, but copies only
+  // the paths to any removed dups.
+  private static AliasMap _make1( AliasMap as ) {
+    int len = as.len();
+    if( len > 1 && as.at(1)==null ) {
+      int i; for( i=as.next(2); i!=-1; i=as.next(i+1) )
+        if( as.at(i) != TypeObj.XOBJ )
+          break;
+      if( i==-1 ) return null;  // All things are dead, so dead
+      as = as.set(1,TypeObj.XOBJ); // Default memory is "do not care"
+    }
+    if( len <= 2 ) return as;
+    // No dups of a parent.  Trailing nulls are trimmed by the map.
+    for( int i=as.next(2); i!=-1; i=as.next(i+1) )
+      for( int par = BitsAlias.TREE.parent(i); par!=0; par = BitsAlias.TREE.parent(par) )
+        if( as.at(par) != null ) {
+          if( as.at(par) == as.at(i) ) as = as.set(i,null);
+          break;
+        }
+    return as;
+  }
+
   // Precise single alias.  Other aliases are "do not care".  Nil not allowed.
   // Both "do not care" and this alias are exact.
   public static TypeMem make(int alias, TypeObj oop ) {
@@ -260,37 +268,27 @@ public class TypeMem extends Type<TypeMem> {
 
   // All mapped memories remain, but each memory flips internally.
   @Override protected TypeMem xdual() {
-    TypeObj[] pubs = new TypeObj[_pubs.length];
-    for( int i = 0; i< _pubs.length; i++ )
-      if( _pubs[i] != null )
-        pubs[i] = (TypeObj) _pubs[i].dual();
-    return POOLS[TMEM].<TypeMem>malloc().init(pubs);
+    return pool(TMEM).<TypeMem>malloc().init(_pubs.map(to -> (TypeObj)to.dual()));
   }
   @Override protected Type xmeet( Type t ) {
     if( t._type != TMEM ) return ALL;
     TypeMem tf = (TypeMem)t;
     // Meet of default values, meet of element-by-element.
-    TypeObj[] as = _meet(_pubs,tf._pubs,false);
-    TypeObj[] tos = _make1(as);
-    return tos==null ? DEAD : make(tos); // All things are dead, so dead
+    return make0(_meet(_pubs,tf._pubs,false));
   }
 
-  private static TypeObj[] _meet(TypeObj[] as, TypeObj[] bs, boolean is_loop) {
-    TypeObj mt_live = (TypeObj)as[0].meet(bs[0]);
-    int  len = Math.max(as.length,bs.length);
-    int mlen = Math.min(as.length,bs.length);
+  // Element-by-element meet.  Aliases missing from both inputs stay missing,
+  // and subtrees shared by both inputs are shared by the result.
+  private static AliasMap _meet(AliasMap as, AliasMap bs, boolean is_loop) {
+    TypeObj mt_live = (TypeObj)as.at(0).meet(bs.at(0));
+    int mlen = Math.min(as.len(),bs.len());
     if( mlen==1 ) {             // At least 1 is short
       // Short & low "wins": result is short.
-      if( (!as[0].above_center() && as.length==1) ||
-          (!bs[0].above_center() && bs.length==1) )
-        return new TypeObj[]{mt_live};
+      if( (!as.at(0).above_center() && as.len()==1) ||
+          (!bs.at(0).above_center() && bs.len()==1) )
+        return AliasMap.EMPTY.set(0,mt_live);
     }
-    TypeObj[] objs = new TypeObj[len];
-    objs[0] = mt_live;
-    for( int i=1; i<len; i++ )
-      objs[i] = i<mlen && as[i]==null && bs[i]==null // Shortcut null-vs-null
-        ? null : _meet(at(as,i),at(bs,i),is_loop);   // meet element-by-element
-    return objs;
+    return AliasMap.zip(as,bs,i -> i==0 ? mt_live : _meet(at(as,i),at(bs,i),is_loop));
   }
   private static TypeObj _meet(TypeObj a, TypeObj b, boolean is_loop) {
     return (TypeObj)(is_loop ? a.meet_loop(b) : a.meet(b));
@@ -301,9 +299,7 @@ public class TypeMem extends Type<TypeMem> {
     if( t2._type != TMEM ) return ALL;
     TypeMem tf = (TypeMem)t2;
     // Meet of default values, meet of element-by-element.
-    TypeObj[] as = _meet(_pubs,tf._pubs,true);
-    TypeObj[] tos = _make1(as);
-    return tos==null ? DEAD : make(tos); // All things are dead, so dead
+    return make0(_meet(_pubs,tf._pubs,true));
   }
 
   // Any alias is not UNUSED?
@@ -329,7 +325,7 @@ public class TypeMem extends Type<TypeMem> {
     if( this==EMPTY ) return TypeObj.XOBJ;
     return ld(_pubs,ptr._aliases);
   }
-  private static TypeObj ld( TypeObj[] tos, BitsAlias aliases ) {
+  private static TypeObj ld( AliasMap tos, BitsAlias aliases ) {
     boolean any = aliases.above_center();
     // Any alias, plus all of its children, are meet/joined.  This does a
     // tree-based scan on the inner loop.
@@ -389,7 +385,7 @@ public class TypeMem extends Type<TypeMem> {
   // Slice memory by aliases; unnamed aliases are replaced with ~use.
   public TypeMem slice_reaching_aliases(BitsAlias aliases) {
     if( aliases==BitsAlias.FULL ) return this;
-    TypeObj[] tos = new TypeObj[Math.max(_pubs.length,aliases.max()+1)];
+    TypeObj[] tos = new TypeObj[Math.max(_pubs.len(),aliases.max()+1)];
     tos[1] = at(1);
     for( int i=2; i<tos.length; i++ )
       tos[i] = aliases.test_recur(i) ? at(i) : TypeObj.UNUSED;
@@ -399,20 +395,11 @@ public class TypeMem extends Type<TypeMem> {
   // Sharpen a dull pointer against this memory.
   public TypeMemPtr sharpen( TypeMemPtr dull ) {
     assert dull==dull.simple_ptr();
-    if( _sharp_cache != null ) { // Check the cache first
-      TypeMemPtr sharp = _sharp_cache.get(dull);
-      if( sharp != null ) return sharp;
-    }
+    TypeMemPtr sharp = SharpCache.get(this,dull); // Check the cache first
+    if( sharp != null ) return sharp;
     // Switch to TypeStruct for building recursive structures.
     return TypeStruct.sharpen(this,dull);
   }
-  TypeMemPtr sharp_get( TypeMemPtr tmp ) { return _sharp_cache==null ? null : _sharp_cache.get(tmp); }
-  TypeMemPtr sharput( TypeMemPtr dull, TypeMemPtr sharp ) {
-    assert dull.interned() && sharp.interned();
-    if( _sharp_cache==null ) _sharp_cache = new HashMap<>();
-    _sharp_cache.put(dull,sharp);
-    return sharp;               // return new not old
-  }
   // Sharpen if a maybe-pointer
   @Override public Type sharptr( Type ptr ) {
     return ptr instanceof TypeMemPtr ? sharpen((TypeMemPtr)ptr) :
@@ -421,7 +408,7 @@ public class TypeMem extends Type<TypeMem> {
 
   // Widen (lose info), to make it suitable as the default memory.
   public TypeMem crush() {
-    TypeObj[] oops = _pubs.clone();
+    TypeObj[] oops = _pubs.asAry();
     oops[0] = null;
     for( int i=1; i<oops.length; i++ )
       if( oops[i]!=null ) oops[i] = oops[i].crush();
@@ -431,52 +418,46 @@ public class TypeMem extends Type<TypeMem> {
   // Whole object Set at an alias.
   public TypeMem set( int alias, TypeObj obj ) {
     if( at(alias)==obj ) return this; // Shortcut
-    int max = Math.max(_pubs.length,alias+1);
-    TypeObj[] tos = Arrays.copyOf(_pubs,max);
-    tos[0] = null;
-    tos[alias] = obj;
-    return make0(tos);
+    return make0(live0(_pubs.set(alias,obj)));
+  }
+  // Reset slot 0 from the default memory at slot 1, as make0(TypeObj[]) does
+  private static AliasMap live0( AliasMap as ) {
+    return as.len()>1 && as.at(1)!=null ? as.set(0,as.at(1).oob(TypeLive.LIVE)) : as;
   }
 
   // Whole object Store of a New at an alias.
   // Sets the private type.
   // Lifts/sets the public type, and meets fields.
   public TypeMem st_new( int alias, TypeObj obj ) {
-    TypeObj[] pubs  = _pubs ;
-    TypeObj pub  = at(pubs ,alias); // Current value for alias
+    TypeObj pub  = at(_pubs,alias); // Current value for alias
     if( pub==obj ) return this;     // Shortcut
-    (pubs = _st_new(_pubs,pubs,alias))[alias] = (TypeObj)pub.meet(obj);
-    pubs[0] = null;
-    return make0(pubs);
-  }
-  private static TypeObj[] _st_new( TypeObj[] base, TypeObj[] as, int alias ) {
-    return base==as ? Arrays.copyOf(base,Math.max(base.length,alias+1)) : as;
+    return make0(live0(_pubs.set(alias,(TypeObj)pub.meet(obj))));
   }
 
   // Field store into a conservative set of aliases.
   public TypeMem update( BitsAlias aliases, Access fin, String fld, Type val ) {
-    Ary<TypeObj> pubs  = new Ary<>(_pubs .clone());
+    AliasMap pubs = _pubs;
     for( int alias : aliases )
       if( alias != 0 )
         for( int kid=alias; kid != 0; kid=BitsAlias.next_kid(alias,kid) )
-          pubs.setX(kid,at(_pubs,kid).update(fin,fld,val)); // imprecise
-    return make(_make1(pubs.asAry()));
+          pubs = pubs.set(kid,at(_pubs,kid).update(fin,fld,val)); // imprecise
+    return make(_make1(pubs));
   }
 
   // Array store into a conservative set of aliases.
   public TypeMem update( BitsAlias aliases, TypeInt idx, Type val ) {
-    Ary<TypeObj> pubs  = new Ary<>(_pubs .clone());
+    AliasMap pubs = _pubs;
     for( int alias : aliases )
       if( alias != 0 )
         for( int kid=alias; kid != 0; kid=BitsAlias.next_kid(alias,kid) )
-          pubs.setX(kid,at(_pubs,kid).update(idx,val)); // imprecise
-    return make(_make1(pubs.asAry()));
+          pubs = pubs.set(kid,at(_pubs,kid).update(idx,val)); // imprecise
+    return make(_make1(pubs));
   }
 
   // Everything NOT in the 'escs' is flattened to UNUSED.
   // Everything YES in the 'escs' is flattened to SCALAR.
   public TypeMem remove_no_escapes( BitsAlias escs, String fld, Type live ) {
-    TypeObj[] tos = new TypeObj[Math.max(_pubs.length,escs.max()+1)];
+    TypeObj[] tos = new TypeObj[Math.max(_pubs.len(),escs.max()+1)];
     for( int i=1; i<tos.length; i++ )
       tos[i] = escs.test_recur(i) ? at(i).remove_other_flds(fld,live) : TypeObj.UNUSED;
     return make0(tos);
@@ -486,16 +467,16 @@ public class TypeMem extends Type<TypeMem> {
   public TypeMem remove(BitsAlias escs) {
     if( escs==BitsAlias.EMPTY ) return this;
     if( escs==BitsAlias.FULL  ) throw com.cliffc.aa.AA.unimpl(); // Shortcut
-    TypeObj[] tos = _pubs.clone();
-    for( int i = 1; i< _pubs.length; i++ )
+    AliasMap tos = _pubs;
+    for( int i=_pubs.next(1); i!=-1; i=_pubs.next(i+1) )
       if( escs.test(i) )
-        tos[i] = TypeObj.UNUSED;
-    return make0(tos);
+        tos = tos.set(i,TypeObj.UNUSED);
+    return make0(live0(tos));
   }
 
   // Report back only those aliases that are also UNUSED
   public BitsAlias and_unused(BitsAlias escs) {
-    int len = Math.max(_pubs.length,escs.max()+1);
+    int len = Math.max(_pubs.len(),escs.max()+1);
     BitsAlias bs = BitsAlias.EMPTY;
     for( int i=1; i<len; i++ )
       if( at(i)==TypeObj.UNUSED && escs.test_recur(i) )
@@ -521,24 +502,21 @@ public class TypeMem extends Type<TypeMem> {
   // For live-ness purposes, flatten all field contents.
   public TypeMem flatten_fields() {
     TypeObj to, tof=null;
-    int i; for( i=1; i< _pubs.length; i++ ) {
-      if( (to = _pubs[i]) != null && (tof = to.flatten_fields())!=to )
+    int i; for( i=_pubs.next(1); i!=-1; i=_pubs.next(i+1) ) {
+      if( (tof = (to = _pubs.at(i)).flatten_fields())!=to )
         break;
     }
-    if( i== _pubs.length ) return this;
+    if( i==-1 ) return this;
 
-    TypeObj[] tos = _pubs.clone();
-    tos[0] = null;
-    tos[i++] = tof;
-    for( ; i< _pubs.length; i++ )
-      if( tos[i] != null )
-        tos[i] = tos[i].flatten_fields();
-    return make0(tos);
+    AliasMap tos = _pubs.set(i,tof);
+    for( i=_pubs.next(i+1); i!=-1; i=_pubs.next(i+1) )
+      tos = tos.set(i,_pubs.at(i).flatten_fields());
+    return make0(live0(tos));
   }
 
   // Recursively widen fields
   @Override public TypeMem widen() {
-    TypeObj[] tos = _pubs.clone();
+    TypeObj[] tos = _pubs.asAry();
     tos[0] = null;
     for( int i=1; i<tos.length; i++ )
       if( tos[i]!=null )
@@ -548,9 +526,9 @@ public class TypeMem extends Type<TypeMem> {
 
   // Lift (join) memory contents based on the sharp pointer
   public TypeMem lift_at( TypeMemPtr ptr ) {
-    TypeObj[] tos = _pubs.clone();
+    TypeObj[] tos = _pubs.asAry();
     tos[0] = null;
-    for( int i=1; i< _pubs.length; i++ )
+    for( int i=1; i<tos.length; i++ )
       if( ptr._aliases.test_recur(i) )
         tos[i] = (TypeObj)at(i).join(ptr._obj).simple_ptr();
     return make0(tos);
@@ -558,9 +536,11 @@ public class TypeMem extends Type<TypeMem> {
 
 
   @Override public boolean above_center() {
-    for( TypeObj alias : _pubs )
-      if( alias != null && !alias.above_center() && !alias.is_con() )
+    for( int i=_pubs.next(0); i!=-1; i=_pubs.next(i+1) ) {
+      TypeObj alias = _pubs.at(i);
+      if( !alias.above_center() && !alias.is_con() )
         return false;
+    }
     return true;
   }
   @Override public boolean may_be_con()   { return false;}
@@ -568,8 +548,8 @@ public class TypeMem extends Type<TypeMem> {
   @Override public boolean must_nil() { return false; } // never a nil
   @Override Type not_nil() { return this; }
 
-  public TypeLive live() { return (TypeLive)_pubs[0]; }
-  public boolean is_live() { return _pubs.length>1 || (live()!=TypeLive.DEAD && live()!=TypeLive.LIVE.dual()); }
-  public boolean basic_live() { return _pubs.length==1; }
+  public TypeLive live() { return (TypeLive)_pubs.at(0); }
+  public boolean is_live() { return _pubs.len()>1 || (live()!=TypeLive.DEAD && live()!=TypeLive.LIVE.dual()); }
+  public boolean basic_live() { return _pubs.len()==1; }
 
 }
@@ -77,7 +77,7 @@ public final class TypeMemPtr extends Type<TypeMemPtr> implements Cyclic {
 
   static { new Pool(TMEMPTR,new TypeMemPtr()); }
   public static TypeMemPtr make(BitsAlias aliases, TypeObj obj ) {
-    TypeMemPtr t1 = POOLS[TMEMPTR].malloc();
+    TypeMemPtr t1 = pool(TMEMPTR).malloc();
     return t1.init(aliases,obj).hashcons_free();
   }
 
@@ -96,11 +96,11 @@ public final class TypeMemPtr extends Type<TypeMemPtr> implements Cyclic {
     // Install a (to be cyclic) DISPLAY.  Not cyclic during the install, since
     // we cannot build the cycle all at once.
     DISPLAY = TypeStruct.malloc("",false,true).add_fld(TypeFld.make("^",Type.ANY,Access.Final,DSP_IDX)).set_hash();
-    TypeStruct.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     DISPLAY_PTR = TypeMemPtr.make(BitsAlias.RECORD_BITS0,DISPLAY); // Normal create
     DISP_FLD = TypeFld.make("^",DISPLAY_PTR,Access.Final,DSP_IDX); // Normal create
     DISPLAY.set_fld(DISP_FLD);                                     // Change field without changing hash
-    TypeStruct.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     TypeStruct ds = DISPLAY.install();
     assert ds==DISPLAY && DISPLAY.is_display();
   }
@@ -148,12 +148,12 @@ public final class TypeMemPtr extends Type<TypeMemPtr> implements Cyclic {
     TypeObj od = (TypeObj)_obj.dual();
     if( ad==_aliases && od==_obj )
       return this;              // Centerline TMP
-    return POOLS[TMEMPTR].<TypeMemPtr>malloc().init(ad,od);
+    return pool(TMEMPTR).<TypeMemPtr>malloc().init(ad,od);
   }
   @Override TypeMemPtr rdual() {
     assert _hash!=0;
     if( _dual != null ) return _dual;
-    TypeMemPtr dual = _dual = POOLS[TMEMPTR].<TypeMemPtr>malloc().init(_aliases.dual(),(TypeObj)_obj.rdual());
+    TypeMemPtr dual = _dual = pool(TMEMPTR).<TypeMemPtr>malloc().init(_aliases.dual(),(TypeObj)_obj.rdual());
     dual._dual = this;
     dual._hash = dual.compute_hash();
     return dual;
@@ -290,10 +290,9 @@ public final class TypeMemPtr extends Type<TypeMemPtr> implements Cyclic {
   // Make a Type, replacing all dull pointers from the matching types in mem.
   @Override public Type make_from(Type head, TypeMem mem, VBitSet visit) {
     if( this!=head ) {
-      TypeObj[] pubs = mem.alias2objs();
       boolean mapped=true;
       for( int alias : _aliases )
-        if( pubs[alias]==null )
+        if( !mem.has(alias) )
           { mapped=false; break; }
       if( mapped ) {
         TypeObj obj = mem.ld(this);
@@ -0,0 +1,131 @@
+package com.cliffc.aa.type;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Runtime metrics for type building: object-pool churn per type kind, intern
+// table sizes, the meet, sharpen and approx memo caches, and cyclic installs.
+//
+// The counters are the plain fields the pools and caches already keep, so
+// leaving metrics on costs nothing until read.  Per-thread counters (pools and
+// meet caches) are summed over all live threads, read without locking; a
+// snapshot may be a little stale but never blocks a compile.
+//
+// Read with snapshot(), or over JMX: register() publishes every snapshot key
+// as a read-only Long attribute of "com.cliffc.aa:type=TypeMetrics".  Runs
+// with -Daa.jmx=true register at startup.
+public final class TypeMetrics implements DynamicMBean {
+  public static final String NAME = "com.cliffc.aa:type=TypeMetrics";
+
+  // All metrics, by sorted name.  Ratios are integer percents.
+  public static Map<String,Long> snapshot() {
+    TreeMap<String,Long> m = new TreeMap<>();
+    Type.Local[] locals;
+    synchronized( Type.LOCALS ) { locals = Type.LOCALS.toArray(new Type.Local[0]); }
+    m.put("threads",(long)locals.length);
+
+    // Pools, by kind; the simple Types share one kind
+    long[] mallocs = new long[Type.TLAST], pooled = new long[Type.TLAST], frees = new long[Type.TLAST], clones = new long[Type.TLAST];
+    for( Type.Local l : locals )
+      for( byte t=0; t<Type.TLAST; t++ ) {
+        Type.Pool p = l._pools[t];
+        if( p==null ) continue;
+        int k = t<Type.TSIMPLE ? 0 : t;
+        mallocs[k] += p._malloc;  pooled[k] += p._pool;
+        frees  [k] += p._free;    clones[k] += p._clone;
+      }
+    for( byte t=0; t<Type.TLAST; t++ ) {
+      if( mallocs[t]+pooled[t]+clones[t]==0 ) continue;
+      String pre = "pool."+Type.kind_name(t)+".";
+      m.put(pre+"malloc",mallocs[t]);
+      m.put(pre+"pooled",pooled [t]);
+      m.put(pre+"free"  ,frees  [t]);
+      m.put(pre+"clone" ,clones [t]);
+      m.put(pre+"reuse_pct",pct(pooled[t],mallocs[t]));
+    }
+
+    m.put("intern.types" ,(long)Type .intern_size());
+    m.put("intern.arrays",(long)Types.intern_size());
+
+    long[] meet = new long[5], join = new long[5], isa = new long[5];
+    for( Type.Local l : locals ) {
+      sum(meet,l._meet);  sum(join,l._join);  sum(isa,l._isa);
+    }
+    cache(m,"meet_cache",meet);
+    cache(m,"join_cache",join);
+    cache(m,"isa_cache" ,isa );
+    cache(m,"sharp_cache" ,new long[]{SharpCache .size(),SharpCache .len(),SharpCache .hits(),SharpCache .misses(),SharpCache .evictions()});
+    cache(m,"approx_cache",new long[]{ApproxCache.size(),ApproxCache.len(),ApproxCache.hits(),ApproxCache.misses(),ApproxCache.evictions()});
+
+    m.put("cyclic.installs",Type.CYCLIC_INSTALLS);
+    m.put("cyclic.priors"  ,Type.CYCLIC_PRIORS  );
+    m.put("cyclic.interns" ,Type.CYCLIC_INTERNS );
+    return m;
+  }
+
+  private static long pct( long hits, long misses ) {
+    long tot = hits+misses;
+    return tot==0 ? 0 : hits*100/tot;
+  }
+  // Sum a per-thread cache into {size,len,hits,misses,evicts}
+  private static void sum( long[] x, MeetCache c ) {
+    x[0] += c.size();  x[1] += c.len();
+    x[2] += c.hits();  x[3] += c.misses();  x[4] += c.evictions();
+  }
+  private static void cache( Map<String,Long> m, String name, long[] x ) {
+    m.put(name+".size"   ,x[0]);
+    m.put(name+".len"    ,x[1]);
+    m.put(name+".hits"   ,x[2]);
+    m.put(name+".misses" ,x[3]);
+    m.put(name+".evicts" ,x[4]);
+    m.put(name+".hit_pct",pct(x[2],x[3]));
+  }
+
+  // Publish on the platform MBean server; repeat calls are ignored.
+  public static synchronized void register() {
+    try {
+      MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(NAME);
+      if( !mbs.isRegistered(name) )
+        mbs.registerMBean(new TypeMetrics(),name);
+    } catch( JMException e ) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // --- DynamicMBean: every snapshot key is a read-only Long attribute
+  private TypeMetrics() {}
+
+  @Override public Object getAttribute( String attr ) throws AttributeNotFoundException {
+    Long x = snapshot().get(attr);
+    if( x==null ) throw new AttributeNotFoundException(attr);
+    return x;
+  }
+  @Override public AttributeList getAttributes( String[] attrs ) {
+    Map<String,Long> m = snapshot();
+    AttributeList as = new AttributeList();
+    for( String attr : attrs ) {
+      Long x = m.get(attr);
+      if( x!=null ) as.add(new Attribute(attr,x));
+    }
+    return as;
+  }
+  @Override public void setAttribute( Attribute attr ) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("read-only: "+attr.getName());
+  }
+  @Override public AttributeList setAttributes( AttributeList attrs ) { return new AttributeList(); }
+  @Override public Object invoke( String op, Object[] args, String[] sig ) throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(op));
+  }
+  // Attributes come and go with the type kinds and threads in use
+  @Override public MBeanInfo getMBeanInfo() {
+    Map<String,Long> m = snapshot();
+    MBeanAttributeInfo[] as = new MBeanAttributeInfo[m.size()];
+    int i=0;
+    for( String attr : m.keySet() )
+      as[i++] = new MBeanAttributeInfo(attr,"java.lang.Long",attr,true,false,false);
+    return new MBeanInfo(TypeMetrics.class.getName(),"AA type system metrics",as,null,null,null);
+  }
+}
@@ -38,7 +38,7 @@ public class TypeObj<O extends TypeObj<O>> extends Type<O> {
 
   static { new Pool(TOBJ,new TypeObj()); }
   private static TypeObj make( String name, boolean any, boolean use ) {
-    return (TypeObj)POOLS[TOBJ].<TypeObj>malloc().init(name,any,use).hashcons_free();
+    return (TypeObj)pool(TOBJ).<TypeObj>malloc().init(name,any,use).hashcons_free();
   }
 
   public static final TypeObj OBJ   = make("",false,false); // Any obj; allocated as *something*
@@ -49,7 +49,7 @@ public class TypeObj<O extends TypeObj<O>> extends Type<O> {
 
   @Override boolean is_display() { return false; }
   @SuppressWarnings("unchecked")
-  @Override protected O xdual() { return POOLS[_type].<O>malloc().init(_name,!_any,!_use); }
+  @Override protected O xdual() { return pool(_type).<O>malloc().init(_name,!_any,!_use); }
   @Override protected Type xmeet( Type t ) {
     if( !(t instanceof TypeObj) ) return ALL;
     assert this!=t; // already handled
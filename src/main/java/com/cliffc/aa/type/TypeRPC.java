@@ -23,7 +23,7 @@ public class TypeRPC extends Type<TypeRPC> {
 
   static { new Pool(TRPC,new TypeRPC()); }
   public static TypeRPC make( BitsRPC rpcs ) {
-    return POOLS[TRPC].<TypeRPC>malloc().init(rpcs).hashcons_free();
+    return pool(TRPC).<TypeRPC>malloc().init(rpcs).hashcons_free();
   }
 
   public static TypeRPC make( int rpc ) { return make(BitsRPC.make0(rpc)); }
@@ -33,7 +33,7 @@ public class TypeRPC extends Type<TypeRPC> {
   static final TypeRPC[] TYPES = new TypeRPC[]{RPC1,ALL_CALL,EMPTY};
 
   @Override protected TypeRPC xdual() {
-    return _rpcs==BitsRPC.EMPTY ? this : POOLS[TRPC].<TypeRPC>malloc().init(_rpcs.dual());
+    return _rpcs==BitsRPC.EMPTY ? this : pool(TRPC).<TypeRPC>malloc().init(_rpcs.dual());
   }
   @Override protected Type xmeet( Type t ) {
     switch( t._type ) {
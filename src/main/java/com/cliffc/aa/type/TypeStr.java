@@ -34,7 +34,7 @@ public class TypeStr extends TypeObj<TypeStr> {
 
   static { new Pool(TSTR,new TypeStr()); }
   public static TypeStr make( String name, boolean any, String con ) {
-    TypeStr t1 = POOLS[TSTR].malloc();
+    TypeStr t1 = pool(TSTR).malloc();
     return t1.init(name,any,con).hashcons_free();
   }
 
@@ -52,7 +52,7 @@ public class TypeStr extends TypeObj<TypeStr> {
   @Override public String getstr() { assert _con!=null; return _con; }
 
   @Override protected TypeStr xdual() {
-    return _con == null ? POOLS[TSTR].<TypeStr>malloc().init(_name, !_any,_con) : this; }
+    return _con == null ? pool(TSTR).<TypeStr>malloc().init(_name, !_any,_con) : this; }
   @Override TypeStr rdual() {
     if( _dual != null ) return _dual;
     TypeStr dual = _dual = xdual();
@@ -42,8 +42,11 @@ import static com.cliffc.aa.type.TypeFld.Access;
 public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   public boolean _open;   // Extra fields are treated as ALL (or ANY)
   private short _max_arg; // Max field number
-  // The fields indexed by field name.  Effectively final.  Public iterator, but private field.
-  private IdentityHashMap<String,TypeFld> _flds;
+  // The fields, sorted by field name symbol id (see TypeFld.sym), so two
+  // structs line up field-by-field.  Effectively final.  Public iterator, but
+  // private field.  Only the first _len are in use.
+  private TypeFld[] _flds;
+  private int _len;
   // Type is cyclic.  This is a summary property, not a part of the type, hence
   // is not in the equals nor hash.  Used to optimize non-cyclic access.
   boolean _cyclic;
@@ -52,8 +55,9 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     super.init(name, any, any);
     _cyclic = false;
     _open  = open;
-    if( _flds==null ) _flds = new IdentityHashMap<>();
-    else _flds.clear();         // No leftover fields from pool
+    if( _flds==null ) _flds = new TypeFld[4];
+    else Arrays.fill(_flds,0,_len,null); // No leftover fields from pool
+    _len = 0;
     _max_arg = DSP_IDX;         // Min of the max
     return this;
   }
@@ -64,8 +68,14 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     return ts;
   }
 
-  @Override public void walk1( BiFunction<Type,String,Type> map ) { for( String key : keys() ) map.apply(_flds.get(key),key); }
-  @Override public void walk_update( UnaryOperator<Type> map ) { for( String key : keys() )  _flds.put(key,(TypeFld)map.apply(_flds.get(key)));  }
+  @Override public void walk1( BiFunction<Type,String,Type> map ) { for( int i=0; i<_len; i++ ) map.apply(_flds[i],_flds[i]._fld); }
+  @Override public void walk_update( UnaryOperator<Type> map ) {
+    for( int i=0; i<_len; i++ ) {
+      TypeFld fld = (TypeFld)map.apply(_flds[i]);
+      assert fld._sym==_flds[i]._sym; // Same name, same slot
+      _flds[i] = fld;
+    }
+  }
 
   // Hash code computation.
   // Fairly subtle, because the typical hash code is built up from the hashes of
@@ -76,8 +86,6 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     int hash = hash0;
     for( TypeFld fld : flds() ) {
       // Can depend on the field name and access, but NOT the type - because recursion.
-      // Same hash independent of field visitation order, because the iterator does
-      // not make order guarantees.
       hash += (fld._fld.hashCode() + fld._access.hashCode());
       _max_arg = (short)Math.max(_max_arg,fld._order);
     }
@@ -89,11 +97,11 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   // Returns 1 for definitely equals, 0 for definitely unequals, and -1 if
   // needing the cyclic test.
   private int cmp( TypeStruct t ) {
-    if( !super.equals(t) || _flds.size() != t._flds.size() || _open != t._open ) return 0;
-    // All fields must be equals
-    for( TypeFld fld : flds() ) {
-      TypeFld fld2 = t.get(fld._fld);
-      if( fld2==null ) return 0; // Missing field name
+    if( !super.equals(t) || _len != t._len || _open != t._open ) return 0;
+    // All fields must be equals.  Both sorted, so fields line up.
+    for( int i=0; i<_len; i++ ) {
+      TypeFld fld = _flds[i], fld2 = t._flds[i];
+      if( fld._sym != fld2._sym ) return 0; // Missing field name
       int cmp = fld.cmp(fld2);
       if( cmp!= 1 ) return cmp; // Fields do not match, or needs a cyclic check
     }
@@ -104,10 +112,10 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   // Static properties equals, no edges.  Already known to be the same class
   // and not-equals.  May-equal fields are treated as equals
   @Override boolean static_eq( TypeStruct t ) {
-    if( !super.equals(t) || _flds.size() != t._flds.size() || _open != t._open ) return false;
-    for( TypeFld fld1 : flds() ) {
-      TypeFld fld2 = t.get(fld1._fld);
-      if( fld2==null || fld1.cmp(fld2)==0 ) return false;
+    if( !super.equals(t) || _len != t._len || _open != t._open ) return false;
+    for( int i=0; i<_len; i++ ) {
+      TypeFld fld1 = _flds[i], fld2 = t._flds[i];
+      if( fld1._sym != fld2._sym || fld1.cmp(fld2)==0 ) return false;
     }
     // If any fields are not interned, assume they might be equal
     return true;
@@ -130,35 +138,39 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     return cycle_equals(t);
   }
 
-  private static final Ary<TypeStruct> CYCLES = new Ary<>(new TypeStruct[0]);
-  private TypeStruct find_other() {
-    int idx = CYCLES.find(this);
-    return idx != -1 ? CYCLES.at(idx^1) : null;
+  // Per-thread, since cyclic equals checks happen during any INTERN lookup.
+  private static final ThreadLocal<Ary<TypeStruct>> CYCLES = ThreadLocal.withInitial(() -> new Ary<>(new TypeStruct[0]));
+  private TypeStruct find_other(Ary<TypeStruct> cycles) {
+    int idx = cycles.find(this);
+    return idx != -1 ? cycles.at(idx^1) : null;
   }
   @Override public boolean cycle_equals( Type o ) {
     if( this==o ) return true;
     if( !(o instanceof TypeStruct) ) return false;
     TypeStruct t = (TypeStruct)o;
-    TypeStruct t2 = find_other();
+    Ary<TypeStruct> cycles = CYCLES.get();
+    TypeStruct t2 = find_other(cycles);
     if( t2 !=null ) return t2==t   ; // Already in cycle report equals or not
-    TypeStruct t3 = t.find_other();
+    TypeStruct t3 = t.find_other(cycles);
     if( t3 !=null ) return t3==this;// Already in cycle report equals or not
     int x = cmp(t);
     if( x != -1 ) return x == 1;
 
-    int len = CYCLES._len;
-    CYCLES.add(this).add(t);
+    int len = cycles._len;
+    cycles.add(this).add(t);
     boolean eq=cycle_equals0(t);
-    assert CYCLES._len==len+2;
-    CYCLES._len=len;
+    assert cycles._len==len+2;
+    cycles.clear(len+1);        // Do not keep the pair reachable
+    cycles.clear(len  );
+    cycles._len=len;
     return eq;
   }
   private boolean cycle_equals0( TypeStruct t ) {
     // TODO: might get here with more unrelated structs, so need to check eg access, and missing names
-    assert _flds.size()==t._flds.size();
-    for( TypeFld fld : flds() ) {
-      TypeFld fld1 = t._flds.get(fld._fld);
-      if( fld1==null ) return false;
+    assert _len==t._len;
+    for( int i=0; i<_len; i++ ) {
+      TypeFld fld = _flds[i], fld1 = t._flds[i];
+      if( fld._sym != fld1._sym ) return false;
       Type t0 = fld._t;
       Type t1 = fld1._t;
       if( t0!=t1 &&                // Normally suffices to test ptr-equals only
@@ -171,8 +183,9 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
 
   static boolean isDigit(char c) { return '0' <= c && c <= '9'; }
   public boolean is_tup() {
-    if( _flds.size()==0 || (_flds.size()==1 && _flds.get("^")!=null) ) return true;
-    return _flds.get("0")!=null && _flds.get("0")._order==ARG_IDX;
+    if( _len==0 || (_len==1 && get("^")!=null) ) return true;
+    TypeFld fld0 = get("0");
+    return fld0!=null && fld0._order==ARG_IDX;
   }
   @Override public SB str( SB sb, VBitSet dups, TypeMem mem, boolean debug ) {
     if( dups.tset(_uid) ) return sb.p('$'); // Break recursive printing cycle
@@ -208,11 +221,11 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   // DAG-like bottom-up-remove-dups approach cannot work.
   static { new Pool(TSTRUCT,new TypeStruct()); }
   public static TypeStruct malloc( String name, boolean any, boolean open ) {
-    return POOLS[TSTRUCT].<TypeStruct>malloc().init(name,any,open);
+    return pool(TSTRUCT).<TypeStruct>malloc().init(name,any,open);
   }
   public TypeStruct hashcons_free() {
     // All subparts already interned
-    if( RECURSIVE_MEET ==0 ) for( TypeFld fld : flds() ) assert fld.interned();
+    if( rmeet()==0 ) for( TypeFld fld : flds() ) assert fld.interned();
     return super.hashcons_free();
   }
 
@@ -319,24 +332,42 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
 
   // Add a field to an open, under construction TypeStruct
   public TypeStruct add_fld( TypeFld fld ) {
-    TypeFld old = _flds.put(fld._fld,fld);
-    assert old==null && _hash==0; // No accidental replacing
+    assert _hash==0;
+    int idx = _len==0 || _flds[_len-1]._sym < fld._sym ? _len : find(fld._sym); // Appending in order is common
+    assert idx < 0 || idx==_len : "No accidental replacing";
+    if( idx < 0 ) idx = -idx-1;
+    if( _len==_flds.length ) _flds = Arrays.copyOf(_flds,_len<<1);
+    System.arraycopy(_flds,idx,_flds,idx+1,_len-idx);
+    _flds[idx] = fld;
+    _len++;
     return this;
   }
   // Set/replace a field to an open, under construction TypeStruct
   public TypeStruct set_fld( TypeFld fld ) {
-    TypeFld old = _flds.put(fld._fld,fld);
-    assert !interned() && old!=null; // No accidental adding
+    int idx = find(fld._sym);
+    assert !interned() && idx>=0; // No accidental adding
+    _flds[idx] = fld;
     //if( old._hash==0 ) old.free(); // TODO
     return this;
   }
+  // Index of the field with symbol id 'sym', or (-insertion point-1)
+  private int find( int sym ) {
+    int lo=0, hi=_len-1;
+    while( lo <= hi ) {
+      int mid = (lo+hi)>>>1, x = _flds[mid]._sym;
+      if( x < sym ) lo = mid+1;
+      else if( x > sym ) hi = mid-1;
+      else return mid;
+    }
+    return -(lo+1);
+  }
 
 
   @Override boolean is_display() {
     TypeFld disp;
     return
       this==TypeMemPtr.DISPLAY || this==TypeMemPtr.DISPLAY._dual ||
-      ((disp=_flds.get("^"))!=null && disp.is_display_ptr());
+      ((disp=get("^"))!=null && disp.is_display_ptr());
   }
   public int nargs() { return _max_arg+1; }
 
@@ -415,14 +446,18 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     }
     TypeStruct that = (TypeStruct)t;
     // INVARIANT: Both this and that are prior existing & interned.
-    assert RECURSIVE_MEET > 0 || (interned() && that.interned());
+    assert rmeet() > 0 || (interned() && that.interned());
     // INVARIANT: Both MEETS are empty at the start.  Nothing involved in a
-    // potential cycle is interned until the Meet completes.
-    assert RECURSIVE_MEET > 0 || (MEETS0.isEmpty());
+    // potential cycle is interned until the Meet completes.  Another thread
+    // may be mid-meet, but then it holds the CYCLIC lock.
+    assert rmeet() > 0 || CYCLIC.isLocked() || (MEETS0.isEmpty());
 
     // If both are cyclic, we have to do the complicated cyclic-aware meet
-    if( _cyclic && that._cyclic )
-      return cyclic_meet(that);
+    if( _cyclic && that._cyclic ) {
+      CYCLIC.lock();            // MEETS0 is shared scratch
+      try { return cyclic_meet(that); }
+      finally { CYCLIC.unlock(); }
+    }
     // Recursive but not cyclic; since at least one of these types is
     // non-cyclic normal recursion will bottom-out.
 
@@ -438,21 +473,22 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   // This code is common to both the normal and recursive meet codes.
   private TypeStruct ymeet( TypeStruct that, boolean cyclic ) {
     TypeStruct ts = malloc("",_any&that._any,_open|that._open);
-    // Fields in both
-    for( TypeFld fld : flds() ) {
-      TypeFld tfld = that._flds.get(fld._fld);
-      if( tfld != null ) ts.add_fld(cyclic ? TypeFld.cmeet(fld,tfld) : fld.xmeet(tfld));
+    // Merge the sorted fields; results are added in order.
+    for( int i=0, j=0; i<_len || j<that._len; ) {
+      TypeFld fld  = i<     _len ?      _flds[i] : null;
+      TypeFld tfld = j<that._len ? that._flds[j] : null;
+      int x = fld==null ? 1 : (tfld==null ? -1 : Integer.compare(fld._sym,tfld._sym));
+      if( x==0 ) {              // Fields in both
+        ts.add_fld(cyclic ? TypeFld.cmeet(fld,tfld) : fld.xmeet(tfld));
+        i++; j++;
+      } else if( x<0 ) {        // Fields in LHS, and RHS is high (can extend with LHS fields)
+        if( that._any ) ts.add_fld(fld); // Only in LHS and RHS is a high field
+        i++;
+      } else {                  // Fields in RHS, and LHS is high (can extend with RHS fields)
+        if( _any ) ts.add_fld(tfld); // Only in RHS and LHS is a high field
+        j++;
+      }
     }
-    // Fields in LHS, and RHS is high (can extend with LHS fields)
-    if( that._any )
-      for( TypeFld fld : flds() )
-        if( !that._flds.containsKey(fld._fld) )
-          ts.add_fld(fld); // Only in LHS and RHS is a high field
-    // Fields in RHS, and LHS is high (can extend with RHS fields)
-    if( _any )
-      for( TypeFld fld : that.flds() )
-        if( !_flds.containsKey(fld._fld) )
-          ts.add_fld(fld); // Only in RHS and LHS is a high field
     ts._name = mtname(that,ts); // Set name
     return ts;
   }
@@ -499,8 +535,8 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     // pre-existence until the entire cycle is built.  We can't intern the
     // partially built parts, but we want to use the normal xmeet call - which
     // normally recursively interns.  Turn off interning with the global
-    // RECURSIVE_MEET flag.
-    RECURSIVE_MEET++;
+    // recursive-meet depth (see Type.rmeet_inc).
+    rmeet_inc();
 
     // For-all fields do the Meet.  Some are not-recursive and mapped, some
     // are part of the cycle and mapped or not.
@@ -521,7 +557,7 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
 
     // Lower recursive-meet flag.  At this point the Meet 'mt' is still
     // speculative and not interned.
-    if( --RECURSIVE_MEET > 0 )
+    if( rmeet_dec() > 0 )
       return mt;                // And, if not yet done, just exit with it
     MEETS0.clear();
     // Minimize and intern the cyclic result
@@ -560,26 +596,31 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     if( shallow ) return this;  // Fast cutout for boring structs
     TypeMemPtr ptr = TypeMemPtr.make(aliases,this);
 
-    while( true ) {
-      int max = ptr.max(ptr.depth());
-      if( max < cutoff )
-        return (TypeStruct)ptr._obj;
-      // Scan the old copy for elements that are too deep.
-      // 'Meet' those into the clone at one layer up.
-      RECURSIVE_MEET++;
-      assert OLD2APX.isEmpty() && MEETS0.isEmpty() && CUTOFFS.isEmpty();
-      TypeMemPtr apxptr = ax_impl_ptr( aliases, cutoff, 0, ptr, ptr );
-      assert CUTOFFS.isEmpty();
-      MEETS0.clear();
-      RECURSIVE_MEET--;
-      // apxptr may die/recycle at install, and may include e.g. nil where the
-      // original aliases do not
-      BitsAlias aliases2 = apxptr._aliases;
-      // Remove any leftover internal duplication.
-      TypeStruct rez = ((TypeStruct)apxptr._obj).install();
-      assert this.isa(rez);
-      OLD2APX.clear();
-      ptr = TypeMemPtr.make(aliases2,rez);
+    CYCLIC.lock();              // OLD2APX and friends are shared scratch
+    try {
+      while( true ) {
+        int max = ptr.max(ptr.depth());
+        if( max < cutoff )
+          return (TypeStruct)ptr._obj;
+        // Scan the old copy for elements that are too deep.
+        // 'Meet' those into the clone at one layer up.
+        rmeet_inc();
+        assert OLD2APX.isEmpty() && MEETS0.isEmpty() && CUTOFFS.isEmpty();
+        TypeMemPtr apxptr = ax_impl_ptr( aliases, cutoff, 0, ptr, ptr );
+        assert CUTOFFS.isEmpty();
+        MEETS0.clear();
+        rmeet_dec();
+        // apxptr may die/recycle at install, and may include e.g. nil where the
+        // original aliases do not
+        BitsAlias aliases2 = apxptr._aliases;
+        // Remove any leftover internal duplication.
+        TypeStruct rez = ((TypeStruct)apxptr._obj).install();
+        assert this.isa(rez);
+        OLD2APX.clear();
+        ptr = TypeMemPtr.make(aliases2,rez);
+      }
+    } finally {
+      CYCLIC.unlock();
     }
   }
 
@@ -741,7 +782,12 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
         }
       }
       // Remove new fields that are not in old.
-      nts._flds.entrySet().removeIf( e -> !ots._flds.containsKey(e.getValue()._fld) );
+      int len=0;
+      for( int i=0; i<nts._len; i++ )
+        if( ots.find(nts._flds[i]._sym) >= 0 )
+          nts._flds[len++] = nts._flds[i];
+      Arrays.fill(nts._flds,len,nts._len,null);
+      nts._len = len;
       // Now recursively do all common fields
       for( TypeFld ofld : ots.flds() ) {
         TypeFld nfld = nts.get(ofld._fld);
@@ -770,10 +816,17 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
           (fld._t instanceof TypeFunPtr && !((TypeFunPtr)fld._t)._ret.is_simple()) )
         { shallow=false; break; }
     if( shallow ) return this;  // Fast cutout for boring structs
-    AXCYCLIC.clear();
-    Type apx = _apx(cutoff-1,aliases,this);
-    apx = apx.install();
-    return (TypeStruct)apx;
+    TypeStruct apx = interned() ? ApproxCache.get(this,cutoff,aliases) : null;
+    if( apx != null ) return apx;
+    CYCLIC.lock();              // AXCYCLIC is shared scratch
+    try {
+      AXCYCLIC.clear();
+      apx = (TypeStruct)_apx(cutoff-1,aliases,this).install();
+      AXCYCLIC.clear();         // Do not keep the clones reachable
+      return interned() ? ApproxCache.put(this,cutoff,aliases,apx) : apx;
+    } finally {
+      CYCLIC.unlock();
+    }
   }
 
   // deep clone, lowering cutoff at TMP, chopping off when cutoff hits 0
@@ -802,22 +855,45 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   // may contain deep pointers to other deep TypeObjs, including cyclic types.
   // This function is monotonic in its arguments.
   static TypeMemPtr sharpen( TypeMem mem, TypeMemPtr dull ) {
-    assert dull==dull.simple_ptr() && mem.sharp_get(dull)==null;
-
-    // Pass 1:  fill "dull" cache
-    HashMap<BitsAlias,TypeMemPtr> dull_cache = new HashMap<>();
-    _dull(mem,dull,dull_cache);
+    assert dull==dull.simple_ptr();
+    CYCLIC.lock();
+    try {
+      TypeMemPtr sharp = SharpCache.get(mem,dull);
+      if( sharp != null ) return sharp; // Another thread just did it
+
+      // Sharp results of this pass.  The global cache is bounded and may
+      // evict, so this pass keeps its own results until done.
+      HashMap<TypeMemPtr,TypeMemPtr> sharps = new HashMap<>();
+      // Pass 1:  fill "dull" cache
+      HashMap<BitsAlias,TypeMemPtr> dull_cache = new HashMap<>();
+      _dull(mem,dull,dull_cache,sharps);
+
+      // Pass 2: Stitch together structs with dull pointers to make a possibly cyclic result.
+      sharp = _sharp(mem,dull,dull_cache,sharps);
+      assert sharp.interned() == dull_cache.isEmpty();
+      // See if we need to cycle-install any cyclic types
+      if( dull_cache.isEmpty() )
+        return sharp;
+      // On exit, cyclic-intern all cyclic things; remove from dull cache.
+      TypeStruct mt = ((TypeStruct)sharp._obj).install();
+      // Rebuild the head pointer from the dull one: if the install found the
+      // cycle already interned (e.g. sharpened before, and since evicted from
+      // the cache) the work-in-progress pointer has been freed.
+      sharp = dull.make_from(mt);
+      return sharput(mem,dull,sharp,sharps);
+    } finally {
+      CYCLIC.unlock();
+    }
+  }
 
-    // Pass 2: Stitch together structs with dull pointers to make a possibly cyclic result.
-    TypeMemPtr sharp = _sharp(mem,dull,dull_cache);
-    assert sharp.interned() == dull_cache.isEmpty();
-    // See if we need to cycle-install any cyclic types
-    if( dull_cache.isEmpty() )
-      return sharp;
-    // On exit, cyclic-intern all cyclic things; remove from dull cache.
-    TypeStruct mt = ((TypeStruct)sharp._obj).install();
-    sharp = sharp.make_from(mt);
-    return mem.sharput(dull,sharp);
+  // Sharp results, from this pass or the global cache
+  private static TypeMemPtr sharp_get( TypeMem mem, TypeMemPtr dull, HashMap<TypeMemPtr,TypeMemPtr> sharps ) {
+    TypeMemPtr sharp = sharps.get(dull);
+    return sharp != null ? sharp : SharpCache.get(mem,dull);
+  }
+  private static TypeMemPtr sharput( TypeMem mem, TypeMemPtr dull, TypeMemPtr sharp, HashMap<TypeMemPtr,TypeMemPtr> sharps ) {
+    sharps.put(dull,sharp);
+    return SharpCache.put(mem,dull,sharp);
   }
 
   // Pass 1:  fill "dull" cache
@@ -828,11 +904,11 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   //   If meet is sharp, put in sharp cache & return.
   //   Put dull ptr to dull meet in dull cache.
   //   Walk dull fields; for all dull TMPs, recurse.
-  private static void _dull( TypeMem mem, TypeMemPtr dull, HashMap<BitsAlias,TypeMemPtr> dull_cache ) {
+  private static void _dull( TypeMem mem, TypeMemPtr dull, HashMap<BitsAlias,TypeMemPtr> dull_cache, HashMap<TypeMemPtr,TypeMemPtr> sharps ) {
     // Check caches and return
-    if( mem.sharp_get(dull) != null ) return;
+    if( sharp_get(mem,dull,sharps) != null ) return;
     if( dull_cache.get(dull._aliases) != null ) return;
-    if( dull==TypeMemPtr.NO_DISP || dull==TypeMemPtr.NO_DISP.dual() ) { mem.sharput(dull,dull); return; }
+    if( dull==TypeMemPtr.NO_DISP || dull==TypeMemPtr.NO_DISP.dual() ) { sharput(mem,dull,dull,sharps); return; }
     // Walk and meet "dull" fields; all TMPs will point to ISUSED (hence are dull).
     boolean any = dull._aliases.above_center();
     Type t = any ? TypeObj.ISUSED : TypeObj.UNUSED;
@@ -844,7 +920,7 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
         }
     TypeMemPtr dptr = dull.make_from((TypeObj)t);
     if( _is_sharp(t) ) {        // If sharp, install and return
-      mem.sharput(dull,dptr);
+      sharput(mem,dull,dptr,sharps);
       return;
     }
     // Install in dull result in dull cache BEFORE recursing.  We might see it
@@ -855,7 +931,7 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
       Type tt = fld._t;
       if( tt instanceof TypeFunPtr ) tt = ((TypeFunPtr)tt)._dsp; //TODO Handle ret also?
       if( tt instanceof TypeMemPtr )
-        _dull(mem,(TypeMemPtr)tt,dull_cache);
+        _dull(mem,(TypeMemPtr)tt,dull_cache,sharps);
     }
   }
   // No dull pointers?
@@ -882,8 +958,8 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   //  If not cyclic, all fields already interned; standard intern, put in sharp; remove dull; & return.
   //  If cyclic, then some field is not interned, put on cyclic list?
   //  Return not-interned value.
-  private static @NotNull TypeMemPtr _sharp( TypeMem mem, TypeMemPtr dull, HashMap<BitsAlias,TypeMemPtr> dull_cache ) {
-    TypeMemPtr sharp = mem.sharp_get(dull);
+  private static @NotNull TypeMemPtr _sharp( TypeMem mem, TypeMemPtr dull, HashMap<BitsAlias,TypeMemPtr> dull_cache, HashMap<TypeMemPtr,TypeMemPtr> sharps ) {
+    TypeMemPtr sharp = sharp_get(mem,dull,sharps);
     if( sharp != null ) return sharp; // Value returned is sharp and interned
     TypeMemPtr dptr = dull_cache.get(dull._aliases);
     if( !dptr.interned() )      // Closed a cycle
@@ -894,32 +970,32 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     dptr2._obj = dts2;
     dull_cache.put(dull._aliases,dptr2);
     // walk all fields, copy unless TMP.
-    for( Map.Entry<String,TypeFld> e : dts2._flds.entrySet() ) {
-      TypeFld fld = e.getValue();
+    for( int i=0; i<dts2._len; i++ ) {
+      TypeFld fld = dts2._flds[i];
       if( fld._t instanceof TypeMemPtr ) // For TMP, recurse on dull pointers.
-        fld.setX(_sharp(mem,((TypeMemPtr)fld._t),dull_cache));
+        fld.setX(_sharp(mem,((TypeMemPtr)fld._t),dull_cache,sharps));
       if( fld._t instanceof TypeFunPtr ) {
         TypeFunPtr tf = (TypeFunPtr) fld._t;
         // TODO: Sharpen ret as well
         if( tf._dsp instanceof TypeMemPtr ) { // Need  a pointer to sharpen
-          TypeMemPtr dptr3 = _sharp(mem, (TypeMemPtr) tf._dsp, dull_cache);
+          TypeMemPtr dptr3 = _sharp(mem, (TypeMemPtr) tf._dsp, dull_cache, sharps);
           fld.setX(dptr3.interned()             // Sharp return?
                    ? tf.make_from(dptr3)        // Make sharp TFP field
                    : tf._sharpen_clone(dptr3)); // Make dull  TFP field
         }
       }
       if( fld._t.interned() )
-        e.setValue(fld.hashcons_free());
+        dts2._flds[i] = fld.hashcons_free();
     }
     if( !_is_sharp(dts2) ) return dptr2; // Return the work-in-progress
     // Then copied field types are all sharp and interned.
     // Intern the fields themselves.
-    for( Map.Entry<String,TypeFld> e : dts2._flds.entrySet() )
-      if( !e.getValue()._t.interned() )
-        e.setValue(e.getValue().hashcons_free());
+    for( int i=0; i<dts2._len; i++ )
+      if( !dts2._flds[i]._t.interned() )
+        dts2._flds[i] = dts2._flds[i].hashcons_free();
     dull_cache.remove(dull._aliases);// Move the entry from dull cache to sharp cache
     TypeStruct sts = dts2.hashcons_free();
-    return mem.sharput(dull,dull.make_from(sts));
+    return sharput(mem,dull,dull.make_from(sts),sharps);
   }
 
   @Override public Type meet_loop(Type t2) {
@@ -944,7 +1020,15 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   // Field by name.
   public TypeFld get( String name ) {
     assert !Util.eq(name,TypeFld.fldTop) && !Util.eq(name,TypeFld.fldBot);
-    return _flds.get(name);
+    if( _len <= 8 ) {           // Short structs just scan
+      for( int i=0; i<_len; i++ )
+        if( _flds[i]._fld==name )
+          return _flds[i];
+      return null;
+    }
+    int sym = TypeFld.sym_find(name);
+    int idx = sym==-1 ? -1 : find(sym);
+    return idx < 0 ? null : _flds[idx];
   }
   // Field type.  NPE if field-not-found
   public Type at( String name ) { return get(name)._t; }
@@ -962,21 +1046,21 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     return fx;
   }
 
-  // All fields for iterating.
-  public Collection<TypeFld> flds() { return _flds.values(); }
-  public Collection<String> keys() { return _flds.keySet(); }
+  // All fields for iterating, in symbol id order.
+  public Collection<TypeFld> flds() { return Arrays.asList(_flds).subList(0,_len); }
   // Alpha sorted
   public Collection<TypeFld> asorted_flds() {
-    TreeMap<String, TypeFld> sorted = new TreeMap<>(_flds);
-    return sorted.values();
+    TypeFld[] flds = Arrays.copyOf(_flds,_len);
+    Arrays.sort(flds,Comparator.comparing(f -> f._fld));
+    return Arrays.asList(flds);
   }
   // Field order sorted
   public Collection<TypeFld> osorted_flds() {
-    TreeMap<String, TypeFld> sorted = new TreeMap<>(Comparator.comparingInt(f0 -> get(f0)._order));
-    sorted.putAll(_flds);
-    return sorted.values();
+    TypeFld[] flds = Arrays.copyOf(_flds,_len);
+    Arrays.sort(flds,Comparator.comparingInt(f -> f._order));
+    return Arrays.asList(flds);
   }
-  public int len() { return _flds.size(); } // Count of fields
+  public int len() { return _len; } // Count of fields
 
   @Override public boolean cyclic() { return _cyclic; }
   @Override public void set_cyclic() { _cyclic = true; }
@@ -995,7 +1079,9 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   public TypeStruct replace_fld( TypeFld fld ) { return copy().set_fld(fld).hashcons_free(); }
   public TypeStruct del_fld( String name ) {
     TypeStruct ts = copy();
-    ts._flds.remove(name);
+    int idx = ts.find(get(name)._sym);
+    System.arraycopy(ts._flds,idx+1,ts._flds,idx,ts._len-idx-1);
+    ts._flds[--ts._len] = null;
     return ts.hashcons_free();
   }
 
@@ -1029,9 +1115,9 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
     TypeFld nfld = get(name);
     if( nfld == null ) return UNUSED; // No such field, so all fields will be XSCALAR so UNUSED instead
     TypeStruct ts = _clone();
-    for( Map.Entry<String,TypeFld> e : ts._flds.entrySet() ) {
-      TypeFld fld = e.getValue();
-      e.setValue(fld.setX( Util.eq(fld._fld,name) ? live : XSCALAR, Access.bot()).hashcons_free());
+    for( int i=0; i<ts._len; i++ ) {
+      TypeFld fld = ts._flds[i];
+      ts._flds[i] = fld.setX( Util.eq(fld._fld,name) ? live : XSCALAR, Access.bot()).hashcons_free();
     }
     return ts.hashcons_free();
   }
@@ -1052,23 +1138,28 @@ public class TypeStruct extends TypeObj<TypeStruct> implements Cyclic {
   // Keep field names and orders.  Widen all field contents, including finals.
   // Handles cycles
   @Override public TypeStruct widen() {
-    assert WIDEN_HASH.isEmpty();
-    TypeStruct w = _widen();
-    WIDEN_HASH.clear();
-    return w;
+    CYCLIC.lock();              // WIDEN_HASH is shared scratch
+    try {
+      assert WIDEN_HASH.isEmpty();
+      TypeStruct w = _widen();
+      WIDEN_HASH.clear();
+      return w;
+    } finally {
+      CYCLIC.unlock();
+    }
   }
 
   private static final NonBlockingHashMapLong<TypeStruct> WIDEN_HASH = new NonBlockingHashMapLong<>();
   @Override TypeStruct _widen() {
     TypeStruct ts = WIDEN_HASH.get(_uid);
     if( ts!=null ) { ts._cyclic=true; return ts; }
-    RECURSIVE_MEET++;
+    rmeet_inc();
     ts = malloc(_name,_any,_open);
     WIDEN_HASH.put(_uid,ts);
     for( TypeFld fld : flds() ) ts.add_fld(fld.malloc_from());
     ts.set_hash();
     for( TypeFld fld : ts.flds() ) fld.setX(fld._t._widen());
-    if( --RECURSIVE_MEET == 0 )
+    if( rmeet_dec() == 0 )
       ts = ts.install();
     return ts;
   }
@@ -50,7 +50,7 @@ public class TypeTuple extends Type<TypeTuple> {
 
   static { new Pool(TTUPLE,new TypeTuple()); }
   private static TypeTuple make( boolean any, Type[] ts ) {
-    TypeTuple t1 = POOLS[TTUPLE].malloc();
+    TypeTuple t1 = pool(TTUPLE).malloc();
     return t1.init(any,ts).hashcons_free();
   }
 
@@ -119,7 +119,7 @@ public class TypeTuple extends Type<TypeTuple> {
     Type[] ts = Types.get(_ts.length);
     for( int i=0; i<_ts.length; i++ ) ts[i] = _ts[i].dual();
     ts = Types.hash_cons(ts);
-    return POOLS[TTUPLE].<TypeTuple>malloc().init(!_any, ts);
+    return pool(TTUPLE).<TypeTuple>malloc().init(!_any, ts);
   }
   // Standard Meet.  Tuples have an infinite extent of 'ALL' for low, or 'ANY'
   // for high.  After the meet, the infinite tail is trimmed.
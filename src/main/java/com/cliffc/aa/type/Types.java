@@ -1,11 +1,13 @@
 package com.cliffc.aa.type;
 
 import com.cliffc.aa.util.Ary;
-import com.cliffc.aa.util.IHashMap;
+
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 
 // Class to make hashcons Type[].
-// Bug to change after interning.
+// Bug to change after interning.  Shared by all compilation threads; the
+// public entry points synchronize on the class.
 public class Types {
   // Lazy expanding list of TypeAry customed to handle various Type[] lengths.
   private static final Ary<Types> TYPEARY = new Ary<>(new Types[1],0);
@@ -16,91 +18,143 @@ public class Types {
     return tary==null ? TYPEARY.setX(len,new Types(len)) : tary;
   }
   
-  private static final Key K = new Key(null,0);
+  // Open-addressed interning table for Type[], shared by all lengths.  Slots
+  // are parallel arrays of cached hash and weakly held array, probed
+  // linearly.  Arrays are held weakly, like interned Types: an array stays
+  // interned while some live TypeTuple uses it.  A slot whose array the GC
+  // cleared is dead; lookups probe past it, inserts reuse it, and a resize
+  // drops it.  Equality bottoms out in a pointer-equality test on the
+  // (interned) elements, instead of 'equals'.  Callers hold the class lock.
+  private static final class Intern {
+    private int[] _hashes;
+    private WeakReference<Type[]>[] _refs;
+    private int _used;          // Non-null slots, including dead ones
+    Intern() { init(64); }
+    @SuppressWarnings("unchecked")
+    private void init( int cap ) { _hashes = new int[cap]; _refs = new WeakReference[cap]; _used=0; }
 
-  // Wrapper to customize array.equals
-  private static class Key {
-    Type[] _ts;
-    int _hash;
-    private Key(Type[] ts, int hash) { _ts=ts; _hash = hash; }
     private static int hash( Type[] ts ) {
-      int hash = 0;
-      for( Type t : ts ) hash += t._hash;
+      int hash = ts.length;
+      for( Type t : ts ) hash = hash*31 + t._hash;
       return hash;
     }
-    @Override public int hashCode() { return _hash; }
-    @Override public boolean equals(Object o) {
-      if( !(o instanceof Key) ) return false;
-      Type[] ts = ((Key)o)._ts;
-      // This series of tests is NOT the same as Arrays.equals(), since it
-      // bottoms out in a pointer-equality test instead of 'equals'.
-      if( _ts==ts ) return true;
-      if( _ts.length != ts.length ) return false;
-      for( int i=0; i<ts.length; i++ )
-        if( _ts[i]!=ts[i] )
+    private static boolean eq( Type[] ts0, Type[] ts1 ) {
+      if( ts0==ts1 ) return true;
+      if( ts0.length != ts1.length ) return false;
+      for( int i=0; i<ts1.length; i++ )
+        if( ts0[i]!=ts1[i] )
           return false;
       return true;
     }
+    private int slot( int hash ) {
+      hash *= 0x9E3779B9;       // Spread clustered hashes
+      return (hash ^ (hash>>>16)) & (_refs.length-1);
+    }
+
+    // Return the interned array equal to 'ts', or null.
+    Type[] get( Type[] ts ) {
+      int hash = hash(ts), mask = _refs.length-1;
+      for( int i=slot(hash); _refs[i]!=null; i=(i+1)&mask ) {
+        if( _hashes[i]!=hash ) continue;
+        Type[] ts2 = _refs[i].get();
+        if( ts2!=null && eq(ts,ts2) ) return ts2;
+      }
+      return null;
+    }
+    // Intern 'ts'; caller has checked no equal array is interned, so the
+    // first empty or dead slot is taken.
+    Type[] put( Type[] ts ) {
+      if( (_used+1)*4 > _refs.length*3 ) resize();
+      int hash = hash(ts), mask = _refs.length-1, i=slot(hash);
+      for( ; _refs[i]!=null && _refs[i].get()!=null; i=(i+1)&mask ) ;
+      if( _refs[i]==null ) _used++;
+      _hashes[i] = hash;
+      _refs[i] = new WeakReference<>(ts);
+      return ts;
+    }
+    // Rehash the live arrays, dropping dead slots.  Sized for at most half
+    // full, so a table of mostly dead slots can shrink.
+    private void resize() {
+      int[] hashes = _hashes;
+      WeakReference<Type[]>[] refs = _refs;
+      int live=0;
+      for( WeakReference<Type[]> r : refs )
+        if( r!=null && r.get()!=null ) live++;
+      init(Math.max(64,Integer.highestOneBit(live)<<2));
+      int mask = _refs.length-1;
+      for( int j=0; j<refs.length; j++ ) {
+        if( refs[j]==null || refs[j].get()==null ) continue;
+        int i=slot(hashes[j]);
+        while( _refs[i]!=null ) i=(i+1)&mask;
+        _hashes[i] = hashes[j];
+        _refs  [i] = refs  [j];
+        _used++;
+      }
+    }
+    // Live interned arrays, for tests
+    int size() {
+      int cnt=0;
+      for( WeakReference<Type[]> r : _refs )
+        if( r!=null && r.get()!=null ) cnt++;
+      return cnt;
+    }
   }
+  private static final Intern INTERN = new Intern();
 
   private final int _len;       // Length of arrays being handled
-  private final IHashMap _intern = new IHashMap();
-  private final Ary<Type[]> _free = new Ary<>(new Type[1][],0);
+  // Free lists are per-thread, like the Type pools: a thread may briefly read
+  // an array it just freed, so another thread must not be handed it.
+  private final ThreadLocal<Ary<Type[]>> _free = ThreadLocal.withInitial(() -> new Ary<>(new Type[1][],0));
   private Types( int len ) { _len=len; }
 
   private Types check() { assert check_();  return this; }
   private boolean check_() {
-    //for( Object k : _intern.keySet() )
-    //  assert Key.hash(((Key)k)._ts)==((Key)k)._hash; // Basically asserting array not hacked
+    //INTERN.forEach(ts -> { assert INTERN.get(ts)==ts; }); // Basically asserting array not hacked
     return true;
   }
-  private boolean check_(Type[] ts) {
-    K._ts=ts;
-    K._hash = Key.hash(ts);
-    Key k2 = _intern.get(K);
-    return k2._ts==ts;
-  }
+  private boolean check_(Type[] ts) { return INTERN.get(ts)==ts; }
 
 
   // Return a free Type[]
   private Type[] get() {
-    if( _free.isEmpty() )
-      _free.push(new Type[_len]);
-    return _free.pop();
+    Ary<Type[]> free = _free.get();
+    if( free.isEmpty() )
+      free.push(new Type[_len]);
+    Type[] ts = free.pop();
+    free._es[free._len]=null;   // Free list does not keep it reachable
+    return ts;
   }
 
   private Type[] hash_cons_(Type[] ts) {
-    K._ts=ts;
-    K._hash = Key.hash(ts);
-    Key k2 = _intern.get(K);
-    if( k2 != null ) {
-      if( k2._ts!=ts ) _free.push(ts);
-      return k2._ts;
+    Type[] ts2 = INTERN.get(ts);
+    if( ts2 != null ) {
+      if( ts2!=ts ) _free.get().push(ts);
+      return ts2;
     }
-    _intern.put(new Key(ts,K._hash));
-    return ts;
+    return INTERN.put(ts);
   }
 
-  public static Type[] get(int len) { return tary(len).check().get(); }
-  public static void free(Type[] ts) { tary(ts.length)._free.push(ts); }
-  public static Type[] hash_cons(Type[] ts) { return tary(ts.length).check().hash_cons_(ts); }
+  public static synchronized Type[] get(int len) { return tary(len).check().get(); }
+  public static synchronized void free(Type[] ts) { tary(ts.length)._free.get().push(ts); }
+  public static synchronized Type[] hash_cons(Type[] ts) { return tary(ts.length).check().hash_cons_(ts); }
+  static synchronized int intern_size() { return INTERN.size(); }
   // Why is this API not auto-interning?  Because it is used to make cyclic
   // types in TypeStructs, which means the fields will change over
   // time... until the intern point.
-  public static Type[] ts(Type t0) {
+  public static synchronized Type[] ts(Type t0) {
     Types t1 = tary(1).check();
     Type[] ts = t1.get();
     ts[0] = t0;
     return ts;
   }
-  public static Type[] ts(Type t0, Type t1) {
+  public static synchronized Type[] ts(Type t0, Type t1) {
     Types t2 = tary(2).check();
     Type[] ts = t2.get();
     ts[0] = t0;
     ts[1] = t1;
     return ts;
   }
-  public static Type[] ts(Type t0, Type t1, Type t2) {
+  public static synchronized Type[] ts(Type t0, Type t1, Type t2) {
     Types t3 = tary(3).check();
     Type[] ts = t3.get();
     ts[0] = t0;
@@ -108,7 +162,7 @@ public class Types {
     ts[2] = t2;
     return ts;
   }
-  public static Type[] ts(Type t0, Type t1, Type t2, Type t3) {
+  public static synchronized Type[] ts(Type t0, Type t1, Type t2, Type t3) {
     Types t4 = tary(4).check();
     Type[] ts = t4.get();
     ts[0] = t0;
@@ -117,7 +171,7 @@ public class Types {
     ts[3] = t3;
     return ts;
   }
-  public static Type[] ts(Type t0, Type t1, Type t2, Type t3, Type t4) {
+  public static synchronized Type[] ts(Type t0, Type t1, Type t2, Type t3, Type t4) {
     Types t5 = tary(5).check();
     Type[] ts = t5.get();
     ts[0] = t0;
@@ -127,7 +181,7 @@ public class Types {
     ts[4] = t4;
     return ts;
   }
-  public static Type[] ts(Type t0, Type t1, Type t2, Type t3, Type t4, Type t5) {
+  public static synchronized Type[] ts(Type t0, Type t1, Type t2, Type t3, Type t4, Type t5) {
     Types t6 = tary(6).check();
     Type[] ts = t6.get();
     ts[0] = t0;
@@ -141,14 +195,14 @@ public class Types {
 
   // Result not interned; suitable for direct hacking.
   // Original assumed in-use, not freed.
-  public static Type[] clone(Type[] ts) {
+  public static synchronized Type[] clone(Type[] ts) {
     Type[] ts2 = tary(ts.length).check().get();
     System.arraycopy(ts,0,ts2,0,ts.length);
     return ts2;
   }
   // Result not interned; suitable for direct hacking.
   // Original assumed in-use, not freed.
-  public static Type[] copyOf(Type[] ts, int len) {
+  public static synchronized Type[] copyOf(Type[] ts, int len) {
     Type[] ts2 = tary(len).check().get();
     int minlen = Math.min(len,ts.length);
     System.arraycopy(ts,0,ts2,0,minlen);
@@ -53,26 +53,35 @@ public class Util {
 
   // Copied from http://burtleburtle.net/bob/c/lookup3.c
   // Call add_hash as many times as you like, then get_hash at the end.
-  // Uses global statics, does not nest.
+  // Uses per-thread statics, does not nest.
   private static int rot(int x, int k) { return (x<<k) | (x>>(32-k)); }
-  private static int a,b,c,x;
+  private static class Hash { int a,b,c,x; }
+  private static final ThreadLocal<Hash> HASH = ThreadLocal.withInitial(Hash::new);
   static public void add_hash( int h ) {
-    switch( x ) {
-    case 0: a+=h; x++; return;
-    case 1: a+=h; x++; return;
-    case 2: a+=h; x++; return;
+    Hash s = HASH.get();
+    switch( s.x ) {
+    case 0: s.a+=h; s.x++; return;
+    case 1: s.a+=h; s.x++; return;
+    case 2: s.a+=h; s.x++; return;
     case 3:
+      int a=s.a, b=s.b, c=s.c;
       a -= c;  a ^= rot(c, 4);  c += b;
       b -= a;  b ^= rot(a, 6);  a += c;
       c -= b;  c ^= rot(b, 8);  b += a;
       a -= c;  a ^= rot(c,16);  c += b;
       b -= a;  b ^= rot(a,19);  a += c;
       c -= b;  c ^= rot(b, 4);  b += a;
-      x=0;
+      s.a=a; s.b=b; s.c=c; s.x=0;
     }
   }
   // Return the resulting hash, which is never 0
   static public int get_hash() {
+    Hash s = HASH.get();
+    int hash = final_hash(s.a,s.b,s.c,s.x);
+    s.a=s.b=s.c=s.x=0;
+    return hash;
+  }
+  private static int final_hash( int a, int b, int c, int x ) {
     if( x!=0 ) {
       c ^= b; c -= rot(b,14);
       a ^= c; a -= rot(c,11);
@@ -86,13 +95,9 @@ public class Util {
     if( hash==0 ) hash=b;
     if( hash==0 ) hash=a;
     if( hash==0 ) hash=0xcafebabe;
-    a=b=c=x=0;
-    return hash;                   
+    return hash;
   }
   // Single-use hash spreader
-  static public int hash_spread(int hash) {
-    Util.add_hash(hash);
-    return Util.get_hash();
-  }
+  static public int hash_spread(int hash) { return final_hash(hash,0,0,1); }
 
 }
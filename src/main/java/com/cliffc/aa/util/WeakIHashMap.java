@@ -0,0 +1,85 @@
+package com.cliffc.aa.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Interning set, like IHashMap used as put(kv), but holding its keys weakly.
+// A key stays interned while anything else strongly refers to it; once
+// unreachable the GC may clear it, and a later equal key interns fresh.  So
+// pointer-equality of interned keys holds for every key that is still live.
+//
+// Subclasses supply the hash and equality, since the keys may be e.g. raw
+// arrays.  Lookups are lock-free and allocate only a small probe; callers
+// doing a get-then-put provide their own locking.
+public abstract class WeakIHashMap<K> {
+  private final ConcurrentHashMap<Object,Ref<K>> _map = new ConcurrentHashMap<>();
+  private final ReferenceQueue<K> _q = new ReferenceQueue<>();
+
+  protected abstract int hash( K k );
+  // Equality of a probe key against an interned key.
+  protected abstract boolean eq( K probe, K k );
+
+  // Map entry: the weak key with its hash cached.  A cleared key equals only
+  // itself, so it can be found for removal but never matches a lookup.
+  private static final class Ref<K> extends WeakReference<K> {
+    final int _hash;
+    final WeakIHashMap<K> _m;
+    Ref( WeakIHashMap<K> m, K k, int hash ) { super(k,m._q); _m=m; _hash=hash; }
+    @Override public int hashCode() { return _hash; }
+    @SuppressWarnings("unchecked")
+    @Override public boolean equals( Object o ) {
+      if( o==this ) return true;
+      if( !(o instanceof Ref) ) return false;
+      K k0 = get(), k1 = ((Ref<K>)o).get();
+      return k0!=null && k1!=null && _m.eq(k0,k1);
+    }
+  }
+  // Lookup key.  The map always calls equals on the lookup key.
+  private static final class Probe<K> {
+    final K _k;
+    final int _hash;
+    final WeakIHashMap<K> _m;
+    Probe( WeakIHashMap<K> m, K k ) { _m=m; _k=k; _hash=m.hash(k); }
+    @Override public int hashCode() { return _hash; }
+    @SuppressWarnings("unchecked")
+    @Override public boolean equals( Object o ) {
+      if( !(o instanceof Ref) ) return false;
+      K k = ((Ref<K>)o).get();
+      return k!=null && _m.eq(_k,k);
+    }
+  }
+
+  // Return the interned key equal to 'k', or null.
+  public K get( K k ) {
+    Ref<K> r = _map.get(new Probe<>(this,k));
+    return r==null ? null : r.get();
+  }
+  // Intern 'k'; caller has checked no equal key is interned.
+  public K put( K k ) {
+    expunge();
+    Ref<K> r = new Ref<>(this,k,hash(k));
+    _map.put(r,r);
+    return k;
+  }
+  // Remove entries whose keys the GC has cleared; returns the count removed.
+  public int expunge() {
+    int cnt=0;
+    for( Reference<? extends K> r; (r=_q.poll())!=null; cnt++ )
+      _map.remove(r);
+    return cnt;
+  }
+  // Entries, including any cleared but not yet expunged.
+  public int size() { return _map.size(); }
+  public boolean isEmpty() { return _map.isEmpty(); }
+  public void clear() { _map.clear(); while( _q.poll()!=null ); }
+  // Visit all live keys
+  public void forEach( Consumer<K> c ) {
+    for( Ref<K> r : _map.values() ) {
+      K k = r.get();
+      if( k!=null ) c.accept(k);
+    }
+  }
+}
@@ -1,14 +1,212 @@
 package com.cliffc.aa.util;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
 
 // Simple worklist.  Filters dups on a add.
-// Constant-time remove until empty.
-public class Work<E extends IntSupplier> extends NonBlockingHashMapLong<E> {
-  public E add(E e) { if( e!=null ) put(e.getAsInt(),e); return e; }
-  public boolean on(E e) { return containsKey(e.getAsInt()); }
+//
+// Membership is a bitset indexed by the element's int id (e.g. a node uid);
+// the elements are in a ring-buffer deque.  Add, pop, on and del are all O(1)
+// and the pop order is deterministic, set by the Policy:
+//   FIFO - oldest first; visits a graph in breadth-first order.
+//   LIFO - newest first.
+//   RPO  - least order key first, e.g. a reverse-post-order number; the deque
+//          is kept as a binary heap, so add and pop are O(log n).
+//
+// Deleting an element vacates its slot, leaving a tombstone with just the id
+// (and order key), so the Work holds no reference to it.  The tombstone is
+// skipped when popped, or refilled if an element with the same id is added
+// first; ids may be recycled, so that need not be the deleted object.
+public class Work<E extends IntSupplier> implements Iterable<E> {
+  public enum Policy { FIFO, LIFO, RPO }
+  private final Policy _policy;
+  private final ToIntFunction<E> _order; // RPO order key, smallest pops first
+  private long[] _on   = new long[1];    // Membership bits, by id
+  private long[] _slot = new long[1];    // Has-a-slot bits, by id; a superset of _on
+  private Object[] _es = new Object[8];  // Ring buffer (or heap, for RPO)
+  private int _head, _len;               // Ring start, and slots used
+  private int _cnt;                      // Members; less than _len after dels
+  private int[] _idx;                    // Slot of each id; made on the first del
+
+  // A deleted element's slot
+  private static final class Dead implements IntSupplier {
+    final int _id, _key;
+    Dead( int id, int key ) { _id=id; _key=key; }
+    @Override public int getAsInt() { return _id; }
+  }
+
+  public Work() { this(Policy.FIFO); }
+  public Work( Policy policy ) { this(policy,IntSupplier::getAsInt); }
+  public Work( Policy policy, ToIntFunction<E> order ) { _policy=policy; _order=order; }
+
+  public Policy policy() { return _policy; }
+  public boolean isEmpty() { return _cnt==0; }
+  public int len() { return _cnt; }
+
+  public boolean on( E e ) {
+    int id = e.getAsInt(), w = id>>>6;
+    return w < _on.length && (_on[w]&(1L<<id))!=0;
+  }
+
+  public E add( E e ) {
+    if( e==null ) return null;
+    int id = e.getAsInt(), w = id>>>6;
+    if( w >= _on.length ) {
+      _on   = Arrays.copyOf(_on  ,Math.max(w+1,_on.length<<1));
+      _slot = Arrays.copyOf(_slot,_on.length);
+      if( _idx!=null ) _idx = Arrays.copyOf(_idx,_on.length<<6);
+    }
+    long bit = 1L<<id;
+    if( (_on[w]&bit)!=0 ) return e; // Already on worklist
+    _on[w] |= bit;
+    _cnt++;
+    if( (_slot[w]&bit)!=0 ) {   // Deleted but not yet popped; refill the tombstone
+      int i = _idx[id];
+      assert _es[i] instanceof Dead;
+      if( _policy==Policy.RPO ) { if( !sift_up(i,e) ) sift_down(i,e); }
+      else _es[i] = e;
+      return e;
+    }
+    _slot[w] |= bit;
+    if( _len==_es.length ) grow();
+    if( _policy==Policy.RPO ) sift_up(_len++,e);
+    else set((_head+_len++)&(_es.length-1),e);
+    return e;
+  }
+
+  // Remove and return the next element per the policy, or null if empty.
+  @SuppressWarnings("unchecked")
   public E pop() {
-    long k = getKey();        // Get any random key
-    return k==0 ? null : remove(k);
+    while( _len > 0 ) {
+      Object o;
+      switch( _policy ) {
+      case FIFO -> { o = _es[_head];  _es[_head]=null;  _head = (_head+1)&(_es.length-1);  _len--; }
+      case LIFO -> { int i = (_head+ --_len)&(_es.length-1);  o = _es[i];  _es[i]=null; }
+      default   -> {
+        o = _es[0];
+        Object last = _es[--_len];  _es[_len]=null;
+        if( _len > 0 ) sift_down(0,last);
+      }
+      }
+      int id = ((IntSupplier)o).getAsInt(), w = id>>>6;
+      long bit = 1L<<id;
+      _slot[w] &= ~bit;
+      if( o instanceof Dead ) continue; // Tombstone from del; skip it
+      assert (_on[w]&bit)!=0;
+      _on[w] &= ~bit;  _cnt--;
+      return (E)o;
+    }
+    return null;
+  }
+
+  // Remove 'e' if present; returns true if it was on the worklist.
+  public boolean del( E e ) {
+    if( !on(e) ) return false;
+    int id = e.getAsInt();
+    if( _idx==null ) index();
+    int i = _idx[id];
+    assert _es[i]==e;           // Members are in their slot
+    _es[i] = new Dead(id,_policy==Policy.RPO ? _order.applyAsInt(e) : 0);
+    _on[id>>>6] &= ~(1L<<id);
+    _cnt--;
+    return true;
+  }
+
+  // Start tracking slots, for del
+  private void index() {
+    _idx = new int[_on.length<<6];
+    for( int i=0; i<_len; i++ ) {
+      int x = _policy==Policy.RPO ? i : (_head+i)&(_es.length-1);
+      _idx[((IntSupplier)_es[x]).getAsInt()] = x;
+    }
+  }
+  private void set( int i, Object o ) {
+    _es[i] = o;
+    if( _idx!=null ) _idx[((IntSupplier)o).getAsInt()] = i;
+  }
+
+  // Restore the RPO heap after its order keys changed; O(n).
+  public void reorder() {
+    if( _policy!=Policy.RPO ) return;
+    for( int i=(_len>>1)-1; i>=0; i-- ) sift_down(i,_es[i]);
+  }
+
+  public void clear() {
+    for( int i=0; i<_len; i++ ) {
+      int id = at(i).getAsInt(), w = id>>>6;
+      long bit = 1L<<id;
+      _on[w] &= ~bit;  _slot[w] &= ~bit;
+    }
+    Arrays.fill(_es,null);
+    _head = _len = _cnt = 0;
+  }
+
+  // Slot i, in pop order for FIFO and heap order for RPO
+  @SuppressWarnings("unchecked")
+  private E at( int i ) { return (E)_es[_policy==Policy.RPO ? i : (_head+i)&(_es.length-1)]; }
+
+  // Double the ring, unwrapped to start at 0
+  private void grow() {
+    Object[] es = new Object[_es.length<<1];
+    int n = Math.min(_len,_es.length-_head);
+    System.arraycopy(_es,_head,es,0,n);
+    System.arraycopy(_es,0,es,n,_len-n);
+    _es = es;
+    _head = 0;
+    if( _idx!=null )
+      for( int i=0; i<_len; i++ ) _idx[((IntSupplier)_es[i]).getAsInt()] = i;
+  }
+
+  // Heap order key; a tombstone keeps its element's key
+  @SuppressWarnings("unchecked")
+  private int key( Object o ) { return o instanceof Dead ? ((Dead)o)._key : _order.applyAsInt((E)o); }
+
+  // Returns true if 'o' moved up
+  private boolean sift_up( int i, Object o ) {
+    int k = key(o), i0 = i;
+    while( i > 0 ) {
+      int p = (i-1)>>1;
+      if( key(_es[p]) <= k ) break;
+      set(i,_es[p]);
+      i = p;
+    }
+    set(i,o);
+    return i!=i0;
+  }
+  private void sift_down( int i, Object o ) {
+    int k = key(o);
+    while( true ) {
+      int c = (i<<1)+1;
+      if( c >= _len ) break;
+      if( c+1 < _len && key(_es[c+1]) < key(_es[c]) ) c++;
+      if( k <= key(_es[c]) ) break;
+      set(i,_es[c]);
+      i = c;
+    }
+    set(i,o);
+  }
+
+  // Visit the members without popping them.  Dels are allowed while
+  // iterating, and adds too for FIFO and LIFO (which may or may not be
+  // visited); pops are not.
+  @Override public Iterator<E> iterator() {
+    return new Iterator<>() {
+      int _i = skip(0);
+      private int skip( int i ) {
+        while( i < _len && !on(at(i)) ) i++;
+        return i;
+      }
+      @Override public boolean hasNext() { return _i < _len; }
+      @Override public E next() { E e = at(_i);  _i = skip(_i+1);  return e; }
+    };
+  }
+
+  @Override public String toString() {
+    if( isEmpty() ) return "[]";
+    SB sb = new SB().p('[');
+    for( E e : this ) sb.p(e.getAsInt()).p(',');
+    return sb.unchar().p(']').toString();
   }
 }
@@ -0,0 +1,62 @@
+package com.cliffc.aa;
+
+import com.cliffc.aa.node.*;
+import com.cliffc.aa.type.Type;
+import com.cliffc.aa.type.TypeInt;
+import com.cliffc.aa.type.TypeMem;
+import com.cliffc.aa.util.Ary;
+import com.cliffc.aa.util.VBitSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestCombo {
+  // An incremental Combo after a full one keeps the settled types, and only
+  // visits the new Node and its neighbors.
+  @Test public void testIncremental() {
+    Env e = Env.FILE = new Env(Env.TOP,null,false,Env.TOP._scope.ctrl(),Env.TOP._scope.mem());
+    ErrMsg err = new Parse("test",false,e,"mul2={x -> x*2}; mul2(2.1)").prog();
+    assertNull(err);
+    e._scope.keep();
+    Env.GVN.add_flow_uses(e._scope);
+    e.close();
+    Env.GVN.iter(GVNGCM.Mode.PesiNoCG);
+    Env.pre_combo();
+    Combo.opto();
+    int full = Combo.CNT;
+
+    // Snapshot the settled types
+    Ary<Node> ns = new Ary<>(Node.class);
+    reach(Env.START,new VBitSet(),ns);
+    Type[] vals = new Type[ns._len];
+    TypeMem[] lives = new TypeMem[ns._len];
+    for( int i=0; i<ns._len; i++ ) { vals[i] = ns.at(i)._val; lives[i] = ns.at(i)._live; }
+
+    // A new Node using a settled one
+    Node con = new ConNode<>(TypeInt.con(12345)).keep();
+    assertFalse(con._settled);
+    Combo.opto_incremental();
+    assertTrue(con._settled);
+    assertSame(TypeInt.con(12345),con._val);
+    for( int i=0; i<ns._len; i++ ) {
+      assertSame(vals [i],ns.at(i)._val );
+      assertSame(lives[i],ns.at(i)._live);
+    }
+    assertTrue(Combo.CNT*10 < full);
+
+    // Cleanup
+    con.unkeep();
+    Env.GVN.add_dead(con);
+    Env.FILE = null;
+    e._scope.unhook();
+    while( e._scope.len()>0 ) e._scope.pop();
+    Env.top_reset();
+  }
+
+  private static void reach( Node n, VBitSet visit, Ary<Node> ns ) {
+    if( visit.tset(n._uid) ) return;
+    ns.push(n);
+    for( Node use : n._uses ) reach(use,visit,ns);
+    for( Node def : n._defs ) if( def!=null ) reach(def,visit,ns);
+  }
+}
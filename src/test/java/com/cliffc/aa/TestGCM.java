@@ -0,0 +1,52 @@
+package com.cliffc.aa;
+
+import com.cliffc.aa.node.*;
+import com.cliffc.aa.type.Type;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestGCM {
+  // A counted loop stand-in:
+  //   entry: x = parm
+  //   loop:  phi = (x,body); inv = f(x); body = g(phi,inv); if( body )
+  //   exit:  out = h(body); if( out )
+  // inv hoists out of the loop, out sinks below it.
+  @Test public void testLoop() {
+    Node entry = new RegionNode((Node)null);
+    Node x     = new ProjNode(0,entry);
+    Node loop  = new LoopNode().add_def(entry);
+    Node phi   = new PhiNode(Type.SCALAR,null,loop,x);
+    Node inv   = new ProjNode(0,null,x,x);
+    Node body  = new ProjNode(0,null,phi,inv);
+    Node iff   = new IfNode(loop,body);
+    Node t     = new CProjNode(iff,1), f = new CProjNode(iff,0);
+    loop.add_def(t);
+    phi .add_def(body);
+    Node exit  = new RegionNode(null,f);
+    Node out   = new ProjNode(0,null,body);
+    Node iff2  = new IfNode(exit,out);
+
+    GCM gcm = new GCM(entry);
+    GCM.Block be = gcm.block(entry), bl = gcm.block(loop), bt = gcm.block(t), bx = gcm.block(exit);
+    assertEquals(5,gcm.blocks(entry)._len); // entry, loop, backedge, loop exit, exit
+    assertEquals(0,be._loop);
+    assertEquals(1,bl._loop);
+    assertEquals(1,bt._loop);
+    assertEquals(0,bx._loop);
+    assertSame(be,bl._idom);
+    assertSame(bl,bt._idom);
+
+    assertSame(be,gcm.block(x));
+    assertSame(be,gcm.block(inv));           // Hoisted
+    assertSame(bl,gcm.block(phi));
+    assertSame(bl,gcm.block(body));
+    assertSame(bx,gcm.block(out));           // Sunk
+    assertSame(bx,gcm.block(iff2));
+    // Inputs first, CFG in chain order
+    assertTrue(be._nodes.find(x) < be._nodes.find(inv));
+    assertTrue(bl._nodes.find(phi) < bl._nodes.find(body));
+    assertTrue(bl._nodes.find(body) < bl._nodes.find(iff));
+    assertTrue(bx._nodes.find(out) < bx._nodes.find(iff2));
+  }
+}
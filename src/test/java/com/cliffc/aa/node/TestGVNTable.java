@@ -0,0 +1,46 @@
+package com.cliffc.aa.node;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class TestGVNTable {
+  // Hits are by Node.equals; edge order does not change the hash
+  @Test public void testHits() {
+    Node a = new RegionNode(), b = new RegionNode(), c = new RegionNode();
+    Node ab = new RegionNode(null,a,b), ba = new RegionNode(null,b,a), ab2 = new RegionNode(null,a,b);
+    assertEquals(ab.hashCode(),ba.hashCode());
+    GVNTable t = new GVNTable();
+    assertNull(t.put(ab));
+    assertNull(t.get(ba));
+    assertSame(ab,t.get(ab2));
+    assertNull(t.get(new RegionNode(null,a,c)));
+    assertSame(ab,t.remove(ab2));
+    assertEquals(0,t.size());
+    assertNull(t.get(ab));
+  }
+
+  // Grow past the initial size, then remove every other Node and check the
+  // back-shifted probe runs still find the rest
+  @Test public void testGrowRemove() {
+    Node[] leafs = new Node[64];
+    for( int i=0; i<leafs.length; i++ ) leafs[i] = new RegionNode();
+    Node[] ns = new Node[4000];
+    GVNTable t = new GVNTable();
+    for( int i=0; i<ns.length; i++ )
+      assertNull(t.put(ns[i] = new RegionNode(null,leafs[i&63],leafs[(i>>6)&63],leafs[i%61])));
+    assertEquals(ns.length,t.size());
+    for( int i=0; i<ns.length; i+=2 ) assertSame(ns[i],t.remove(ns[i]));
+    assertEquals(ns.length/2,t.size());
+    for( int i=0; i<ns.length; i++ ) assertSame(i%2==0 ? null : ns[i],t.get(ns[i]));
+    HashSet<Node> seen = new HashSet<>();
+    for( Node n : t ) assertTrue(seen.add(n));
+    assertEquals(ns.length/2,seen.size());
+    assertTrue(t.reprobes() < t.lookups()); // Hash spreads well
+    t.clear();
+    assertEquals(0,t.size());
+    assertFalse(t.iterator().hasNext());
+  }
+}
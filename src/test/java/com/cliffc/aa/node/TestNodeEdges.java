@@ -0,0 +1,98 @@
+package com.cliffc.aa.node;
+
+import com.cliffc.aa.Env;
+import com.cliffc.aa.util.Ary;
+import com.cliffc.aa.util.Work;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestNodeEdges {
+  private static void check( Node... ns ) { for( Node n : ns ) assertTrue(n.check_edges()); }
+
+  // Every edge edit keeps the def and use back-indices in sync, including
+  // repeated defs and defs shifted by insert and remove
+  @Test public void testEdges() {
+    Node a = new RegionNode(), b = new RegionNode(), c = new RegionNode();
+    Node x = new RegionNode(null,a,b,a), y = new RegionNode(null,a,c);
+    check(a,b,c,x,y);
+    assertEquals(3,a._uses._len);
+    x.keep();  y.keep();  a.keep();  b.keep();  c.keep();
+    x.set_def(1,c);              check(a,b,c,x,y);
+    x.insert(1,b);               check(a,b,c,x,y);
+    x.add_def(a);                check(a,b,c,x,y);
+    x.del(1);                    check(a,b,c,x,y);
+    x.add_def(a);                check(a,b,c,x,y);
+    x.remove(1);                 check(a,b,c,x,y);
+    assertSame(c,x.in(1));
+    x.replace(a,c);              check(a,b,c,x,y);
+    assertSame(a,x.pop());       check(a,b,c,x,y);
+    a.insert(b);                 check(a,b,c,x,y);
+    assertEquals(0,a._uses._len);
+    assertSame(b,y.in(1));
+    assertEquals(x._defs._len+y._defs._len-2,b._uses._len+c._uses._len);
+  }
+
+  // Killed uids are reused once the work lists are clear, keeping numbering dense
+  @Test public void testUidRecycle() {
+    assertTrue(Env.GVN != null && Node._INIT0_CNT > 0);
+    Node a = new RegionNode(), b = new RegionNode().keep();
+    int uid = a._uid;
+    a.kill();
+    assertEquals(b._uid+1,new RegionNode()._uid); // Not yet reclaimed
+    Node.roll_back_CNT();
+    Node c = new RegionNode();
+    assertEquals(uid,c._uid);
+    assertTrue(c.check_edges() && b.unkeep().check_edges());
+  }
+
+  // Reverse postorder numbers defs before uses, densely from 1; a queued RPO
+  // heap is reordered by the new numbers, and copies are unnumbered
+  @Test public void testNumberRpo() {
+    Node s = new RegionNode().keep();
+    Node a = new RegionNode(null,s).keep(), b = new RegionNode(null,s).keep();
+    Node m = new RegionNode(null,a,b).keep();
+    WorkNode w = new WorkNode("rpo",false,Work.Policy.RPO,WorkNode.RPO) { @Override public Node apply(Node n) { return null; } };
+    w.add(m);  w.add(b);  w.add(a);  w.add(s);
+    assertEquals(4,Node.number_rpo(s));
+    assertEquals(1,s._rpo);
+    assertTrue(a._rpo < m._rpo && b._rpo < m._rpo && a._rpo!=b._rpo);
+    w.reorder();
+    assertSame(s,w.pop());
+    int rpo = w.pop()._rpo;
+    assertTrue(rpo < w.pop()._rpo);
+    assertSame(m,w.pop());
+    Node c = m.copy(false);
+    assertEquals(0,c._rpo);
+    c.kill();
+    m.unkeep().kill();  a.unkeep().kill();  b.unkeep().kill();  s.unkeep().kill();
+  }
+
+  // A cached function body is reused until an edge inside it changes; edges
+  // elsewhere leave it cached
+  @Test public void testBodyCache() {
+    FunNode fun = new FunNode("body");
+    Node x = new RegionNode(null,fun).keep(), y = new RegionNode(null,fun).keep();
+    RetNode ret = (RetNode)new RetNode(x,x,y,x,fun).keep();
+    Node a = new RegionNode().keep(), b = new RegionNode().keep();
+    int hits = FunNode.BODY_HITS, misses = FunNode.BODY_MISSES;
+    Ary<Node> body = fun.find_body(ret);
+    assertEquals(4,body._len);  // fun, x, y, ret
+    assertSame(body,fun.find_body(ret));
+    b.add_def(a);               // Outside the body
+    assertSame(body,fun.find_body(ret));
+    assertEquals(hits+2,FunNode.BODY_HITS);
+    assertEquals(misses+1,FunNode.BODY_MISSES);
+    y.add_def(x);               // Inside the body
+    Ary<Node> body2 = fun.find_body(ret);
+    assertTrue(body != body2);
+    assertEquals(4,body2._len);
+    assertEquals(misses+2,FunNode.BODY_MISSES);
+    b.add_def(fun);             // A new use of a body Node
+    assertTrue(body2 != fun.find_body(ret));
+    assertEquals(hits+2,FunNode.BODY_HITS);
+    assertEquals(misses+3,FunNode.BODY_MISSES);
+    b.unkeep().kill();  a.unkeep().kill();
+    ret.unkeep().kill();  y.unkeep().kill();  x.unkeep().kill();
+  }
+}
@@ -54,14 +54,14 @@ public class TestApprox {
 
   // Check TypeStruct.meet for a more complex recursive case
   @Test public void testTSMeet() {
-    Object dummy = TypeMemPtr.TYPES; // <clinit> before RECURSIVE_MEET
+    Object dummy = TypeMemPtr.TYPES; // <clinit> before rmeet_inc
     int alias0 = BitsAlias.new_alias(BitsAlias.REC);
 
     // Build two structs pointing to each other.
     //   -> [,int] -> * -> [,flt] -> * ->
     TypeFld fbint = TypeFld.make("b",TypeInt.INT64,TypeFld.oBot);
     TypeFld fbflt = TypeFld.make("b",TypeFlt.FLT64,TypeFld.oBot);
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeFld f01 = TypeFld.malloc("a");
     TypeFld f10 = TypeFld.malloc("a");
     TypeStruct t0 = TypeStruct.malloc("",false,true,f01,fbint);
@@ -70,7 +70,7 @@ public class TestApprox {
     TypeMemPtr p1 = TypeMemPtr.make(alias0,t1);
     f01.setX(p1);
     f10.setX(p0);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     t0 = t0.install();
 
     // Meet them
@@ -156,7 +156,7 @@ public class TestApprox {
   // Test approximating infinite recursive types.  End of chain is already
   // cyclic, and we add a few more depth.
   @Test public void testApprox2() {
-    Object dummy = TypeMemPtr.TYPES; // <clinit> before RECURSIVE_MEET
+    Object dummy = TypeMemPtr.TYPES; // <clinit> before rmeet_inc
     final int CUTOFF = 3;
     int alias0 = BitsAlias.new_alias(BitsAlias.REC);
     BitsAlias alias = BitsAlias.make0(alias0);
@@ -164,7 +164,7 @@ public class TestApprox {
     // p3 -> t3[,99] -> p2 -> t2[,99] -> p1 -> t1[,flt] -> p0 -> t0[,int] -> p1*
 
     // Build two structs pointing to each other
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeStruct t0 = TypeStruct.malloc("",false,true,TypeFld.malloc("a"),TypeFld.malloc("b")).set_hash();
     TypeStruct t1 = TypeStruct.malloc("",false,true,TypeFld.malloc("a"),TypeFld.malloc("b")).set_hash();
     TypeMemPtr p0 = TypeMemPtr.make(alias0,t0);
@@ -173,7 +173,7 @@ public class TestApprox {
     t0.get("b").setX(TypeInt.INT64);
     t1.get("a").setX(p0           );
     t1.get("b").setX(TypeFlt.FLT64);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     t0 = t0.install();
     p1 = (TypeMemPtr)t0.at("a");
 
@@ -283,14 +283,14 @@ public class TestApprox {
     TypeFld fi13 = TypeFld.make("v",i13);
     TypeFld fi14 = TypeFld.make("v",i14);
     TypeFld fpa3 = TypeFld.make("a",pa3);
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeStruct x3 = TypeStruct.malloc("",false,true,fi13,TypeFld.malloc("x"),fpa3).set_hash();
     TypeStruct x4 = TypeStruct.malloc("",false,true,fi14,TypeFld.malloc("x"),fpa3).set_hash();
     TypeMemPtr px3 = TypeMemPtr.make(alias1,x3);
     TypeMemPtr px4 = TypeMemPtr.make(alias1,x4);
     x3.get("x").setX(px4);
     x4.get("x").setX(px3);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     x3 = x3.install();
     px3 = (TypeMemPtr)x4.at("x");
 
@@ -324,14 +324,14 @@ public class TestApprox {
     TypeFld fil0 = TypeFld.make("v",i10);
     TypeFld fil1 = TypeFld.make("v",i11);
     TypeFld fpa1 = TypeFld.make("a",pa1);
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeStruct x0 = TypeStruct.malloc("",false,true,fil0, TypeFld.malloc("x"), fpa1).set_hash();
     TypeStruct x1 = TypeStruct.malloc("",false,true,fil1, TypeFld.malloc("x"), fpa1).set_hash();
     TypeMemPtr px0 = TypeMemPtr.make(alias1,x0);
     TypeMemPtr px1 = TypeMemPtr.make(alias1,x1);
     x0.get("x").setX(px1);
     x1.get("x").setX(px0);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     x0 = x0.install();
     px0 = (TypeMemPtr)x1.at("x");
 
@@ -564,13 +564,13 @@ public class TestApprox {
     final int CUTOFF = 2;
     int alias = BitsAlias.new_alias(BitsAlias.REC);
 
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeStruct  x1 = TypeStruct.malloc("",false,true,TypeFld.malloc("l"), TypeFld.malloc("r"), TypeFld.malloc("v")).set_hash();
     TypeMemPtr px1 = TypeMemPtr.make_nil(alias,x1);
     x1.get("l").setX(Type.XNIL  );
     x1.get("r").setX(px1        );
     x1.get("v").setX(Type.SCALAR);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     x1 = x1.install();
     assertSame(px1,x1.at("r"));
 
@@ -581,13 +581,13 @@ public class TestApprox {
     // Approximate
     TypeStruct z1 = z0.approx(CUTOFF,BitsAlias.make0(alias));
 
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeStruct  x3 = TypeStruct.malloc("",false,true,TypeFld.malloc("l"), TypeFld.malloc("r"), TypeFld.malloc("v")).set_hash();
     TypeMemPtr px3 = TypeMemPtr.make_nil(alias,x3);
     x3.get("l").setX(px3);//TypeMemPtr.make_nil(alias,TypeObj.OBJ);
     x3.get("r").setX(px3);
     x3.get("v").setX(Type.SCALAR);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     x3 = x3.install();
     px3 = (TypeMemPtr)x3.at("l");
 
@@ -733,7 +733,7 @@ public class TestApprox {
     TypeStruct dsp2 = TypeStruct.make(TypeMemPtr.DISP_FLD,TypeFld.make("fib",tfp2)); // dsp2->fib2->dsp1->fib1->dsp0->fib0->generic_display
 
     // The approx that gets built: fib3->dsp3->fib3->dsp3->...
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeStruct dsp3 = TypeStruct.malloc("",false,false,TypeFld.malloc("^",null, TypeFld.Access.Final,DSP_IDX), TypeFld.malloc("fib")).set_hash();
     TypeMemPtr ptr3 = TypeMemPtr.make(alias,dsp3);
     TypeStruct arg3 = TypeStruct.make(TypeFld.make("->",Type.SCALAR),
@@ -742,7 +742,7 @@ public class TestApprox {
     TypeFunPtr tfp3 = TypeFunPtr.make(fidxs,2,ptr3.simple_ptr(),Type.SCALAR);
     dsp3.get("^").setX(TypeMemPtr.DISPLAY_PTR);
     dsp3.get("fib").setX(tfp3);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     dsp3 = dsp3.install();
 
     // This should pass an isa-test (was crashing)
@@ -787,26 +787,26 @@ public class TestApprox {
     //}
     TypeStruct rez;
     {
-      Type.RECURSIVE_MEET++;
+      Type.rmeet_inc();
       TypeFld pred = TypeFld.malloc("pred");
       TypeFld succ = TypeFld.malloc("succ");
       rez = TypeStruct.make(pred,succ).set_hash();
       _help0(pred,f1425,a1314,rez);
       _help0(succ,f2226,a14  ,rez);
-      Type.RECURSIVE_MEET--;
+      Type.rmeet_dec();
       rez = rez.install();
     }
 
     TypeStruct thismeetrez;
     {
-      Type.RECURSIVE_MEET++;
+      Type.rmeet_inc();
       TypeFld pred2 = TypeFld.malloc("pred");
       TypeFld succ1 = TypeFld.malloc("succ");
       TypeStruct str1 = TypeStruct.make(rez.get("pred"),succ1).set_hash();
       TypeStruct str2 = TypeStruct.make(pred2,rez.get("succ")).set_hash();
       _help0(pred2,f1425,a1314,str1);
       _help0(succ1,f2226,a14  ,str2);
-      Type.RECURSIVE_MEET--;
+      Type.rmeet_dec();
       thismeetrez = str2.install();
     }
 
@@ -814,6 +814,31 @@ public class TestApprox {
     assertEquals(rez,thismeetrez);
   }
 
+  // Repeated approximations of the same struct are memoized
+  @Test public void testApproxCache() {
+    Object dummy0 = TypeStruct.TYPES;
+    int alias = BitsAlias.new_alias(BitsAlias.REC);
+    BitsAlias ba = BitsAlias.make0(alias);
+    // A 3-deep linked list: @{v:int; n:*[a]@{v:int; n:*[a]@{v:int; n:nil}}}
+    TypeStruct ts = TypeStruct.make(TypeFld.make("v",TypeInt.INT64),TypeFld.make("n",Type.NIL));
+    for( int i=0; i<3; i++ )
+      ts = TypeStruct.make(TypeFld.make("v",TypeInt.INT64),TypeFld.make("n",TypeMemPtr.make_nil(alias,ts)));
+    long hits = ApproxCache.hits();
+    TypeStruct apx = ts.approx2(1,ba);
+    assertSame(apx,ts.approx2(1,ba));
+    assertEquals(hits+1,ApproxCache.hits());
+    assertTrue(ts.isa(apx));
+    // Different cutoff is a different approximation
+    TypeStruct apx2 = ts.approx2(2,ba);
+    assertNotEquals(apx,apx2);
+    assertTrue(apx2.isa(apx));
+    assertEquals(hits+1,ApproxCache.hits());
+    // Resetting the alias tree flushes
+    assertTrue(ApproxCache.len() > 0);
+    BitsAlias.reset_to_init0();
+    assertEquals(0,ApproxCache.len());
+  }
+
   // Make the field point at the struct
   private static void _help0( TypeFld fld, BitsFun fidx, BitsAlias alias, TypeStruct rez ) {
     TypeMemPtr ptr = TypeMemPtr.make(alias,rez);
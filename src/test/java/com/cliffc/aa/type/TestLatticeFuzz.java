@@ -0,0 +1,365 @@
+package com.cliffc.aa.type;
+
+import com.cliffc.aa.util.Ary;
+import com.cliffc.aa.util.SB;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
+
+import static com.cliffc.aa.AA.ARG_IDX;
+import static org.junit.Assert.assertTrue;
+
+// Randomized lattice-law checks.  A seeded generator builds random types,
+// including nested and cyclic structs, pointers, function pointers and
+// memories.  The laws are checked over random triples on all cores.
+// Failures are shrunk to a minimal counterexample before being reported.
+//
+// The default run is short enough for every build.  Long runs set the triple
+// count with -Daa.fuzz=<N>, and the base seed with -Daa.fuzz_seed=<S>.
+public class TestLatticeFuzz {
+  private static final int  NTRIPLES = Integer.getInteger("aa.fuzz",20000);
+  private static final long SEED     = Long.getLong("aa.fuzz_seed",0x5eedL);
+  private static final int  MAX_FAILS= 10; // Stop collecting after this many
+
+  // Aliases and fidxs are split up front; the trees are not built concurrently.
+  // Two kids of a parent each, so pointers and function pointers cover the
+  // tree-structured meets.  Split only while this class runs, and only from
+  // the parents other tests split from; freed after, later splits get the
+  // same numbers as without this class.
+  private static int A0, A1, A2, F0, F1, F2;
+  private static final String[] FLDS  = new String[]{"x","y","n"};
+  private static final String[] NAMES = new String[]{"A:","B:"};
+  private static Type[] PRIMS;
+  @BeforeClass public static void split() {
+    Object dummy = TypeStruct.TYPES; // <clinit> before generating
+    A0 = BitsAlias.REC;
+    A1 = BitsAlias.new_alias(A0);
+    A2 = BitsAlias.new_alias(A0);
+    F0 = BitsFun.ALL;
+    F1 = BitsFun.new_fidx(F0);
+    F2 = BitsFun.new_fidx(F0);
+    Ary<Type> prims = new Ary<>(Type.class);
+    for( Type t : Type.ALL_TYPES() )
+      prims.push(t);
+    PRIMS = prims.asAry();
+  }
+  // Free in reverse order, so the kids go back to their reuse slots as split.
+  // Freeing rather than reset_to_init0, as a run of just this class has no
+  // init0 snapshot.
+  @AfterClass public static void unsplit() {
+    BitsAlias.free(A2);  BitsAlias.free(A1);
+    BitsFun  .free(F2);  BitsFun  .free(F1);
+    ApproxCache.clear();
+  }
+
+  // -------------------------------------------------------------------------
+  // Random type generator.  Depth bounds the nesting.
+  static Type gen( Random r, int d ) {
+    Type t = switch( d<=0 ? r.nextInt(4) : r.nextInt(10) ) {
+    case 0 -> PRIMS[r.nextInt(PRIMS.length)];
+    case 1 -> gen_int(r);
+    case 2 -> gen_flt(r);
+    case 3 -> Type.NIL;
+    case 4 -> gen_int(r).set_name(NAMES[r.nextInt(NAMES.length)]);
+    case 5 -> gen_struct(r,d);
+    case 6 -> gen_ptr(r,d);
+    case 7 -> gen_fptr(r,d);
+    case 8 -> TypeMem.make(gen_alias(r),r.nextBoolean() ? gen_struct(r,d-1) : TypeObj.OBJ);
+    default-> gen_cyclic(r,d);
+    };
+    return r.nextInt(3)==0 ? t.dual() : t;
+  }
+  // Field values and returns are between ~Scalar and Scalar
+  private static Type gen_scalar( Random r, int d ) {
+    Type t = gen(r,d);
+    return Type.XSCALAR.isa(t) && t.isa(Type.SCALAR) ? t : gen_int(r);
+  }
+  private static Type gen_int( Random r ) {
+    return switch( r.nextInt(4) ) {
+    case 0 -> TypeInt.con(r.nextInt(3));
+    case 1 -> TypeInt.con(r.nextInt(1000)-500);
+    case 2 -> TypeInt.INT8;
+    default-> TypeInt.INT64;
+    };
+  }
+  private static Type gen_flt( Random r ) {
+    return switch( r.nextInt(3) ) {
+    case 0 -> TypeFlt.con(r.nextInt(3)+0.5);
+    case 1 -> TypeFlt.FLT32;
+    default-> TypeFlt.FLT64;
+    };
+  }
+  private static int gen_alias( Random r ) { return new int[]{A0,A1,A2}[r.nextInt(3)]; }
+  private static BitsAlias gen_aliases( Random r ) {
+    BitsAlias as = BitsAlias.make0(gen_alias(r));
+    if( r.nextBoolean() ) as = as.set(gen_alias(r));
+    return r.nextBoolean() ? as.meet_nil() : as;
+  }
+  private static BitsFun gen_fidxs( Random r ) {
+    int[] fs = new int[]{F0,F1,F2};
+    BitsFun fidxs = BitsFun.make0(fs[r.nextInt(3)]);
+    return r.nextBoolean() ? fidxs.meet(BitsFun.make0(fs[r.nextInt(3)])) : fidxs;
+  }
+  // Function pointers may not repeat a fidx along the chain of returns
+  private static TypeFunPtr gen_fptr( Random r, int d ) {
+    BitsFun fidxs = gen_fidxs(r);
+    Type ret = gen_scalar(r,d-1);
+    for( Type x = ret; x instanceof TypeFunPtr && x!=((TypeFunPtr)x)._ret; x = ((TypeFunPtr)x)._ret )
+      if( fidxs.overlaps(((TypeFunPtr)x)._fidxs) )
+        { ret = Type.SCALAR; break; }
+    return TypeFunPtr.make(fidxs,1+r.nextInt(2),TypeMemPtr.NO_DISP,ret);
+  }
+  private static TypeStruct gen_struct( Random r, int d ) {
+    TypeStruct ts = TypeStruct.malloc("",false,r.nextInt(4)==0);
+    if( r.nextInt(4)==0 ) {     // Tuple
+      for( int i=0, n=r.nextInt(3); i<n; i++ )
+        ts.add_fld(TypeFld.make_tup(gen_scalar(r,d-1),ARG_IDX+i));
+    } else {
+      for( String fld : FLDS )
+        if( r.nextBoolean() )
+          ts.add_fld(TypeFld.make(fld,gen_scalar(r,d-1),TypeFld.Access.values[r.nextInt(4)],TypeFld.oBot));
+    }
+    ts = ts.hashcons_free();
+    return r.nextInt(4)==0 ? ts.set_name(NAMES[r.nextInt(NAMES.length)]) : ts;
+  }
+  private static TypeMemPtr gen_ptr( Random r, int d ) {
+    TypeObj obj = switch( r.nextInt(3) ) {
+    case 0 -> TypeObj.OBJ;
+    case 1 -> TypeObj.ISUSED;
+    default-> gen_struct(r,d-1);
+    };
+    return TypeMemPtr.make(gen_aliases(r),obj);
+  }
+  // A linked list, closed into a cycle: C:@{v:t; n:*[a]C?}
+  private static TypeStruct gen_cyclic( Random r, int d ) {
+    TypeFld v = TypeFld.make("v",gen_scalar(r,0));
+    BitsAlias aliases = gen_aliases(r);
+    Type.rmeet_inc();           // Nothing interns until the cycle closes
+    TypeFld n = TypeFld.malloc("n");
+    TypeStruct ts = TypeStruct.malloc("",false,false,n,v);
+    n.setX(TypeMemPtr.make(aliases,ts));
+    Type.rmeet_dec();
+    return ts.install();
+  }
+
+  // -------------------------------------------------------------------------
+  // The laws.  Each returns null if it holds, or a description if not.
+  interface Law { String check( Type a, Type b, Type c ); }
+  static final String[] LAW_NAMES = {"dual","commute","symmetric","associative","join-monotone"};
+  static final Law[] LAWS = {
+    // Dual is an involution
+    (a,b,c) -> a.dual().dual()==a ? null : "~~"+a+" == "+a.dual().dual(),
+    // a&b == b&a
+    (a,b,c) -> {
+      Type ab = a.meet(b), ba = b.meet(a);
+      return ab==ba ? null : a+" & "+b+" == "+ab+" but reversed is "+ba;
+    },
+    // a&b == mt implies ~mt&~a == ~a
+    (a,b,c) -> {
+      Type mt = a.meet(b), x = mt.dual().meet(a.dual());
+      return x==a.dual() ? null : a+" & "+b+" == "+mt+" but ~"+mt+" & ~"+a+" == "+x;
+    },
+    // (a&b)&c == a&(b&c)
+    (a,b,c) -> {
+      Type ab_c = a.meet(b).meet(c), a_bc = a.meet(b.meet(c));
+      return ab_c==a_bc ? null : "("+a+" & "+b+") & "+c+" == "+ab_c+" but "+a+" & ("+b+" & "+c+") == "+a_bc;
+    },
+    // a isa (a&b), so a^c isa (a&b)^c
+    (a,b,c) -> {
+      Type ab = a.meet(b), ac = a.join(c), abc = ab.join(c);
+      return ac.isa(abc) ? null : a+" isa "+ab+" but "+a+" ^ "+c+" == "+ac+" is not isa "+ab+" ^ "+c+" == "+abc;
+    },
+  };
+  // Check one law; a crash (e.g. a failed assert deep in meet) also breaks it
+  static String check( Law law, Type[] ts ) {
+    try {
+      return law.check(ts[0],ts[1],ts[2]);
+    } catch( Throwable e ) {
+      Type.rmeet_reset();       // May have died mid-meet, holding the CYCLIC lock
+      StackTraceElement[] st = e.getStackTrace();
+      return e+(st.length>0 ? " at "+st[0] : "")+" on "+ts[0]+", "+ts[1]+", "+ts[2];
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // Shrinking: candidates are strictly simpler types.  A failing triple is
+  // greedily replaced, one position at a time, by any simpler candidate that
+  // still breaks the same law.  Depth bounds the walk, which would otherwise
+  // chase cyclic types forever.
+  static Ary<Type> shrinks( Type t, int d ) {
+    Ary<Type> ts = new Ary<>(Type.class);
+    if( d==0 ) return ts;
+    if( t.above_center() && t!=t.dual() ) { // Shrink the low side, then flip back
+      for( Type s : shrinks(t.dual(),d) ) ts.push(s.dual());
+      return ts;
+    }
+    if( t!=Type.ALL ) ts.push(Type.ALL); // Position does not matter to the law
+    if( t.has_name() ) {        // Unnamed, then shrunk under the same name
+      ts.push(t.remove_name());
+      for( Type s : shrinks(t.remove_name(),d-1) )
+        if( s.getClass()==t.getClass() ) ts.push(s.set_name(t._name));
+      return ts;
+    }
+    if( t instanceof TypeStruct ) {
+      TypeStruct ts0 = (TypeStruct)t;
+      for( TypeFld fld : ts0.flds() ) {
+        ts.push(fld._t);        // Just the field
+        ts.push(ts0.del_fld(fld._fld));
+        for( Type s : shrinks(fld._t,d-1) )
+          ts.push(ts0.replace_fld(fld.make_from(s)));
+      }
+    } else if( t instanceof TypeMemPtr ) {
+      TypeMemPtr tmp = (TypeMemPtr)t;
+      if( tmp._obj!=TypeObj.OBJ ) ts.push(TypeMemPtr.make(tmp._aliases,TypeObj.OBJ));
+      ts.push(tmp._obj);
+      if( tmp._obj instanceof TypeStruct )
+        for( Type s : shrinks(tmp._obj,d-1) )
+          if( s instanceof TypeObj )
+            ts.push(TypeMemPtr.make(tmp._aliases,(TypeObj)s));
+    } else if( t instanceof TypeFunPtr ) {
+      TypeFunPtr tfp = (TypeFunPtr)t;
+      if( tfp._ret!=Type.SCALAR ) ts.push(TypeFunPtr.make(tfp._fidxs,tfp.nargs(),tfp._dsp,Type.SCALAR));
+      ts.push(tfp._ret);
+      for( Type s : shrinks(tfp._ret,d-1) )
+        ts.push(TypeFunPtr.make(tfp._fidxs,tfp.nargs(),tfp._dsp,s));
+    } else if( t instanceof TypeInt && t!=TypeInt.INT64 ) {
+      ts.push(TypeInt.INT64);
+      if( t!=TypeInt.FALSE ) ts.push(TypeInt.FALSE);
+    }
+    return ts;
+  }
+  static Type[] shrink( Type[] ts, Law law ) {
+    ts = ts.clone();
+    for( int steps=0; steps<1000; steps++ ) {
+      boolean progress=false;
+      for( int i=0; i<3 && !progress; i++ )
+        for( Type s : shrinks(ts[i],3) ) {
+          Type old = ts[i];
+          ts[i] = s;
+          if( check(law,ts)!=null ) { progress=true; break; }
+          ts[i] = old;
+        }
+      if( !progress ) break;
+    }
+    return ts;
+  }
+
+  // -------------------------------------------------------------------------
+  // Known violations of named types and nil.  Each is a pair of Types, met
+  // directly or as parts (fields, pointed-at objects, returns, memory
+  // contents) of a minimal witness.  The shrinker strips every name and nil
+  // it can, so a witness keeps one only if the failure needs it; a failure
+  // without names is never skipped.  Skips are counted and reported.
+  private static class Known {
+    final String _name; final BiPredicate<Type,Type> _pair;
+    final AtomicInteger _cnt = new AtomicInteger();
+    final AtomicReference<String> _example = new AtomicReference<>();
+    Known( String name, BiPredicate<Type,Type> pair ) { _name=name; _pair=pair; }
+  }
+  static final Known[] KNOWN = {
+    // Int and flt constants are their own duals, so a named N:c isa c and
+    // ~c isa ~N:c cannot both hold: "B:1 & 1 == 1", and "~1 & ~B:1 == 1".
+    // Likewise a named high int against an unnamed or other-named constant:
+    // "A:~int64 & 0z == 0z", but "~0z & A:int64 == int64".
+    new Known("named num vs self-dual constant", (x,y) ->
+              is_num(x) && is_num(y) && y==y.dual() && !x._name.equals(y._name)),
+    // Nil carries no name, yet the meet keeps or drops one by the usual name
+    // rules: "A:~int64 & 0 == A:0", and "A:int64 ^ nil == A:nil", which is
+    // not isa nil.
+    new Known("named vs nil", (x,y) ->
+              x.has_name() && (y._type==Type.TNIL || y._type==Type.TXNIL)),
+    // A name survives a meet across kinds, onto the generic Scalar result:
+    // "B:0z & *[2]~obj == B:Scalar", but "0z & *[2]~obj == Scalar".
+    new Known("name across kinds", (x,y) ->
+              x.has_name() && kind(x)!=kind(y)),
+    // Mismatched names meet to their common prefix, and force a high meet
+    // low: "~A:() & ~B:()" is low, and "A:() ^ B:(...) == ~(...)", which is
+    // not isa B:().
+    new Known("mismatched names", (x,y) ->
+              x.has_name() && y.has_name() && !x._name.equals(y._name)),
+  };
+  private static boolean is_num( Type t ) { return t instanceof TypeInt || t instanceof TypeFlt; }
+  private static Class<?> kind( Type t ) {
+    return is_num(t) ? TypeInt.class : t instanceof TypeObj ? TypeObj.class : t.getClass();
+  }
+  // The known violation matching some pair of parts of the witness, or null
+  static Known known( Type[] min ) {
+    Ary<Type> ps = new Ary<>(Type.class);
+    for( Type t : min ) parts(t,3,ps);
+    for( Known k : KNOWN )
+      for( Type x : ps )
+        for( Type y : ps )
+          if( x!=y && k._pair.test(x,y) )
+            return k;
+    return null;
+  }
+  private static void parts( Type t, int d, Ary<Type> ps ) {
+    if( d==0 || ps.find(t)!=-1 ) return;
+    ps.push(t);
+    if( t instanceof TypeStruct )
+      for( TypeFld fld : ((TypeStruct)t).flds() ) parts(fld._t,d-1,ps);
+    if( t instanceof TypeMemPtr ) parts(((TypeMemPtr)t)._obj,d-1,ps);
+    if( t instanceof TypeFunPtr ) parts(((TypeFunPtr)t)._ret,d-1,ps);
+    if( t instanceof TypeMem )
+      for( int a=1; a<((TypeMem)t).len(); a++ )
+        if( ((TypeMem)t).has(a) ) parts(((TypeMem)t).at(a),d-1,ps);
+  }
+
+  private static class Fail {
+    final long _seed; final int _law; final Type[] _min;
+    Fail( long seed, int law, Type[] min ) { _seed=seed; _law=law; _min=min; }
+  }
+
+  // Check the laws over NTRIPLES random triples, spread over all cores.
+  // Every triple has its own seed, so a failure replays on its own.
+  @Test public void testLatticeFuzz() {
+    final int ntasks = Runtime.getRuntime().availableProcessors()*4;
+    final ConcurrentLinkedQueue<Fail> fails = new ConcurrentLinkedQueue<>();
+    final AtomicInteger nfails = new AtomicInteger();
+    IntStream.range(0,ntasks).parallel().forEach(task -> {
+        for( int i=task; i<NTRIPLES && nfails.get()<MAX_FAILS; i+=ntasks ) {
+          long seed = SEED + i*0x9E3779B97F4A7C15L;
+          Type[] ts = triple(seed);
+          for( int law=0; law<LAWS.length; law++ ) {
+            if( check(LAWS[law],ts)==null ) continue;
+            Type[] min = shrink(ts,LAWS[law]);
+            Known k = known(min);
+            if( k!=null ) {
+              k._cnt.incrementAndGet();
+              k._example.compareAndSet(null,LAW_NAMES[law]+": "+check(LAWS[law],min));
+            } else if( nfails.getAndIncrement()<MAX_FAILS )
+              fails.add(new Fail(seed,law,min));
+          }
+        }
+      });
+    for( Known k : KNOWN )
+      if( k._cnt.get() > 0 )
+        System.out.println("Skipped "+k._cnt.get()+" known \""+k._name+"\", e.g. "+k._example.get());
+    SB sb = new SB();
+    for( Fail f : fails )
+      sb.p("Law ").p(LAW_NAMES[f._law]).p(" fails, seed ").p(f._seed).nl()
+        .p("  minimal: ").p(check(LAWS[f._law],f._min)).nl();
+    assertTrue(sb.toString(),fails.isEmpty());
+  }
+  static Type[] triple( long seed ) {
+    Random r = new Random(seed);
+    return new Type[]{gen(r,3),gen(r,3),gen(r,3)};
+  }
+
+  // The shrinker finds a minimal witness for a planted failure.
+  @Test public void testShrink() {
+    // Pretend law: no triple may mention a pointer, at any depth
+    Law law = (a,b,c) -> a.toString().contains("*") ? "ptr" : null;
+    Type deep = TypeStruct.make(TypeFld.make("x",TypeInt.INT8),
+                                TypeFld.make("y",TypeMemPtr.make(BitsAlias.make0(A0),TypeStruct.make(TypeFld.make("n",TypeFlt.FLT64)))));
+    Type[] min = shrink(new Type[]{deep,Type.ALL,Type.ALL},law);
+    assertTrue(min[0].toString(), min[0] instanceof TypeMemPtr && ((TypeMemPtr)min[0])._obj==TypeObj.OBJ);
+  }
+}
@@ -4,10 +4,21 @@ import com.cliffc.aa.node.PrimNode;
 import com.cliffc.aa.util.Ary;
 import org.junit.Test;
 
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static com.cliffc.aa.type.TypeMemPtr.NO_DISP;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 
@@ -82,6 +93,70 @@ public class TestType {
     assertEquals(t12,mt);
   }
 
+  // Large sparse alias sets, spread over several compressed chunks.  Meets
+  // and joins on the compressed form must match the obvious set math.
+  @Test public void testBitsSparse() {
+    int[] as = new int[3000];
+    for( int i=0; i<as.length; i++ )
+      as[i] = BitsAlias.new_alias(i<2 ? BitsAlias.REC : as[i/2-1]); // Binary tree of aliases
+    // Sparse, a run, and dense-ish leaves
+    BitsAlias b0 = BitsAlias.EMPTY, b1 = BitsAlias.EMPTY;
+    for( int i=1500; i<as.length; i++ ) {
+      if( i%97==0 || (i>=2000 && i<2100) || i%3==0 ) b0 = b0.set(as[i]);
+      if( i%5==0 ) b1 = b1.set(as[i]);
+    }
+    BitsAlias b01 = b0.meet(b1);
+    for( int i=1500; i<as.length; i++ ) {
+      assertEquals(b0.test(as[i]) || b1.test(as[i]),b01.test(as[i]));
+      assertTrue(b01.test_recur(as[i]) || !(b0.test(as[i]) || b1.test(as[i])));
+    }
+    int cnt=0;
+    for( int alias : b01 ) { assertTrue(b01.test(alias)); cnt++; }
+    assertEquals(b01.bitCount(),cnt);
+    // Parent overrides kids
+    int par = BitsAlias.parent(as[2999]);
+    BitsAlias bp = b01.set(par);
+    assertTrue(bp.test(par));
+    for( int kid=par; kid!=0; kid=BitsAlias.next_kid(par,kid) )
+      assertTrue(kid==par || !bp.test(kid));
+    // Join of the duals is the intersection
+    BitsAlias j = b0.dual().meet(b1.dual()).dual();
+    for( int i=1500; i<as.length; i++ )
+      assertEquals(b0.test(as[i]) && b1.test(as[i]),j.test(as[i]));
+    // A parent joined with its kids keeps the kids
+    BitsAlias jp = BitsAlias.make0(as[1]).dual().meet(b1.dual()).dual();
+    for( int alias : jp ) assertTrue(b1.test(alias) && BitsAlias.is_parent(as[1],alias));
+    // Same interned result regardless of construction order
+    assertSame(b01,b1.meet(b0));
+    assertSame(b01,b01.meet_nil().strip_nil());
+  }
+
+  // Deep split chains, as from repeated inlining of recursive code.  Enough
+  // levels to force interval relabeling; ancestor queries must match a walk
+  // up the parent chain.
+  @Test public void testBitsDeep() {
+    int[] as = new int[400];
+    int par = BitsAlias.REC;
+    for( int i=0; i<as.length; i++ ) {
+      as[i] = BitsAlias.new_alias(par);
+      BitsAlias.new_alias(par); // A sibling at every level
+      par = as[i];
+    }
+    for( int i=0; i<as.length; i+=7 )
+      for( int j=0; j<as.length; j+=11 ) {
+        boolean walk=false;
+        for( int k=as[j]; k!=0; k=BitsAlias.parent(k) )
+          walk |= k==as[i];
+        assertEquals(walk,BitsAlias.is_parent(as[i],as[j]));
+      }
+    // Parent overrides the deep kid; a join keeps the deep kid
+    BitsAlias deep = BitsAlias.make0(as[399]), mid = BitsAlias.make0(as[200]);
+    assertSame(mid,deep.meet(mid));
+    assertSame(deep.dual(),deep.dual().meet(mid.dual()).dual().dual());
+    assertTrue(mid.test_recur(as[399]));
+    assertTrue(!deep.test_recur(as[200]));
+  }
+
   @Test public void testNamesInts() {
 
     // Lattice around int8 and 0 is well formed; exactly 3 edges, 3 nodes
@@ -278,6 +353,34 @@ public class TestType {
     assertTrue(ld.isa(ax));
   }
 
+  // Wide structs; fields kept sorted by symbol id regardless of insertion order.
+  @Test public void testStructWide() {
+    TypeFld[] fwd = new TypeFld[40], rev = new TypeFld[40], flt = new TypeFld[40];
+    for( int i=0; i<40; i++ ) {
+      String s = ("w"+i).intern();
+      fwd[i] = rev[39-i] = TypeFld.make(s,TypeInt.con(i));
+      flt[i] = TypeFld.make(s,(i&1)==0 ? TypeInt.con(i) : TypeFlt.FLT64);
+    }
+    TypeStruct ts0 = TypeStruct.make(fwd), ts1 = TypeStruct.make(rev), ts2 = TypeStruct.make(flt);
+    assertSame(ts0,ts1);        // Insertion order does not matter
+    assertEquals(40,ts0.len());
+    for( int i=0; i<40; i++ )
+      assertEquals(TypeInt.con(i),ts0.at(("w"+i).intern()));
+    assertNull(ts0.get("nope"));
+    // Field-by-field meet
+    TypeStruct mt = (TypeStruct)ts0.meet(ts2);
+    for( int i=0; i<40; i++ )
+      assertEquals((i&1)==0 ? TypeInt.con(i) : TypeInt.con(i).meet(TypeFlt.FLT64), mt.at(("w"+i).intern()));
+    assertTrue(ts0.isa(mt) && ts2.isa(mt));
+    // Deleting a field shifts the rest, and lookups still work
+    TypeStruct del = ts0.del_fld("w7");
+    assertEquals(39,del.len());
+    assertNull(del.get("w7"));
+    assertEquals(TypeInt.con(8),del.at("w8"));
+    assertSame(del,TypeStruct.make(Arrays.stream(fwd).filter(f -> f._fld!="w7").toArray(TypeFld[]::new)));
+    assertSame(ts0,ts0.dual().dual());
+  }
+
 
   @Test public void testFunction() {
     PrimNode[] ignore2 = PrimNode.PRIMS(); // Force node
@@ -316,28 +419,28 @@ public class TestType {
   // Test limits on recursive type structures; recursively building nested
   // structures caps out in the type system at some reasonable limit.
   @Test public void testRecursive() {
-    Object dummy0 = TypeMemPtr.DISPLAY_PTR; // Must <clinit> out of RECURSIVE_MEET
+    Object dummy0 = TypeMemPtr.DISPLAY_PTR; // Must <clinit> out of rmeet_inc
     final int alias1 = BitsAlias.new_alias(BitsAlias.REC);
 
     // Anonymous recursive structs -
     // - struct with pointer to self
     TypeFld fldv = TypeFld.make("v",TypeInt.INT64);
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeFld fldn0 = TypeFld.malloc("n");
     TypeStruct ts0 = TypeStruct.malloc("",false,true,fldn0,fldv).set_hash();
     final TypeMemPtr ts0ptr = TypeMemPtr.make(alias1,ts0);
     fldn0.setX(ts0ptr);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     ts0 = ts0.install();
     TypeMem ts0mem = TypeMem.make(alias1,ts0); // {1:@{n:*[1],v:int} }
 
     // - struct with pointer to self or nil
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeFld fldn1 = TypeFld.malloc("n");
     TypeStruct ts1 = TypeStruct.malloc("",false,true,fldn1,fldv).set_hash();
     final TypeMemPtr ts1ptr0 = TypeMemPtr.make_nil(alias1,ts1);
     fldn1.setX(ts1ptr0);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     ts1 = ts1.install();
     TypeMem ts1mem = TypeMem.make(alias1,ts1); // {1:@{n:*[1],v:int} }
 
@@ -424,16 +527,43 @@ public class TestType {
     assertTrue(0 <= d && d <10);
   }
 
+  // A cycle unrolled twice minimizes to the same interned cycle as the plain
+  // self-loop; the minimizer counts what it processed.
+  @Test public void testMinimize() {
+    Object dummy0 = TypeMemPtr.DISPLAY_PTR; // Must <clinit> out of rmeet_inc
+    final int alias = BitsAlias.new_alias(BitsAlias.REC);
+    TypeFld fldv = TypeFld.make("v",TypeInt.INT64);
+    Type.rmeet_inc();
+    TypeFld fldn = TypeFld.malloc("n");
+    TypeStruct ts = TypeStruct.malloc("",false,true,fldn,fldv).set_hash();
+    fldn.setX(TypeMemPtr.make(alias,ts));
+    Type.rmeet_dec();
+    ts = ts.install();          // @{n:*[alias],v:int}
+
+    long calls = Minimizer.CALLS, types = Minimizer.TYPES, edges = Minimizer.EDGES;
+    Type.rmeet_inc();
+    TypeFld fldn0 = TypeFld.malloc("n"), fldn1 = TypeFld.malloc("n");
+    TypeStruct ts0 = TypeStruct.malloc("",false,true,fldn0,fldv).set_hash();
+    TypeStruct ts1 = TypeStruct.malloc("",false,true,fldn1,fldv).set_hash();
+    fldn0.setX(TypeMemPtr.make(alias,ts1));
+    fldn1.setX(TypeMemPtr.make(alias,ts0));
+    Type.rmeet_dec();
+    assertSame(ts,ts0.install());
+    assertEquals(calls+1,Minimizer.CALLS);
+    assertTrue(Minimizer.TYPES >= types+6);  // 2 structs, 2 fields, 2 pointers
+    assertTrue(Minimizer.EDGES >= edges+6);
+  }
+
   // Test a cycle with two names on mismatched cycle boundaries
   @Test public void testNameCycle() {
-    Object dummy0 = TypeMemPtr.DISPLAY_PTR; // Must <clinit> out of RECURSIVE_MEET
+    Object dummy0 = TypeMemPtr.DISPLAY_PTR; // Must <clinit> out of rmeet_inc
     // Make a cycle: 0_A: -> 1_(n=*,v=i64) -> 2_TMP -> 3_B: -> 4_(n=*,v=f64) -> 5_TMP ->
     // Dual; then meet ~4_() and ~0_A
     final int alias = BitsAlias.REC;
 
     TypeFld fldvi = TypeFld.make("v",TypeInt.INT64);
     TypeFld fldvf = TypeFld.make("v",TypeFlt.FLT64);
-    Type.RECURSIVE_MEET++;
+    Type.rmeet_inc();
     TypeFld fldn1 = TypeFld.malloc("n");
     TypeFld fldn4 = TypeFld.malloc("n");
     TypeStruct as1 = TypeStruct.malloc("A:",false,true,fldn1,fldvi);
@@ -444,7 +574,7 @@ public class TestType {
     TypeMemPtr bp2 = TypeMemPtr.make(alias,bs4);
     fldn1.setX(bp2);
     fldn4.setX(ap5);
-    Type.RECURSIVE_MEET--;
+    Type.rmeet_dec();
     as1 = as1.install();
     bp2 = (TypeMemPtr)as1.at("n");
     bs4 = (TypeStruct)bp2._obj;
@@ -542,8 +672,214 @@ public class TestType {
   }
 
 
+  // Memories over many aliases.  Stores and meets must make the same interned
+  // memory as building from a dense array.
+  @Test public void testMemAliases() {
+    int[] as = new int[1000];
+    for( int i=0; i<as.length; i++ )
+      as[i] = BitsAlias.new_alias(i<10 ? BitsAlias.REC : as[i/10-1]);
+    TypeObj[] objs = new TypeObj[]{TypeStruct.POINT,TypeStruct.A,TypeStruct.NAMEPT,TypeStruct.ARW,TypeStruct.ALLSTRUCT};
+    TypeMem m0 = TypeMem.MEM, m1 = TypeMem.MEM;
+    for( int i=0; i<as.length; i++ ) {
+      if( i%3==0 ) m0 = m0.set   (as[i],objs[i%objs.length]);
+      if( i%5==0 ) m1 = m1.st_new(as[i],objs[(i/5)%objs.length]);
+    }
+    TypeMem mt = (TypeMem)m0.meet(m1);
+    for( TypeMem mem : new TypeMem[]{m0,m1,mt,mt.dual()} ) {
+      TypeObj[] tos = new TypeObj[mem.len()];
+      for( int i=1; i<tos.length; i++ ) tos[i] = mem.at(i);
+      assertSame(mem,TypeMem.make0(tos));
+    }
+    for( int i=1; i<mt.len(); i++ )
+      assertSame(m0.at(i).meet(m1.at(i)),mt.at(i));
+    assertSame(m0,m0.set(as[3],objs[3]).set(as[3],m0.at(as[3])));
+  }
+
   @Test public void testCommuteSymmetricAssociative() {
     assertTrue(Type.check_startup());
   }
 
+  // Tiny meet, join and isa caches must evict, and still return the same results.
+  @Test public void testMeetCache() {
+    Type[] ts = Type.ALL_TYPES().asAry();
+    Type[][] mts = new Type[ts.length][ts.length];
+    Type[][] jts = new Type[ts.length][ts.length];
+    boolean[][] isas = new boolean[ts.length][ts.length];
+    for( int i=0; i<ts.length; i++ )
+      for( int j=0; j<ts.length; j++ ) {
+        mts [i][j] = ts[i].meet(ts[j]);
+        jts [i][j] = ts[i].join(ts[j]);
+        isas[i][j] = ts[i].isa (ts[j]);
+      }
+    MeetCache[] caches = new MeetCache[]{MeetCache.meet(),MeetCache.join(),MeetCache.isa()};
+    int[] sizes = new int[caches.length];
+    long[] evicts = new long[caches.length];
+    try {
+      for( int k=0; k<caches.length; k++ ) {
+        sizes [k] = caches[k].size();
+        caches[k].set_size(16);
+        evicts[k] = caches[k].evictions();
+      }
+      for( int i=0; i<ts.length; i++ )
+        for( int j=0; j<ts.length; j++ ) {
+          assertEquals(mts [i][j],ts[i].meet(ts[j]));
+          assertEquals(jts [i][j],ts[i].join(ts[j]));
+          assertEquals(isas[i][j],ts[i].isa (ts[j]));
+        }
+      for( int k=0; k<caches.length; k++ ) {
+        assertTrue(caches[k].len() <= 16);
+        assertTrue(caches[k].evictions() > evicts[k]);
+      }
+    } finally {
+      for( int k=0; k<caches.length; k++ )
+        caches[k].set_size(sizes[k]);
+    }
+  }
+
+  // Sharpening hits the global sharp cache, and a tiny evicting cache still
+  // returns the same results.
+  @Test public void testSharpCache() {
+    int a1 = BitsAlias.new_alias(BitsAlias.REC), a2 = BitsAlias.new_alias(BitsAlias.REC);
+    TypeMemPtr d1 = TypeMemPtr.make(a1,TypeObj.ISUSED), d2 = TypeMemPtr.make(a2,TypeObj.ISUSED);
+    TypeMem mem = TypeMem.make(a1,TypeStruct.make2flds("n",d2,"v",TypeInt.INT64))
+      .set(a2,TypeStruct.make2flds("n",d1,"v",TypeFlt.FLT64)); // [a1:@{n=*[a2],v=int}, a2:@{n=*[a1],v=flt}]
+    TypeMem[] mems = new TypeMem[]{mem,TypeMem.MEM,TypeMem.MEM_ABC};
+    TypeMemPtr[] dulls = new TypeMemPtr[]{d1,d2,TypeMemPtr.STRPTR.simple_ptr(),TypeMemPtr.ABCPTR.simple_ptr()};
+    TypeMemPtr[][] sharps = new TypeMemPtr[mems.length][dulls.length];
+    for( int i=0; i<mems.length; i++ )
+      for( int j=0; j<dulls.length; j++ )
+        sharps[i][j] = mems[i].sharpen(dulls[j]);
+    long hits = SharpCache.hits();
+    for( int i=0; i<mems.length; i++ )
+      for( int j=0; j<dulls.length; j++ )
+        assertSame(sharps[i][j],mems[i].sharpen(dulls[j]));
+    assertTrue(SharpCache.hits() > hits);
+    int size = SharpCache.size();
+    try {
+      SharpCache.set_size(1);
+      for( int i=0; i<mems.length; i++ )
+        for( int j=0; j<dulls.length; j++ )
+          assertSame(sharps[i][j],mems[i].sharpen(dulls[j]));
+    } finally {
+      SharpCache.set_size(size);
+    }
+  }
+
+  // Several threads racing to make the same new types all get the same
+  // interned copy, complete with its dual.
+  @Test public void testConcurrentIntern() throws InterruptedException {
+    Type[] ts = Type.ALL_TYPES().asAry();
+    final int N=4, M=200;
+    Type[][] rez = new Type[N][];
+    Thread[] thrs = new Thread[N];
+    for( int n=0; n<N; n++ ) {
+      final int x=n;
+      thrs[n] = new Thread(() -> {
+          Ary<Type> ary = new Ary<>(Type.class);
+          for( int i=0; i<M; i++ ) {
+            TypeInt ti = TypeInt.con(1000000+i); // Fresh types, all threads racing
+            ary.push(ti);
+            ary.push(TypeStruct.make2flds("x",ti,"y",TypeFlt.con(i+0.5)));
+          }
+          for( Type t0 : ts )
+            for( Type t1 : ts )
+              ary.push(t0.meet(t1));
+          rez[x] = ary.asAry();
+        });
+      thrs[n].start();
+    }
+    for( Thread thr : thrs ) thr.join();
+    for( int n=0; n<N; n++ ) {
+      assertEquals(rez[0].length,rez[n].length);
+      for( int i=0; i<rez[0].length; i++ ) {
+        assertSame(rez[0][i],rez[n][i]);
+        assertSame(rez[n][i],rez[n][i].dual().dual());
+      }
+    }
+    assertTrue(Type.intern_check());
+  }
+
+  // Interned types nothing refers to are reclaimed, while pinned types
+  // survive and stay pointer-equal.  Pooled Types are reused, so a stale
+  // scratch slot may keep the odd one reachable; most must go.
+  @Test public void testWeakIntern() throws InterruptedException {
+    Type.reset_to_init0();      // Flush this thread's meet caches
+    int pin = TypeInt.con(2000001)._uid;
+    Type.init0();               // Pin everything interned so far
+    final int N=100;
+    List<WeakReference<Type>> weaks = new ArrayList<>();
+    for( int i=0; i<N; i++ )
+      weaks.add(new WeakReference<>(TypeStruct.make2flds("x",TypeInt.con(2000002+i),"y",TypeFlt.con(2.5))));
+    int live=N;
+    for( int i=0; i<100 && live>N/10; i++ ) {
+      System.gc();
+      Thread.sleep(10);
+      live=0;
+      for( WeakReference<Type> weak : weaks )
+        if( weak.get()!=null ) live++;
+    }
+    assertTrue(live <= N/10);   // Reclaimed
+    assertEquals(pin,TypeInt.con(2000001)._uid);
+    // Equal structs intern fresh
+    TypeStruct ts = TypeStruct.make2flds("x",TypeInt.con(2000002),"y",TypeFlt.con(2.5));
+    assertSame(ts,TypeStruct.make2flds("x",TypeInt.con(2000002),"y",TypeFlt.con(2.5)));
+    assertSame(ts,ts.dual().dual());
+    assertTrue(Type.intern_check());
+  }
+
+  // Type[] interning: equal arrays share, through table growth, and
+  // unreachable arrays are dropped.
+  @Test public void testTypesIntern() throws InterruptedException {
+    final int N=5000;
+    Ary<Type[]> tss = new Ary<>(new Type[0][]);
+    for( int i=0; i<N; i++ )
+      tss.push(Types.hash_cons(Types.ts(TypeInt.con(3000000+i),TypeFlt.FLT64)));
+    for( int i=0; i<N; i++ )
+      assertSame(tss.at(i),Types.hash_cons(Types.ts(TypeInt.con(3000000+i),TypeFlt.FLT64)));
+    // Same elements, different length or order, are different arrays
+    Type[] ts3 = Types.hash_cons(Types.ts(TypeInt.con(3000000),TypeFlt.FLT64,Type.ALL));
+    Type[] rev = Types.hash_cons(Types.ts(TypeFlt.FLT64,TypeInt.con(3000000)));
+    assertTrue(ts3!=tss.at(0) && rev!=tss.at(0));
+    int big = Types.intern_size();
+    assertTrue(big >= N);
+    tss=null;  ts3=rev=null;
+    for( int i=0; i<100 && Types.intern_size() > big-N/2; i++ ) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertTrue(Types.intern_size() <= big-N/2); // Reclaimed
+    Type[] ts = Types.hash_cons(Types.ts(TypeInt.con(3000001),TypeFlt.FLT64));
+    assertSame(ts,Types.hash_cons(Types.ts(TypeInt.con(3000001),TypeFlt.FLT64)));
+  }
+
+
+  // Metrics snapshot, and the same through JMX
+  @Test public void testMetrics() throws Exception {
+    Map<String,Long> m0 = TypeMetrics.snapshot();
+    TypeInt.con(4000000).meet(TypeInt.con(4000001)); // Miss
+    TypeInt.con(4000000).meet(TypeInt.con(4000001)); // Hit
+    TypeFld v = TypeFld.make("v",TypeInt.con(4000002));
+    Type.rmeet_inc();           // Nothing interns until the cycle closes
+    TypeFld n = TypeFld.malloc("n");
+    TypeStruct ts = TypeStruct.malloc("",false,false,n,v);
+    n.setX(TypeMemPtr.make(BitsAlias.RECORD_BITS,ts));
+    Type.rmeet_dec();
+    ts = ts.install();
+    assertTrue(ts.interned());
+    Map<String,Long> m1 = TypeMetrics.snapshot();
+    assertTrue(m1.get("meet_cache.hits"  ) > m0.get("meet_cache.hits"  ));
+    assertTrue(m1.get("meet_cache.misses") > m0.get("meet_cache.misses"));
+    assertTrue(m1.get("pool.TypeInt.malloc")+m1.get("pool.TypeInt.pooled") > m0.get("pool.TypeInt.malloc")+m0.get("pool.TypeInt.pooled"));
+    assertEquals(m0.get("cyclic.installs")+1,(long)m1.get("cyclic.installs"));
+    assertTrue(m1.get("cyclic.interns") > m0.get("cyclic.interns"));
+    assertTrue(m1.get("intern.types") > 0 && m1.get("threads") > 0);
+
+    TypeMetrics.register();
+    TypeMetrics.register();     // Repeats are ignored
+    MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(TypeMetrics.NAME);
+    assertEquals(m1.get("cyclic.installs"),mbs.getAttribute(name,"cyclic.installs"));
+    MBeanInfo info = mbs.getMBeanInfo(name);
+    assertTrue(info.getAttributes().length >= m1.size());
+  }
 }
@@ -0,0 +1,87 @@
+package com.cliffc.aa.util;
+
+import org.junit.Test;
+
+import java.util.function.IntSupplier;
+
+import static org.junit.Assert.*;
+
+public class TestWork {
+  private static class X implements IntSupplier {
+    final int _uid;
+    X( int uid ) { _uid=uid; }
+    @Override public int getAsInt() { return _uid; }
+  }
+  private static X[] xs( int n ) {
+    X[] xs = new X[n];
+    for( int i=0; i<n; i++ ) xs[i] = new X(i*37);
+    return xs;
+  }
+
+  // Pop order per policy, with dups filtered and the ring wrapping and growing
+  @Test public void testPolicies() {
+    X[] xs = xs(100);
+    Work<X> fifo = new Work<>(), lifo = new Work<>(Work.Policy.LIFO), rpo = new Work<>(Work.Policy.RPO, x -> -x._uid);
+    for( int i=0; i<5; i++ ) { fifo.add(xs[i]);  fifo.pop(); } // Wrap the ring
+    for( X x : xs ) { fifo.add(x); lifo.add(x); rpo.add(x); }
+    for( X x : xs ) { fifo.add(x); lifo.add(x); rpo.add(x); } // Dups
+    assertEquals(100,fifo.len());
+    assertTrue(fifo.on(xs[50]) && !fifo.on(new X(1<<20)));
+    for( int i=0; i<100; i++ ) {
+      assertSame(xs[i],fifo.pop());
+      assertSame(xs[99-i],lifo.pop());
+      assertSame(xs[99-i],rpo.pop()); // Order key is -uid
+    }
+    assertTrue(fifo.isEmpty() && lifo.isEmpty() && rpo.isEmpty());
+    assertNull(fifo.pop());
+    assertFalse(fifo.on(xs[50]));
+  }
+
+  // Deleted elements are skipped, or keep their slot if re-added
+  @Test public void testDel() {
+    X[] xs = xs(10);
+    Work<X> w = new Work<>();
+    for( X x : xs ) w.add(x);
+    assertTrue(w.del(xs[3]));
+    assertFalse(w.del(xs[3]));
+    assertTrue(w.del(xs[5]));
+    w.add(xs[5]);               // Back in its old slot
+    assertEquals(9,w.len());
+    int cnt=0;
+    for( X x : w ) { assertTrue(x!=xs[3]); cnt++; }
+    assertEquals(9,cnt);
+    assertEquals("[0,37,74,148,185,222,259,296,333]",w.toString());
+    for( int i=0; i<10; i++ )
+      if( i!=3 ) assertSame(xs[i],w.pop());
+    assertNull(w.pop());
+    w.add(xs[3]);
+    w.clear();
+    assertTrue(w.isEmpty() && !w.on(xs[3]));
+    assertEquals("[]",w.toString());
+  }
+
+  // Ids are recycled: a deleted element's slot holds no reference to it, and
+  // a new element with the same id takes the slot over
+  @Test public void testDelRecycledId() {
+    for( Work.Policy p : Work.Policy.values() ) {
+      X[] xs = xs(10);
+      Work<X> w = new Work<>(p, x -> x._uid);
+      for( X x : xs ) w.add(x);
+      assertTrue(w.del(xs[4]));
+      X y = new X(xs[4]._uid);  // Same id, different object
+      w.add(y);
+      assertTrue(w.on(y));
+      int cnt=0;
+      for( X x : w ) { assertTrue(x!=xs[4]); cnt++; }
+      assertEquals(10,cnt);
+      // Iterating with dels, as GVN does with its dominance list
+      for( X x : w ) if( x==y ) w.del(x);
+      assertFalse(w.on(y));
+      w.add(y);
+      boolean found=false;
+      for( X x=w.pop(); x!=null; x=w.pop() ) { assertTrue(x!=xs[4]); found |= x==y; }
+      assertTrue(found);
+      assertTrue(w.isEmpty());
+    }
+  }
+}